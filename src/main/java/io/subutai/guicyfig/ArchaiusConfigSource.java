@@ -0,0 +1,157 @@
+package io.subutai.guicyfig;
+
+
+import java.util.Iterator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.commons.configuration.Configuration;
+
+import com.netflix.config.ConcurrentCompositeConfiguration;
+import com.netflix.config.ConfigurationManager;
+import com.netflix.config.DynamicProperty;
+import com.netflix.config.DynamicPropertyFactory;
+import com.netflix.config.PropertyWrapper;
+
+
+/**
+ * The default {@link ConfigSource}: the process wide Archaius configuration.
+ * Options are backed by typed Archaius dynamic properties and overrides are
+ * set on the installed {@link ConcurrentCompositeConfiguration}.
+ *
+ * @since 4.1
+ */
+public final class ArchaiusConfigSource implements ConfigSource {
+    private static final Logger LOG = LoggerFactory.getLogger( ArchaiusConfigSource.class );
+    private static final ArchaiusConfigSource INSTANCE = new ArchaiusConfigSource();
+
+
+    private ArchaiusConfigSource() {
+    }
+
+
+    public static ArchaiusConfigSource getInstance() {
+        return INSTANCE;
+    }
+
+
+    @Override
+    public String getValue( String key ) {
+        return DynamicProperty.getInstance( key ).getString();
+    }
+
+
+    /**
+     * Gets the layer of a key from the configuration of the installed
+     * {@link ConcurrentCompositeConfiguration} which has it: its override
+     * properties, its system or environment configuration, or another one.
+     */
+    @Override
+    public OptionLayer getLayer( String key ) {
+        AbstractConfiguration config = ConfigurationManager.getConfigInstance();
+
+        if ( ! ( config instanceof ConcurrentCompositeConfiguration ) ) {
+            return config.containsKey( key ) ? OptionLayer.CONFIGURATION : null;
+        }
+
+        ConcurrentCompositeConfiguration ccc = ( ConcurrentCompositeConfiguration ) config;
+        Configuration source = ccc.getSource( key );
+
+        if ( source == null ) {
+            return null;
+        }
+
+        int index = ccc.getConfigurations().indexOf( source );
+
+        if ( index < 0 ) {
+            // only the override properties are not among the configurations
+            return OptionLayer.RUNTIME;
+        }
+
+        String name = ccc.getConfigurationNameList().get( index );
+        return ConfigurationManager.SYS_CONFIG_NAME.equals( name ) || ConfigurationManager.ENV_CONFIG_NAME.equals( name )
+                ? OptionLayer.SYSTEM : OptionLayer.CONFIGURATION;
+    }
+
+
+    @Override
+    public Iterator<String> getKeys( String prefix ) {
+        //noinspection unchecked
+        return ConfigurationManager.getConfigInstance().getKeys( prefix );
+    }
+
+
+    @Override
+    public void setOverride( String key, Object value ) {
+        ConcurrentCompositeConfiguration ccc = getCompositeConfiguration();
+
+        if ( ccc != null ) {
+            ccc.setOverrideProperty( key, value );
+        }
+    }
+
+
+    @Override
+    public void clearOverride( String key ) {
+        ConcurrentCompositeConfiguration ccc = getCompositeConfiguration();
+
+        if ( ccc != null ) {
+            ccc.clearOverrideProperty( key );
+        }
+    }
+
+
+    private static ConcurrentCompositeConfiguration getCompositeConfiguration() {
+        if ( ConfigurationManager.getConfigInstance() instanceof ConcurrentCompositeConfiguration ) {
+            return ( ConcurrentCompositeConfiguration ) ConfigurationManager.getConfigInstance();
+        }
+
+        LOG.warn( "Overrides need a ConcurrentCompositeConfiguration but {} is installed.",
+                ConfigurationManager.getConfigInstance().getClass() );
+        return null;
+    }
+
+
+    @Override
+    public void addCallback( String key, Runnable callback ) {
+        OptionIndex.register( DynamicProperty.getInstance( key ), callback );
+    }
+
+
+    /**
+     * Gets the typed dynamic property backing an option.
+     *
+     * @param metadata the option's metadata
+     * @return the dynamic property
+     */
+    PropertyWrapper<?> getProperty( OptionMetadata metadata ) {
+        DynamicPropertyFactory factory = DynamicPropertyFactory.getInstance();
+        Class<?> type = metadata.getMethod().getReturnType();
+        String key = metadata.getKey();
+        Object defval = metadata.getTypedDefault();
+
+        if ( metadata.getConverter() != null ) {
+            // converted from the String value and cached by the option
+            return factory.getStringProperty( key, ( String ) defval );
+        }
+        else if ( type.equals( int.class ) || type.equals( Integer.class ) ) {
+            return factory.getIntProperty( key, ( Integer ) defval );
+        }
+        else if ( type.equals( String.class ) || type.isEnum() ) {
+            return factory.getStringProperty( key, ( String ) defval );
+        }
+        else if ( type.equals( long.class ) || type.equals( Long.class ) ) {
+            return factory.getLongProperty( key, ( Long ) defval );
+        }
+        else if ( type.equals( float.class ) || type.equals( Float.class ) ) {
+            return factory.getFloatProperty( key, ( Float ) defval );
+        }
+        else if ( type.equals( double.class ) || type.equals( Double.class ) ) {
+            return factory.getDoubleProperty( key, ( Double ) defval );
+        }
+
+        return factory.getBooleanProperty( key, ( Boolean ) defval );
+    }
+}
@@ -1,37 +1,55 @@
 package io.subutai.guicyfig;
 
 
+import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.lang.reflect.Method;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import javax.annotation.Nullable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Function;
+import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
-import com.netflix.config.ConcurrentCompositeConfiguration;
-import com.netflix.config.ConfigurationManager;
-import com.netflix.config.DynamicPropertyFactory;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Maps;
 import com.netflix.config.PropertyWrapper;
 
 
 /**
- * Base class for injected dynamic configuration beans.
+ * Base class for injected dynamic configuration beans. It is public only so
+ * implementations generated at build time by the {@link FigProcessor} can
+ * extend it; it is not meant to be extended otherwise.
  */
-class BaseGuicyFig implements GuicyFig {
+public class BaseGuicyFig implements GuicyFig {
     private static final Logger LOG = LoggerFactory.getLogger( BaseGuicyFig.class );
     private final PropertyChangeSupport changeSupport = new PropertyChangeSupport( this );
+    /** Keeps the change callbacks alive for sources which hold them weakly */
+    private final List<Runnable> callbacks = new CopyOnWriteArrayList<Runnable>();
     private final Map<String,InternalOptionState> options = new HashMap<String, InternalOptionState>();
     private final Map<Method,InternalOptionState> methodOptionMap = new HashMap<Method, InternalOptionState>();
     private final Map<String,InternalOptionState> methodNameOptionMap = new HashMap<String, InternalOptionState>();
-    private DynamicPropertyFactory factory = DynamicPropertyFactory.getInstance();
+    private ConfigSource source = ArchaiusConfigSource.getInstance();
     private OverridesImpl overrides;
     private boolean singleton;
 
@@ -39,49 +57,321 @@ class BaseGuicyFig implements GuicyFig {
     private Class figInterface;
     private BypassImpl bypass;
 
+    /** The base of the keys of sections nested in this configuration */
+    private String keyBase;
+    private Map<Method,SectionMetadata> sectionMetadata = Collections.emptyMap();
+    private final ConcurrentMap<Method,Object> sections = new ConcurrentHashMap<Method, Object>();
+
+    /** Options set from metadata: their metadata, the index of their names and their states in slots by ordinal */
+    private FigMetadata figMetadata;
+    private List<OptionMetadata> optionMetadata;
+    private Map<String,FigMetadata.Ordinals> lookup;
+    private AtomicReferenceArray<InternalOptionState> slots;
+    private boolean lazy;
+
+    /** The unmodifiable view of all option states, built on first use */
+    private volatile List<OptionState> optionList;
+
+
+    protected BaseGuicyFig() {
+    }
+
 
     OptionState add( final String key, @Nullable final String defval, Method method ) {
-        Preconditions.checkNotNull( key, "key cannot be null" );
-        Preconditions.checkNotNull( method, "method cannot be null for option with key {}", key );
+        return add( new OptionMetadata( key, defval, method ) );
+    }
 
-        InternalOptionState option;
-        PropertyWrapper property;
 
-        if ( method.getReturnType().equals( int.class ) || method.getReturnType().equals( Integer.class ) ) {
-            property = factory.getIntProperty( key, ( defval == null ) ? 0 : Integer.parseInt( defval ) );
-        }
-        else if ( method.getReturnType().equals( String.class ) ) {
-            property = factory.getStringProperty( key, defval );
+    OptionState add( OptionMetadata metadata ) {
+        Preconditions.checkNotNull( metadata, "option metadata cannot be null" );
+        Preconditions.checkState( ! isIndexed(), "Options were already set from metadata." );
+
+        InternalOptionState option = createState( metadata );
+
+        if ( option == null ) {
+            return null;
         }
-        else if ( method.getReturnType().isEnum() ) {
-            property = factory.getStringProperty( key, defval );
+
+        registerCallback( option );
+        methodOptionMap.put( option.getMethod(), option );
+        methodNameOptionMap.put( option.getMethod().getName(), option );
+        optionList = null;
+        return options.put( option.getKey(), option );
+    }
+
+
+    private void registerCallback( InternalOptionState state ) {
+        PropertyChangeRunner callback = new PropertyChangeRunner( state );
+        callbacks.add( callback );
+        source.addCallback( state.getKey(), callback );
+        FigMetrics.count( FigMetrics.CALLBACKS, state.getKey() );
+    }
+
+
+    private InternalOptionState createState( OptionMetadata metadata ) {
+        Method method = metadata.getMethod();
+
+        if ( ! metadata.isSupported() ) {
+            LOG.error( "Configuration methods with return type {} are not supported. Property {} will be ignored.",
+                    method.getReturnType(), metadata.getKey() );
+            return null;
         }
-        else if ( method.getReturnType().equals( long.class ) || method.getReturnType().equals( Long.class ) ) {
-            property = factory.getLongProperty( key, ( defval == null ) ? 0 : Long.parseLong( defval ) );
+
+        if ( metadata.getDefaultError() != null ) {
+            throw new IllegalArgumentException( "Default value " + metadata.getDefaultValue() + " of key "
+                    + metadata.getKey() + " is " + metadata.getDefaultError() );
         }
-        else if ( method.getReturnType().equals( float.class ) || method.getReturnType().equals( Float.class ) ) {
-            property = factory.getFloatProperty( key, ( defval == null ) ? 0 : Float.parseFloat( defval ) );
+
+        if ( source instanceof ArchaiusConfigSource ) {
+            PropertyWrapper property = ( ( ArchaiusConfigSource ) source ).getProperty( metadata );
             //noinspection unchecked
+            InternalOptionState state = new InternalOptionState( metadata.getKey(), property, method,
+                    metadata.getConverter(), metadata.getDefaultValue() );
+            state.setProvenance( source, metadata.getDefaultLayer() );
+            return state;
         }
-        else if ( method.getReturnType().equals( double.class ) ) {
-            property = factory.getDoubleProperty( key, ( defval == null ) ? 0 : Double.parseDouble( defval ) );
-        }
-        else if ( method.getReturnType().equals( boolean.class ) ) {
-            property = factory.getBooleanProperty( key, ( defval != null ) && Boolean.parseBoolean( defval ) );
+
+        return new InternalOptionState( source, metadata );
+    }
+
+
+    /**
+     * Sets the options of this configuration from the metadata of its interface.
+     * Their states are kept in slots by ordinal and found through the lookup
+     * index of the metadata. They are materialized on first access if the
+     * interface is annotated with {@link LazyOptions}, and right away otherwise.
+     *
+     * @param figMetadata the metadata of the configuration interface
+     * @param prefix the prefix of the section, or null for a top level configuration
+     * @param options the options, in the order of their ordinals
+     */
+    void setOptions( FigMetadata figMetadata, String prefix, List<OptionMetadata> options ) {
+        Preconditions.checkNotNull( figMetadata, "The configuration metadata cannot be null." );
+        Preconditions.checkNotNull( options, "The options cannot be null." );
+        Preconditions.checkState( this.options.isEmpty(), "Options were already added." );
+
+        this.figMetadata = figMetadata;
+        this.optionMetadata = options;
+        this.lookup = figMetadata.getLookup( prefix );
+        this.slots = new AtomicReferenceArray<InternalOptionState>( options.size() );
+        this.lazy = figMetadata.isLazy();
+
+        for ( int ii = 0; ii < options.size(); ii++ ) {
+            if ( ! options.get( ii ).isSupported() ) {
+                LOG.error( "Configuration methods with return type {} are not supported. Property {} will be ignored.",
+                        options.get( ii ).getMethod().getReturnType(), options.get( ii ).getKey() );
+            }
+            else if ( ! lazy ) {
+                materialize( ii );
+            }
         }
-        else {
-            LOG.error( "Configuration methods with return type {} are not supported. Property {} will be ignored.",
-                    method.getReturnType(), key );
+    }
+
+
+    boolean isLazy() {
+        return lazy;
+    }
+
+
+    private boolean isIndexed() {
+        return slots != null;
+    }
+
+
+    /**
+     * Gets the state of an option set from metadata, materializing it on first
+     * access. Only the state winning the race for the slot gets its change callback.
+     */
+    private InternalOptionState materialize( int ordinal ) {
+        if ( ordinal < 0 ) {
             return null;
         }
 
-        //noinspection unchecked
-        option = new InternalOptionState( key, property, method );
-        //noinspection ConstantConditions
-        property.addCallback( new PropertyChangeRunner( option ) );
-        methodOptionMap.put( method, option );
-        methodNameOptionMap.put( method.getName(), option );
-        return options.put( option.getKey(), option );
+        InternalOptionState state = slots.get( ordinal );
+
+        if ( state == null ) {
+            if ( ! optionMetadata.get( ordinal ).isSupported() ) {
+                return null;
+            }
+
+            InternalOptionState created = createState( optionMetadata.get( ordinal ) );
+
+            if ( slots.compareAndSet( ordinal, null, created ) ) {
+                registerCallback( created );
+                state = created;
+            }
+            else {
+                state = slots.get( ordinal );
+            }
+        }
+
+        return state;
+    }
+
+
+    private InternalOptionState stateByMethod( Method method ) {
+        return isIndexed() ? materialize( figMetadata.getOrdinal( method ) ) : methodOptionMap.get( method );
+    }
+
+
+    private InternalOptionState stateByMethodName( String methodName ) {
+        if ( isIndexed() ) {
+            FigMetadata.Ordinals ordinals = lookup.get( methodName );
+            return ordinals == null ? null : materialize( ordinals.byMethodName );
+        }
+
+        return methodNameOptionMap.get( methodName );
+    }
+
+
+    private InternalOptionState stateByKey( String key ) {
+        if ( isIndexed() ) {
+            FigMetadata.Ordinals ordinals = lookup.get( key );
+            return ordinals == null ? null : materialize( ordinals.byKey );
+        }
+
+        return options.get( key );
+    }
+
+
+    private Collection<InternalOptionState> allStates() {
+        if ( ! isIndexed() ) {
+            return options.values();
+        }
+
+        List<InternalOptionState> states = new ArrayList<InternalOptionState>( optionMetadata.size() );
+        for ( int ii = 0; ii < optionMetadata.size(); ii++ ) {
+            InternalOptionState state = materialize( ii );
+
+            if ( state != null ) {
+                states.add( state );
+            }
+        }
+
+        return states;
+    }
+
+
+    /**
+     * Receives the options read by {@link #readOptions(OptionReader)}.
+     */
+    interface OptionReader {
+        /**
+         * Reads an option.
+         *
+         * @param key the key of the option
+         * @param value the effective value of the option
+         * @param layer the layer the effective value comes from
+         * @param state the state of the option, or null if it was not materialized
+         */
+        void read( String key, @Nullable Object value, OptionLayer layer, @Nullable InternalOptionState state );
+    }
+
+
+    /**
+     * Reads the effective value and layer of every option. Unlike
+     * {@link #getOptionList()}, this does not materialize the options of
+     * {@link LazyOptions} configurations which were not accessed yet: they are
+     * read from the source without creating their state and change callback.
+     *
+     * @param reader the reader of the options
+     */
+    void readOptions( OptionReader reader ) {
+        if ( ! isIndexed() ) {
+            for ( InternalOptionState state : options.values() ) {
+                reader.read( state.getKey(), state.getEffectiveValue(), state.getLayer(), state );
+            }
+
+            return;
+        }
+
+        for ( int ii = 0; ii < optionMetadata.size(); ii++ ) {
+            OptionMetadata metadata = optionMetadata.get( ii );
+            InternalOptionState state = slots.get( ii );
+
+            if ( state != null ) {
+                reader.read( state.getKey(), state.getEffectiveValue(), state.getLayer(), state );
+            }
+            else if ( metadata.isSupported() ) {
+                readUnmaterialized( metadata, reader );
+            }
+        }
+    }
+
+
+    /**
+     * Reads an option which was never accessed: it can have neither an override
+     * nor a bypass, so its value is the source's or else the default.
+     */
+    private void readUnmaterialized( OptionMetadata metadata, OptionReader reader ) {
+        String raw = source.getValue( metadata.getKey() );
+
+        if ( raw != null ) {
+            try {
+                OptionLayer layer = source.getLayer( metadata.getKey() );
+                reader.read( metadata.getKey(), metadata.parse( raw ), layer == null ? OptionLayer.NONE : layer,
+                        null );
+                return;
+            }
+            catch ( IllegalArgumentException e ) {
+                // like materialized options, fall back to the default
+            }
+        }
+
+        reader.read( metadata.getKey(), metadata.parse( metadata.getDefaultValue() ), metadata.getDefaultLayer(),
+                null );
+    }
+
+
+    /**
+     * Gets the configuration object itself: proxies hand out the object they delegate to.
+     *
+     * @return the configuration object holding the options
+     */
+    BaseGuicyFig getTarget() {
+        return this;
+    }
+
+
+    private Collection<String> optionKeys() {
+        if ( ! isIndexed() ) {
+            return options.keySet();
+        }
+
+        List<String> keys = new ArrayList<String>( optionMetadata.size() );
+        for ( OptionMetadata option : optionMetadata ) {
+            if ( option.isSupported() ) {
+                keys.add( option.getKey() );
+            }
+        }
+
+        return keys;
+    }
+
+
+    /**
+     * Notifies the listeners of a change within its {@link ChangeContext},
+     * unless the cascade it belongs to is cut.
+     */
+    private void fireChange( String key, Object oldValue, Object newValue ) {
+        FigMetrics.count( FigMetrics.CHANGES, key );
+        ChangeContext context = ChangeContext.enter( this, key );
+
+        if ( context == null ) {
+            return;
+        }
+
+        try {
+            PropertyChangeEvent event = new PropertyChangeEvent( this, key, oldValue, newValue );
+            event.setPropagationId( context );
+
+            long start = FigMetrics.start();
+            changeSupport.firePropertyChange( event );
+            FigMetrics.time( FigMetrics.LISTENERS, key, start );
+        }
+        finally {
+            context.exit();
+        }
     }
 
 
@@ -95,17 +385,159 @@ class BaseGuicyFig implements GuicyFig {
 
         @Override
         public void run() {
-            if ( ! state.getValue().equals( state.getOldValue() ) ) {
-                LOG.debug( state.getKey() + " changed from {} to {}", state.getOldValue(), state.getValue() );
-                changeSupport.firePropertyChange( state.getKey(), state.getOldValue(), state.getValue() );
-                state.update();
+            FigPropagation.begin();
+
+            try {
+                // the layer may change without the value changing
+                state.refreshLayer();
+
+                if ( ! Objects.equal( state.getValue(), state.getOldValue() ) ) {
+                    state.refreshDerived();
+                    LOG.debug( state.getKey() + " changed from {} to {}", state.getOldValue(), state.getValue() );
+                    fireChange( state.getKey(), state.getOldValue(), state.getValue() );
+                    state.update();
+                }
+            }
+            finally {
+                FigPropagation.end();
             }
         }
     }
 
 
     OptionState getOption( Method method ) {
-        return methodOptionMap.get( method );
+        return stateByMethod( method );
+    }
+
+
+    void setSections( String keyBase, Map<Method,SectionMetadata> sectionMetadata ) {
+        Preconditions.checkNotNull( keyBase, "The key base cannot be null." );
+        Preconditions.checkNotNull( sectionMetadata, "The section metadata cannot be null." );
+
+        this.keyBase = keyBase;
+        this.sectionMetadata = sectionMetadata;
+    }
+
+
+    /**
+     * Gets the nested configuration section, or Map of sections, returned by a
+     * configuration interface method. Sections are built on first access.
+     *
+     * @param method the configuration interface method
+     * @return the section or Map of sections, or null if the method returns no section
+     */
+    Object getSection( Method method ) {
+        SectionMetadata metadata = sectionMetadata.get( method );
+
+        if ( metadata == null ) {
+            return null;
+        }
+
+        Object section = sections.get( method );
+
+        if ( section == null ) {
+            String prefix = keyBase + '.' + metadata.getName();
+
+            if ( metadata.isRepeated() ) {
+                //noinspection unchecked
+                section = new SectionMap( metadata.getFigInterface(), prefix, singleton, source );
+            }
+            else {
+                section = GuicyFigModule.getConcreteObject( singleton, metadata.getFigInterface(), prefix, source );
+            }
+
+            Object existing = sections.putIfAbsent( method, section );
+            if ( existing != null ) {
+                section = existing;
+            }
+        }
+
+        return section;
+    }
+
+
+    /**
+     * Gets the value of an option for implementations generated at build time:
+     * its bypass value if bypassed, else its override if overridden, else its
+     * current value.
+     *
+     * @param methodName the name of the option's method
+     * @return the value of the option
+     * @since 4.1
+     */
+    protected final Object getOptionValue( String methodName ) {
+        InternalOptionState option = stateByMethodName( methodName );
+
+        if ( option == null ) {
+            throw new IllegalStateException( "No option for method " + methodName + " of " + figInterface );
+        }
+
+        return resolve( option );
+    }
+
+
+    /**
+     * Resolves the value returned by the getter of an option, counting the
+     * read if {@link OptionStats} are enabled and tracing it if
+     * {@link FigTracing} is on.
+     *
+     * @param option the option
+     * @return its bypass value if bypassed, else its override if overridden, else its current value
+     */
+    static Object resolve( InternalOptionState option ) {
+        Object value;
+
+        if ( option.isBypassed() ) {
+            value = option.getBypassValue();
+        }
+        else if ( option.isOverridden() ) {
+            value = option.getOverrideValue();
+        }
+        else {
+            value = option.getValue();
+        }
+
+        if ( OptionStats.isEnabled() ) {
+            option.getStats().recordRead( option.isBypassed(), option.isOverridden() );
+        }
+
+        if ( FigTracing.isActive() ) {
+            FigTracing.read( option, value );
+        }
+
+        return value;
+    }
+
+
+    /**
+     * Gets the nested configuration section, or Map of sections, returned by a
+     * method for implementations generated at build time.
+     *
+     * @param methodName the name of the section's method
+     * @return the section or Map of sections
+     * @since 4.1
+     */
+    protected final Object getSectionValue( String methodName ) {
+        for ( Method method : sectionMetadata.keySet() ) {
+            if ( method.getName().equals( methodName ) ) {
+                return getSection( method );
+            }
+        }
+
+        throw new IllegalStateException( "No section for method " + methodName + " of " + figInterface );
+    }
+
+
+    void setSource( ConfigSource source ) {
+        Preconditions.checkNotNull( source, "The configuration source cannot be null." );
+        Preconditions.checkState( options.isEmpty() && ! isIndexed(), "The source must be set before options are added." );
+
+        this.source = source;
+    }
+
+
+    ConfigSource getSource() {
+        return source;
     }
 
 
@@ -117,28 +549,36 @@ class BaseGuicyFig implements GuicyFig {
 
 
     private InternalOptionState getOptionState( String methodOrKey ) {
-        String key = methodOrKey;
+        InternalOptionState byKey;
+        InternalOptionState byMethodName;
+
+        if ( isIndexed() ) {
+            // a single probe resolves the argument both as a key and as a method name
+            FigMetadata.Ordinals ordinals = lookup.get( methodOrKey );
+            byKey = ordinals == null ? null : materialize( ordinals.byKey );
+            byMethodName = ordinals == null ? null : materialize( ordinals.byMethodName );
+        }
+        else {
+            byKey = options.get( methodOrKey );
+            byMethodName = methodNameOptionMap.get( methodOrKey );
+        }
 
         // method arg actually is correctly provided as a method name
-        if ( ! options.containsKey( methodOrKey ) && methodNameOptionMap.containsKey( methodOrKey ) ) {
-            key = getKeyByMethod( methodOrKey );
+        if ( byKey == null && byMethodName != null ) {
+            return byMethodName;
         }
         // method arg is not correctly provided as a method name but as a key
-        else if ( options.containsKey( methodOrKey ) && ! methodNameOptionMap.containsKey( methodOrKey ) ) {
-            key = methodOrKey;
-            methodOrKey = options.get( key ).getMethod().getName();
-            LOG.warn( "Providing a key {} instead of method name {}.", key, methodOrKey );
+        else if ( byKey != null && byMethodName == null ) {
+            LOG.warn( "Providing a key {} instead of method name {}.", methodOrKey, byKey.getMethod().getName() );
+            return byKey;
         }
-        else if ( options.containsKey( methodOrKey ) && methodNameOptionMap.containsKey( methodOrKey ) ) {
+        else if ( byKey != null ) {
             LOG.info( "Although odd yet not illegal, the method name is the same as the key {}", methodOrKey );
-            key = methodOrKey;
-        }
-        else if ( ! options.containsKey( methodOrKey ) && ! methodNameOptionMap.containsKey( methodOrKey ) ) {
-            throw new IllegalArgumentException( "Supplied key " + methodOrKey + " is not a valid key or method name for this "
-                    + getFigInterface().toString() );
+            return byKey;
         }
 
-        return options.get( key );
+        throw new IllegalArgumentException( "Supplied key " + methodOrKey + " is not a valid key or method name for this "
+                + getFigInterface().toString() );
     }
 
 
@@ -148,8 +588,6 @@ class BaseGuicyFig implements GuicyFig {
             overrides = new OverridesImpl( "default" );
         }
 
-        ConcurrentCompositeConfiguration ccc = ( ConcurrentCompositeConfiguration )
-                ConfigurationManager.getConfigInstance();
         InternalOptionState state = getOptionState( method );
 
         // we're clearing the old override out so the old value is the override
@@ -159,18 +597,19 @@ class BaseGuicyFig implements GuicyFig {
             state.setOverride( null );
 
             // triggers call on PropertyChangeRunner.run()
-            ccc.clearOverrideProperty( state.getKey() );
+            source.clearOverride( state.getKey() );
         }
         else {
 
             // run through parsing the value from the old state, otherwise we get type conflicts
-            Object newValue = state.convertValue( override );
+            Object newValue = state.isConverted() ? override : state.convertValue( override );
 
             Option option = overrides.addOption( method, override );
             state.setOverride( option );
+            FigMetrics.count( FigMetrics.OVERRIDES, state.getKey() );
 
             // triggers call on PropertyChangeRunner.run()
-            ccc.setOverrideProperty( state.getKey(), newValue );
+            source.setOverride( state.getKey(), newValue );
         }
     }
 
@@ -208,16 +647,18 @@ class BaseGuicyFig implements GuicyFig {
         else {
             Option option = bypass.addOption( method, bypassValue );
             state.setBypass( option );
+            FigMetrics.count( FigMetrics.BYPASSES, state.getKey() );
         }
 
         Object newEffective = state.getEffectiveValue();
+        state.refreshDerived();
 
         boolean fireEvent =
                 ( newEffective == null && oldEffective != null ) ||                  // fire if null-ing out non-null
                 ( newEffective != null && ! newEffective.equals( oldEffective ) );   // fire if non-null and different
 
         if ( fireEvent ) {
-            changeSupport.firePropertyChange( state.getKey(), oldEffective, newEffective );
+            fireChange( state.getKey(), oldEffective, newEffective );
         }
         else {
             LOG.warn( "Not firing change notifications because the bypass change induces no value change." );
@@ -225,6 +666,12 @@ class BaseGuicyFig implements GuicyFig {
     }
 
 
+    @Override
+    public <D> Derived<D> derive( String methodOrKey, Function<Object, ? extends D> function ) {
+        return getOptionState( methodOrKey ).derive( function );
+    }
+
+
     @Override
     public Bypass getBypass() {
         return bypass;
@@ -234,9 +681,10 @@ class BaseGuicyFig implements GuicyFig {
     private void applyBypass( Bypass bypass ) {
         Preconditions.checkNotNull( bypass );
         for ( Option annotation : bypass.options() ) {
-            if ( methodNameOptionMap.containsKey( annotation.method() ) ) {
-                InternalOptionState option = methodNameOptionMap.get( annotation.method() );
+            InternalOptionState option = stateByMethodName( annotation.method() );
+            if ( option != null ) {
                 option.setBypass( annotation );
+                option.refreshDerived();
                 LOG.info( option.getKey() + " OptionState key had value {} bypassed by {}",
                         option.getValue(), option.getBypass() );
             }
@@ -249,30 +697,31 @@ class BaseGuicyFig implements GuicyFig {
         // A null bypass will clear out all the bypass settings in effect
         if ( bypass == null ) {
             for ( Option annotation : this.bypass.options() ) {
-                InternalOptionState option = methodNameOptionMap.get( annotation.method() );
+                InternalOptionState option = stateByMethodName( annotation.method() );
                 option.setBypass( null );
+                option.refreshDerived();
             }
             this.bypass = null;
             return true;
         }
 
-        HashSet<Env> environs = new HashSet<Env>( bypass.environments().length );
-        Collections.addAll( environs, bypass.environments() );
-        Env ctxEnv = Env.getEnvironment();
+        Environment ctxEnv = Environment.current();
+        BitSet environs = Environment.mask( bypass.environments(), bypass.environmentNames() );
 
         // if the ALL environment is present then we just add all bypasses
-        if ( environs.contains( Env.ALL ) || ctxEnv == Env.ALL ) {
+        if ( environs.get( Environment.ALL.getId() ) || ctxEnv == Environment.ALL ) {
             applyBypass( bypass );
             return true;
         }
 
         /*
          * If we got here we need to make sure that the environment from the
-         * Archaius DeploymentContext (on the configuration) if present maps
-         * to one of the environments where the bypass is valid.
+         * Archaius DeploymentContext (on the configuration) if present, or one
+         * of the environments it inherits from, is an environment where the
+         * bypass is valid.
          */
 
-        if ( environs.contains( ctxEnv ) ) {
+        if ( ctxEnv.matches( environs ) ) {
             applyBypass( bypass );
 
             if ( bypass instanceof BypassImpl ) {
@@ -292,16 +741,11 @@ class BaseGuicyFig implements GuicyFig {
     @Override
     public boolean setOverrides( Overrides overrides ) {
         if ( overrides == null ) {
-            if ( ConfigurationManager.getConfigInstance() instanceof ConcurrentCompositeConfiguration ) {
-                ConcurrentCompositeConfiguration ccc = ( ConcurrentCompositeConfiguration )
-                        ConfigurationManager.getConfigInstance();
-
-                if( this.overrides != null ) {
-                    for ( Option option : this.overrides.options() ) {
-                        InternalOptionState state = methodNameOptionMap.get( option.method() );
-                        state.setOverride( null );
-                        ccc.clearOverrideProperty( getKeyByMethod( option.method() ) );
-                    }
+            if( this.overrides != null ) {
+                for ( Option option : this.overrides.options() ) {
+                    InternalOptionState state = stateByMethodName( option.method() );
+                    state.setOverride( null );
+                    source.clearOverride( getKeyByMethod( option.method() ) );
                 }
             }
 
@@ -309,25 +753,19 @@ class BaseGuicyFig implements GuicyFig {
             return true;
         }
 
-        Env ctxEnv = Env.getEnvironment();
-        HashSet<Env> environs = new HashSet<Env>( overrides.environments().length );
-        Collections.addAll( environs, overrides.environments() );
+        Environment ctxEnv = Environment.current();
+        BitSet environs = Environment.mask( overrides.environments(), overrides.environmentNames() );
 
-        if ( ctxEnv != Env.ALL && ! environs.contains( Env.ALL ) && ! environs.contains( ctxEnv ) ) {
+        if ( ! ctxEnv.matches( environs ) ) {
             return false;
         }
 
-        if ( ConfigurationManager.getConfigInstance() instanceof ConcurrentCompositeConfiguration ) {
-            ConcurrentCompositeConfiguration ccc = ( ConcurrentCompositeConfiguration )
-                    ConfigurationManager.getConfigInstance();
-
-            for ( Option annotation : overrides.options() ) {
-                InternalOptionState state = methodNameOptionMap.get( annotation.method() );
-                state.setOverride( annotation );
-                ccc.setOverrideProperty( state.getKey(), annotation.override() );
-                LOG.info( state.getKey() + " key OptionState had value {} overridden by {}",
-                        state.getValue(), annotation.override() );
-            }
+        for ( Option annotation : overrides.options() ) {
+            InternalOptionState state = stateByMethodName( annotation.method() );
+            state.setOverride( annotation );
+            source.setOverride( state.getKey(), annotation.override() );
+            LOG.info( state.getKey() + " key OptionState had value {} overridden by {}",
+                    state.getValue(), annotation.override() );
         }
 
         if ( overrides instanceof OverridesImpl ) {
@@ -361,18 +799,40 @@ class BaseGuicyFig implements GuicyFig {
 
     @Override
     public OptionState[] getOptions() {
-        return options.values().toArray( new OptionState[options.size()] );
+        List<OptionState> states = getOptionList();
+        return states.toArray( new OptionState[states.size()] );
+    }
+
+
+    @Override
+    public List<OptionState> getOptionList() {
+        List<OptionState> states = optionList;
+
+        if ( states == null ) {
+            Collection<InternalOptionState> all = allStates();
+            states = Collections.unmodifiableList( Arrays.asList( all.toArray( new OptionState[all.size()] ) ) );
+            optionList = states;
+        }
+
+        return states;
     }
 
 
     @Override
     public OptionState getOption( String key ) {
-        return options.get( key );
+        return stateByKey( key );
     }
 
 
     @Override
     public String getKeyByMethod( final String methodName ) {
+        if ( isIndexed() ) {
+            // no need to materialize the option for its key
+            FigMetadata.Ordinals ordinals = lookup.get( methodName );
+            return ordinals == null || ordinals.byMethodName < 0 ? null
+                    : optionMetadata.get( ordinals.byMethodName ).getKey();
+        }
+
         if ( methodNameOptionMap.containsKey( methodName ) ) {
             return methodNameOptionMap.get( methodName ).getKey();
         }
@@ -383,11 +843,8 @@ class BaseGuicyFig implements GuicyFig {
 
     @Override
     public Object getValueByMethod( final String methodName ) {
-        if ( methodNameOptionMap.containsKey( methodName ) ) {
-            return methodNameOptionMap.get( methodName ).getValue();
-        }
-
-        return null;
+        InternalOptionState state = stateByMethodName( methodName );
+        return state == null ? null : state.getValue();
     }
 
 
@@ -396,9 +853,20 @@ class BaseGuicyFig implements GuicyFig {
         Preconditions.checkNotNull( properties );
         Properties filtered = new Properties();
 
-        for ( OptionState option : options.values() ) {
-            if ( properties.containsKey( option.getKey() ) ) {
-                filtered.put( option.getKey(), properties.getProperty( option.getKey() ) );
+        // probe whichever side is smaller
+        if ( properties.size() < optionCount() ) {
+            for ( Object key : properties.keySet() ) {
+                if ( key instanceof String && isOptionKey( ( String ) key ) ) {
+                    filtered.put( key, properties.getProperty( ( String ) key ) );
+                }
+            }
+
+            return filtered;
+        }
+
+        for ( String key : optionKeys() ) {
+            if ( properties.containsKey( key ) ) {
+                filtered.put( key, properties.getProperty( key ) );
             }
         }
 
@@ -411,12 +879,110 @@ class BaseGuicyFig implements GuicyFig {
         Preconditions.checkNotNull( properties );
         Map<String,Object> filtered = new HashMap<String, Object>();
 
-        for ( OptionState option : options.values() ) {
-            if ( properties.containsKey( option.getKey() ) ) {
-                filtered.put( option.getKey(), properties.get( option.getKey() ) );
+        // probe whichever side is smaller
+        if ( properties.size() < optionCount() ) {
+            for ( Map.Entry<String,Object> entry : properties.entrySet() ) {
+                if ( isOptionKey( entry.getKey() ) ) {
+                    filtered.put( entry.getKey(), entry.getValue() );
+                }
+            }
+
+            return filtered;
+        }
+
+        for ( String key : optionKeys() ) {
+            if ( properties.containsKey( key ) ) {
+                filtered.put( key, properties.get( key ) );
             }
         }
 
         return filtered;
     }
+
+
+    @Override
+    public Map<String, Object> viewOptions( final Map<String, ?> properties, final boolean converted ) {
+        Preconditions.checkNotNull( properties );
+
+        return new AbstractMap<String, Object>() {
+            @Override
+            public boolean containsKey( Object key ) {
+                return key instanceof String && isOptionKey( ( String ) key ) && properties.containsKey( key );
+            }
+
+
+            @Override
+            public Object get( Object key ) {
+                if ( ! ( key instanceof String ) || ! isOptionKey( ( String ) key ) ) {
+                    return null;
+                }
+
+                return value( ( String ) key, properties.get( key ) );
+            }
+
+
+            @Override
+            public Set<Entry<String, Object>> entrySet() {
+                return new AbstractSet<Entry<String, Object>>() {
+                    @Override
+                    public Iterator<Entry<String, Object>> iterator() {
+                        final Iterator<String> keys = optionKeys().iterator();
+
+                        return new AbstractIterator<Entry<String, Object>>() {
+                            @Override
+                            protected Entry<String, Object> computeNext() {
+                                while ( keys.hasNext() ) {
+                                    String key = keys.next();
+
+                                    if ( properties.containsKey( key ) ) {
+                                        return Maps.immutableEntry( key, value( key, properties.get( key ) ) );
+                                    }
+                                }
+
+                                return endOfData();
+                            }
+                        };
+                    }
+
+
+                    @Override
+                    public int size() {
+                        int size = 0;
+
+                        for ( String key : optionKeys() ) {
+                            if ( properties.containsKey( key ) ) {
+                                size++;
+                            }
+                        }
+
+                        return size;
+                    }
+                };
+            }
+
+
+            private Object value( String key, Object value ) {
+                if ( ! converted || ! ( value instanceof String ) ) {
+                    return value;
+                }
+
+                return stateByKey( key ).convertValue( ( String ) value );
+            }
+        };
+    }
+
+
+    private boolean isOptionKey( String key ) {
+        if ( ! isIndexed() ) {
+            return options.containsKey( key );
+        }
+
+        FigMetadata.Ordinals ordinals = lookup.get( key );
+        return ordinals != null && ordinals.byKey >= 0 && optionMetadata.get( ordinals.byKey ).isSupported();
+    }
+
+
+    private int optionCount() {
+        return isIndexed() ? optionMetadata.size() : options.size();
+    }
 }
@@ -40,9 +40,19 @@ public @interface Bypass {
     Option[] options();
 
     /**
-     * The environments in which to apply these Overrides.
+     * The environments in which to apply this Bypass. If neither these
+     * nor {@link #environmentNames()} are provided the Bypass applies in all
+     * environments.
      *
-     * @return the environments in which to apply the Overrides
+     * @return the environments in which to apply the Bypass
      */
-    Env[] environments() default Env.ALL;
+    Env[] environments() default {};
+
+    /**
+     * The names of registered {@link Environment}s in which to apply this
+     * Bypass. Environments inheriting from a named environment match as well.
+     *
+     * @return the names of the environments in which to apply the Bypass
+     */
+    String[] environmentNames() default {};
 }
@@ -15,10 +15,12 @@ import java.util.Set;
 @SuppressWarnings( "ClassExplicitlyAnnotation" )
 class BypassImpl implements Bypass {
     private final Set<Env> environments = new HashSet<Env>();
+    private final Set<String> environmentNames = new HashSet<String>();
     private final Map<String,Option> options = new HashMap<String, Option>();
 
     BypassImpl( Bypass overrides ) {
         Collections.addAll( environments, overrides.environments() );
+        Collections.addAll( environmentNames, overrides.environmentNames() );
 
         for ( Option option : overrides.options() ) {
             options.put( option.method(), option );
@@ -62,6 +64,12 @@ class BypassImpl implements Bypass {
     }
 
 
+    @Override
+    public String[] environmentNames() {
+        return environmentNames.toArray( new String[environmentNames.size()] );
+    }
+
+
     @Override
     public Class<? extends Annotation> annotationType() {
         return Bypass.class;
@@ -0,0 +1,218 @@
+package io.subutai.guicyfig;
+
+
+import java.beans.PropertyChangeEvent;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The propagation context of a change notified to the listeners of a
+ * configuration object. A change made by a listener while it is notified,
+ * such as overriding an option of another configuration object, belongs to
+ * the cascade of the change being notified: it carries the id and origin of
+ * the change that started the cascade, one level deeper. Listeners get the
+ * context as the propagation id of their events:
+ *
+ * <pre>
+ * ChangeContext context = ( ChangeContext ) event.getPropagationId();
+ * </pre>
+ *
+ * A cascade notifying an option that is already being notified higher up in
+ * the cascade, or going deeper than {@link FigPropagation#getMaxCascadeDepth()},
+ * is cut: the change is applied but its listeners are not notified, and a
+ * warning is logged. Cascades are tracked in the thread notifying the
+ * listeners; changes a listener hands over to other threads start cascades
+ * of their own.
+ *
+ * @since 4.1
+ */
+public final class ChangeContext {
+    private static final Logger LOG = LoggerFactory.getLogger( ChangeContext.class );
+
+    private static final AtomicLong ids = new AtomicLong();
+    private static final ThreadLocal<ChangeContext> current = new ThreadLocal<ChangeContext>();
+
+    private final long id;
+    private final String origin;
+    private final String key;
+    private final int depth;
+    private final Object fig;
+    private final ChangeContext parent;
+    private final ChangeContext root;
+    private final long started;
+
+    /** Statistics of the whole cascade, only kept up to date on the root */
+    private int changes;
+    private int maxDepth;
+
+
+    private ChangeContext( Object fig, String key, ChangeContext parent ) {
+        this.fig = fig;
+        this.key = key;
+        this.parent = parent;
+
+        if ( parent == null ) {
+            this.id = ids.incrementAndGet();
+            this.origin = key;
+            this.depth = 0;
+            this.root = this;
+            this.started = System.nanoTime();
+        }
+        else {
+            this.id = parent.id;
+            this.origin = parent.origin;
+            this.depth = parent.depth + 1;
+            this.root = parent.root;
+            this.started = root.started;
+        }
+    }
+
+
+    /**
+     * Gets the context of the change being notified in the calling thread.
+     *
+     * @return the context, or null if no change is being notified
+     */
+    public static ChangeContext current() {
+        return current.get();
+    }
+
+
+    /**
+     * Gets the context of an event notified to listeners of configuration objects.
+     *
+     * @param event the event
+     * @return the context, or null if the event was not fired by a configuration object
+     */
+    public static ChangeContext of( PropertyChangeEvent event ) {
+        Object context = event.getPropagationId();
+        return context instanceof ChangeContext ? ( ChangeContext ) context : null;
+    }
+
+
+    /**
+     * Enters the context of a change about to be notified.
+     *
+     * @param fig the configuration object notifying its listeners
+     * @param key the key of the changed option
+     * @return the entered context, or null if the cascade is cut and listeners must not be notified
+     */
+    static ChangeContext enter( Object fig, String key ) {
+        ChangeContext parent = current.get();
+
+        if ( parent != null ) {
+            for ( ChangeContext context = parent; context != null; context = context.parent ) {
+                if ( context.fig == fig && context.key.equals( key ) ) {
+                    LOG.warn( "Cutting cascade {} started by {}: {} changed again while notifying its listeners",
+                            new Object[] { parent.id, parent.origin, key } );
+                    FigMetrics.count( FigMetrics.CASCADES_CUT, parent.origin );
+                    return null;
+                }
+            }
+
+            if ( parent.depth + 1 > FigPropagation.getMaxCascadeDepth() ) {
+                LOG.warn( "Cutting cascade {} started by {}: changing {} exceeds the maximum depth of {}",
+                        new Object[] { parent.id, parent.origin, key, FigPropagation.getMaxCascadeDepth() } );
+                FigMetrics.count( FigMetrics.CASCADES_CUT, parent.origin );
+                return null;
+            }
+        }
+
+        ChangeContext context = new ChangeContext( fig, key, parent );
+        context.root.changes++;
+        context.root.maxDepth = Math.max( context.root.maxDepth, context.depth );
+        current.set( context );
+        return context;
+    }
+
+
+    /**
+     * Leaves the context entered last, timing the cascade when leaving its root.
+     */
+    void exit() {
+        if ( parent != null ) {
+            current.set( parent );
+            return;
+        }
+
+        current.remove();
+
+        long elapsed = System.nanoTime() - started;
+        FigMetrics.getSink().time( FigMetrics.CASCADES, origin, elapsed );
+
+        if ( LOG.isDebugEnabled() ) {
+            LOG.debug( "Cascade {} started by {} notified {} changes up to depth {} in {} us", new Object[] {
+                    id, origin, changes, maxDepth, elapsed / 1000
+            } );
+        }
+    }
+
+
+    /**
+     * Gets the id shared by all changes of a cascade.
+     *
+     * @return the id of the cascade
+     */
+    public long getId() {
+        return id;
+    }
+
+
+    /**
+     * Gets the key of the option whose change started the cascade.
+     *
+     * @return the key of the origin
+     */
+    public String getOrigin() {
+        return origin;
+    }
+
+
+    /**
+     * Gets the key of the option whose change is notified.
+     *
+     * @return the key
+     */
+    public String getKey() {
+        return key;
+    }
+
+
+    /**
+     * Gets how deep in its cascade the change is.
+     *
+     * @return 0 for the change that started the cascade, 1 for the changes made by its listeners, etc.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+
+    /**
+     * Gets the context of the change whose listeners made this change.
+     *
+     * @return the parent context, or null if this change started the cascade
+     */
+    public ChangeContext getParent() {
+        return parent;
+    }
+
+
+    /**
+     * Gets the time elapsed since the cascade started.
+     *
+     * @return the elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return System.nanoTime() - started;
+    }
+
+
+    @Override
+    public String toString() {
+        return "ChangeContext{id=" + id + ", origin=" + origin + ", key=" + key + ", depth=" + depth + "}";
+    }
+}
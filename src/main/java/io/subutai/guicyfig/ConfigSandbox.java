@@ -0,0 +1,116 @@
+package io.subutai.guicyfig;
+
+
+import java.util.Map;
+
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+
+/**
+ * A Rule giving each test its own configuration sandbox, so tests using
+ * configuration interfaces can run in parallel and in reused forks. The
+ * sandbox is a {@link MemoryConfigSource} layered copy on write over a shared,
+ * read only base: by default the process wide Archaius configuration. Values,
+ * overrides and bypasses set during a test stay in the sandbox and are thrown
+ * away after it, which costs as much as the keys the test changed.
+ *
+ * Configuration interfaces bind to the sandbox when created with
+ * {@link #getFig(Class)} or injected through the {@link #module(Class[])}:
+ *
+ * <pre>
+ * &#064;Rule
+ * public ConfigSandbox sandbox = new ConfigSandbox();
+ *
+ * &#064;Test
+ * public void testSomething() {
+ *     FooFig fig = sandbox.getFig( FooFig.class );
+ *     fig.override( "getBar", "5" );
+ *     ...
+ * }
+ * </pre>
+ *
+ * @since 4.1
+ */
+public class ConfigSandbox extends MemoryConfigSource implements TestRule {
+
+    /**
+     * Creates a sandbox over the process wide Archaius configuration.
+     */
+    public ConfigSandbox() {
+        this( ArchaiusConfigSource.getInstance() );
+    }
+
+
+    /**
+     * Creates a sandbox over a base source.
+     *
+     * @param base the shared base source, never changed by the sandbox
+     */
+    public ConfigSandbox( ConfigSource base ) {
+        super( base );
+    }
+
+
+    /**
+     * Creates a sandbox over fixed base values.
+     *
+     * @param base the base values
+     */
+    public ConfigSandbox( Map<String,String> base ) {
+        this( new MemoryConfigSource( base ) );
+    }
+
+
+    @Override
+    public Statement apply( final Statement base, Description description ) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                reset();
+
+                try {
+                    base.evaluate();
+                }
+                finally {
+                    reset();
+                }
+            }
+        };
+    }
+
+
+    /**
+     * Throws away everything set in this sandbox along with the configuration
+     * objects bound to it: those created afterwards start from the base again.
+     */
+    public void reset() {
+        // configuration objects of the last test must not hear about the reset
+        clearCallbacks();
+        clear();
+        GuicyFigModule.releaseSingletons( this );
+    }
+
+
+    /**
+     * Creates a configuration object bound to this sandbox.
+     *
+     * @param figInterface the configuration interface
+     * @return the configuration object
+     */
+    public <T extends GuicyFig> T getFig( Class<T> figInterface ) {
+        return figInterface.cast( GuicyFigModule.getConcreteObject( false, figInterface, null, this ) );
+    }
+
+
+    /**
+     * Creates a module injecting configuration objects bound to this sandbox.
+     *
+     * @param figInterfaces the configuration interfaces
+     * @return the module
+     */
+    public GuicyFigModule module( Class<? extends GuicyFig>... figInterfaces ) {
+        return new GuicyFigModule( this, figInterfaces );
+    }
+}
@@ -0,0 +1,74 @@
+package io.subutai.guicyfig;
+
+
+import java.util.Iterator;
+
+
+/**
+ * The source configuration interfaces resolve their options against. By
+ * default options resolve against the process wide Archaius configuration,
+ * see {@link ArchaiusConfigSource}. Pass another source to a
+ * {@link GuicyFigModule} to give the configuration interfaces it injects an
+ * isolated configuration, for example one per tenant or per test.
+ *
+ * @since 4.1
+ */
+public interface ConfigSource {
+    /**
+     * Gets the effective value of a key: its override if it has one, otherwise
+     * its configured value.
+     *
+     * @param key the property key
+     * @return the value, or null if the key is not configured
+     */
+    String getValue( String key );
+
+
+    /**
+     * Gets the layer the effective value of a key comes from.
+     *
+     * @param key the property key
+     * @return {@link OptionLayer#RUNTIME} for overrides, {@link OptionLayer#SYSTEM} or
+     * {@link OptionLayer#CONFIGURATION} for configured values, or null if the key is not configured
+     */
+    OptionLayer getLayer( String key );
+
+
+    /**
+     * Gets the configured keys starting with a prefix.
+     *
+     * @param prefix the prefix of the keys
+     * @return the keys
+     */
+    Iterator<String> getKeys( String prefix );
+
+
+    /**
+     * Overrides the value of a key.
+     *
+     * @param key the property key
+     * @param value the overriding value
+     */
+    void setOverride( String key, Object value );
+
+
+    /**
+     * Clears the override of a key.
+     *
+     * @param key the property key
+     */
+    void clearOverride( String key );
+
+
+    /**
+     * Adds a callback run after the effective value of a key changed. Callbacks
+     * may be run when nothing changed as well and must check for themselves.
+     * Sources may hold callbacks weakly, so that the objects registering them
+     * can be garbage collected: callers keep their callbacks reachable for as
+     * long as they should run.
+     *
+     * @param key the property key
+     * @param callback the callback
+     */
+    void addCallback( String key, Runnable callback );
+}
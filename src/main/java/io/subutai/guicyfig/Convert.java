@@ -0,0 +1,22 @@
+package io.subutai.guicyfig;
+
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+
+/**
+ * Annotation to use a specific {@link Converter} for a configuration
+ * interface method rather than the one registered for its return type.
+ * The converter must have a public no argument constructor.
+ *
+ * @since 4.1
+ */
+@Target( METHOD )
+@Retention( RUNTIME )
+public @interface Convert {
+    Class<? extends Converter<?>> value();
+}
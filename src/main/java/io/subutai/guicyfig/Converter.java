@@ -0,0 +1,24 @@
+package io.subutai.guicyfig;
+
+
+/**
+ * Converts the String representation of a configuration property into the
+ * return type of a configuration interface method. Register converters for
+ * your own types with {@link Converters#register(Class, Converter)}, or use
+ * the {@link Convert} annotation on a configuration interface method.
+ *
+ * Converters are called once per change of a property's value: the converted
+ * value is cached by its option, so converters can be as expensive as need be.
+ *
+ * @since 4.1
+ */
+public interface Converter<T> {
+    /**
+     * Converts a property value.
+     *
+     * @param value the non-null String representation of the property value
+     * @return the converted value
+     * @throws IllegalArgumentException if the value cannot be converted
+     */
+    T convert( String value );
+}
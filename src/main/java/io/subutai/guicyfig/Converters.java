@@ -0,0 +1,354 @@
+package io.subutai.guicyfig;
+
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+
+
+/**
+ * The registry of {@link Converter}s for configuration interface methods
+ * returning types other than the primitives, their wrappers, Strings and
+ * enumerations which map directly onto Archaius dynamic properties.
+ *
+ * Built in converters handle {@link Duration}, {@link DataSize}, {@link URI},
+ * {@link InetSocketAddress}, {@link Pattern} as well as {@link List}s and
+ * {@link Set}s of comma separated elements and {@link Map}s of comma separated
+ * key=value entries of any convertible types. The converters of Strings and
+ * the numeric and boolean wrappers are only used for such elements and for
+ * values read from other configuration sources.
+ *
+ * @since 4.1
+ */
+public final class Converters {
+    private static final Splitter ELEMENTS = Splitter.on( ',' ).trimResults().omitEmptyStrings();
+    private static final Splitter ENTRY = Splitter.on( '=' ).trimResults().limit( 2 );
+
+    private static final ConcurrentMap<Class<?>,Converter<?>> converters =
+            new ConcurrentHashMap<Class<?>, Converter<?>>();
+
+    static {
+        register( String.class, new Converter<String>() {
+            @Override
+            public String convert( String value ) {
+                return value;
+            }
+        } );
+        register( Integer.class, new Converter<Integer>() {
+            @Override
+            public Integer convert( String value ) {
+                return Integer.parseInt( value.trim() );
+            }
+        } );
+        register( Long.class, new Converter<Long>() {
+            @Override
+            public Long convert( String value ) {
+                return Long.parseLong( value.trim() );
+            }
+        } );
+        register( Float.class, new Converter<Float>() {
+            @Override
+            public Float convert( String value ) {
+                return Float.parseFloat( value.trim() );
+            }
+        } );
+        register( Double.class, new Converter<Double>() {
+            @Override
+            public Double convert( String value ) {
+                return Double.parseDouble( value.trim() );
+            }
+        } );
+        register( Boolean.class, new Converter<Boolean>() {
+            @Override
+            public Boolean convert( String value ) {
+                return Boolean.parseBoolean( value.trim() );
+            }
+        } );
+        register( Duration.class, new Converter<Duration>() {
+            @Override
+            public Duration convert( String value ) {
+                return parseDuration( value );
+            }
+        } );
+        register( DataSize.class, new Converter<DataSize>() {
+            @Override
+            public DataSize convert( String value ) {
+                return DataSize.parse( value );
+            }
+        } );
+        register( URI.class, new Converter<URI>() {
+            @Override
+            public URI convert( String value ) {
+                return URI.create( value.trim() );
+            }
+        } );
+        register( InetSocketAddress.class, new Converter<InetSocketAddress>() {
+            @Override
+            public InetSocketAddress convert( String value ) {
+                return parseSocketAddress( value );
+            }
+        } );
+        register( Pattern.class, new Converter<Pattern>() {
+            @Override
+            public Pattern convert( String value ) {
+                return Pattern.compile( value );
+            }
+        } );
+    }
+
+
+    private Converters() {
+    }
+
+
+    /**
+     * Registers the converter for a type, replacing any converter already
+     * registered for it. Only configuration interfaces compiled after the
+     * registration use the converter.
+     *
+     * @param type the type converted to
+     * @param converter the converter
+     */
+    public static <T> void register( Class<T> type, Converter<? extends T> converter ) {
+        Preconditions.checkNotNull( type, "type cannot be null" );
+        Preconditions.checkNotNull( converter, "converter cannot be null" );
+        converters.put( type, converter );
+    }
+
+
+    /**
+     * Gets the converter for a type. {@link List}, {@link Set} and {@link Map}
+     * types must be parameterized with convertible types.
+     *
+     * @param type the possibly generic type to convert to
+     * @return the converter, or null if the type cannot be converted
+     */
+    public static Converter<?> forType( Type type ) {
+        if ( type instanceof Class ) {
+            final Class<?> clazz = ( Class<?> ) type;
+
+            if ( clazz.isEnum() ) {
+                return new Converter<Object>() {
+                    @Override
+                    public Object convert( String value ) {
+                        return EnumUtils.getEnumInstance( value.trim(), clazz );
+                    }
+                };
+            }
+
+            return converters.get( clazz );
+        }
+
+        if ( ! ( type instanceof ParameterizedType ) ) {
+            return null;
+        }
+
+        ParameterizedType parameterized = ( ParameterizedType ) type;
+        Type[] arguments = parameterized.getActualTypeArguments();
+
+        if ( parameterized.getRawType() == List.class ) {
+            Converter<?> element = forType( arguments[0] );
+            return element == null ? null : new ListConverter( element );
+        }
+
+        if ( parameterized.getRawType() == Set.class ) {
+            Converter<?> element = forType( arguments[0] );
+            return element == null ? null : new SetConverter( element );
+        }
+
+        if ( parameterized.getRawType() == Map.class ) {
+            Converter<?> key = forType( arguments[0] );
+            Converter<?> value = forType( arguments[1] );
+            return key == null || value == null ? null : new MapConverter( key, value );
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Gets the converter for a configuration interface method, honoring the
+     * {@link Convert} annotation.
+     *
+     * @param method the configuration interface method
+     * @return the converter, or null if the return type cannot be converted
+     */
+    static Converter<?> forMethod( Method method ) {
+        Convert convert = method.getAnnotation( Convert.class );
+
+        if ( convert != null ) {
+            try {
+                return convert.value().getDeclaredConstructor().newInstance();
+            }
+            catch ( InvocationTargetException e ) {
+                throw new IllegalArgumentException( "Cannot instantiate converter " + convert.value()
+                        + " for method " + method.getName(), e.getCause() );
+            }
+            catch ( Exception e ) {
+                throw new IllegalArgumentException( "Cannot instantiate converter " + convert.value()
+                        + " for method " + method.getName(), e );
+            }
+        }
+
+        return forType( method.getGenericReturnType() );
+    }
+
+
+    /**
+     * Parses a duration either in ISO-8601 format (PT30S) or as a number with an
+     * optional ms, s, m, h or d unit. A number without a unit is in milliseconds.
+     *
+     * @param value the duration
+     * @return the parsed duration
+     */
+    static Duration parseDuration( String value ) {
+        String trimmed = value.trim().toLowerCase( Locale.ENGLISH );
+
+        if ( trimmed.startsWith( "p" ) ) {
+            return Duration.parse( trimmed.toUpperCase( Locale.ENGLISH ) );
+        }
+
+        int unitStart = trimmed.length();
+        while ( unitStart > 0 && Character.isLetter( trimmed.charAt( unitStart - 1 ) ) ) {
+            unitStart--;
+        }
+
+        long amount;
+        try {
+            amount = Long.parseLong( trimmed.substring( 0, unitStart ).trim() );
+        }
+        catch ( NumberFormatException e ) {
+            throw new IllegalArgumentException( "Not a valid duration: " + value, e );
+        }
+
+        String unit = trimmed.substring( unitStart );
+
+        if ( unit.isEmpty() || unit.equals( "ms" ) ) {
+            return Duration.ofMillis( amount );
+        }
+        else if ( unit.equals( "s" ) ) {
+            return Duration.ofSeconds( amount );
+        }
+        else if ( unit.equals( "m" ) ) {
+            return Duration.ofMinutes( amount );
+        }
+        else if ( unit.equals( "h" ) ) {
+            return Duration.ofHours( amount );
+        }
+        else if ( unit.equals( "d" ) ) {
+            return Duration.ofDays( amount );
+        }
+
+        throw new IllegalArgumentException( "Unknown duration unit in " + value );
+    }
+
+
+    private static InetSocketAddress parseSocketAddress( String value ) {
+        String trimmed = value.trim();
+        int colon = trimmed.lastIndexOf( ':' );
+
+        if ( colon <= 0 || colon == trimmed.length() - 1 ) {
+            throw new IllegalArgumentException( "Expecting host:port but got " + value );
+        }
+
+        String host = trimmed.substring( 0, colon );
+        if ( host.startsWith( "[" ) && host.endsWith( "]" ) ) {
+            host = host.substring( 1, host.length() - 1 );
+        }
+
+        // unresolved: the converter must not block on name resolution
+        return InetSocketAddress.createUnresolved( host, Integer.parseInt( trimmed.substring( colon + 1 ) ) );
+    }
+
+
+    private static final class ListConverter implements Converter<List<Object>> {
+        private final Converter<?> element;
+
+
+        private ListConverter( Converter<?> element ) {
+            this.element = element;
+        }
+
+
+        @Override
+        public List<Object> convert( String value ) {
+            List<Object> list = new ArrayList<Object>();
+
+            for ( String item : ELEMENTS.split( value ) ) {
+                list.add( element.convert( item ) );
+            }
+
+            return Collections.unmodifiableList( list );
+        }
+    }
+
+
+    private static final class SetConverter implements Converter<Set<Object>> {
+        private final Converter<?> element;
+
+
+        private SetConverter( Converter<?> element ) {
+            this.element = element;
+        }
+
+
+        @Override
+        public Set<Object> convert( String value ) {
+            Set<Object> set = new LinkedHashSet<Object>();
+
+            for ( String item : ELEMENTS.split( value ) ) {
+                set.add( element.convert( item ) );
+            }
+
+            return Collections.unmodifiableSet( set );
+        }
+    }
+
+
+    private static final class MapConverter implements Converter<Map<Object,Object>> {
+        private final Converter<?> key;
+        private final Converter<?> value;
+
+
+        private MapConverter( Converter<?> key, Converter<?> value ) {
+            this.key = key;
+            this.value = value;
+        }
+
+
+        @Override
+        public Map<Object,Object> convert( String entries ) {
+            Map<Object,Object> map = new LinkedHashMap<Object, Object>();
+
+            for ( String entry : ELEMENTS.split( entries ) ) {
+                List<String> pair = ENTRY.splitToList( entry );
+
+                if ( pair.size() != 2 ) {
+                    throw new IllegalArgumentException( "Expecting key=value but got " + entry );
+                }
+
+                map.put( key.convert( pair.get( 0 ) ), value.convert( pair.get( 1 ) ) );
+            }
+
+            return Collections.unmodifiableMap( map );
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package io.subutai.guicyfig;
+
+
+import java.util.Locale;
+
+import com.google.common.base.Preconditions;
+
+
+/**
+ * An amount of data, as configured with values like 512, 64KB, 64MB or 2G.
+ * Units are binary: 1KB is 1024 bytes. A value without a unit is in bytes.
+ *
+ * @since 4.1
+ */
+public final class DataSize implements Comparable<DataSize> {
+    private static final long KB = 1024L;
+    private static final long MB = KB * 1024L;
+    private static final long GB = MB * 1024L;
+    private static final long TB = GB * 1024L;
+
+    private final long bytes;
+
+
+    private DataSize( long bytes ) {
+        this.bytes = bytes;
+    }
+
+
+    public static DataSize ofBytes( long bytes ) {
+        Preconditions.checkArgument( bytes >= 0, "data size cannot be negative" );
+        return new DataSize( bytes );
+    }
+
+
+    /**
+     * Parses a data size.
+     *
+     * @param value the data size with an optional B, K, KB, M, MB, G, GB, T or TB unit
+     * @return the data size
+     * @throws IllegalArgumentException if the value is not a valid data size
+     */
+    public static DataSize parse( String value ) {
+        Preconditions.checkNotNull( value, "value cannot be null" );
+        String trimmed = value.trim().toUpperCase( Locale.ENGLISH );
+
+        int unitStart = trimmed.length();
+        while ( unitStart > 0 && Character.isLetter( trimmed.charAt( unitStart - 1 ) ) ) {
+            unitStart--;
+        }
+
+        String number = trimmed.substring( 0, unitStart ).trim();
+        String unit = trimmed.substring( unitStart );
+        long multiplier;
+
+        if ( unit.isEmpty() || unit.equals( "B" ) ) {
+            multiplier = 1;
+        }
+        else if ( unit.equals( "K" ) || unit.equals( "KB" ) ) {
+            multiplier = KB;
+        }
+        else if ( unit.equals( "M" ) || unit.equals( "MB" ) ) {
+            multiplier = MB;
+        }
+        else if ( unit.equals( "G" ) || unit.equals( "GB" ) ) {
+            multiplier = GB;
+        }
+        else if ( unit.equals( "T" ) || unit.equals( "TB" ) ) {
+            multiplier = TB;
+        }
+        else {
+            throw new IllegalArgumentException( "Unknown data size unit in " + value );
+        }
+
+        try {
+            return ofBytes( Math.multiplyExact( Long.parseLong( number ), multiplier ) );
+        }
+        catch ( NumberFormatException e ) {
+            throw new IllegalArgumentException( "Not a valid data size: " + value, e );
+        }
+        catch ( ArithmeticException e ) {
+            throw new IllegalArgumentException( "Data size too large: " + value, e );
+        }
+    }
+
+
+    public long toBytes() {
+        return bytes;
+    }
+
+
+    public long toKilobytes() {
+        return bytes / KB;
+    }
+
+
+    public long toMegabytes() {
+        return bytes / MB;
+    }
+
+
+    public long toGigabytes() {
+        return bytes / GB;
+    }
+
+
+    @Override
+    public int compareTo( DataSize other ) {
+        return Long.compare( bytes, other.bytes );
+    }
+
+
+    @Override
+    public boolean equals( Object o ) {
+        return this == o || ( o instanceof DataSize && ( ( DataSize ) o ).bytes == bytes );
+    }
+
+
+    @Override
+    public int hashCode() {
+        return ( int ) ( bytes ^ ( bytes >>> 32 ) );
+    }
+
+
+    @Override
+    public String toString() {
+        if ( bytes != 0 && bytes % GB == 0 ) {
+            return ( bytes / GB ) + "GB";
+        }
+
+        if ( bytes != 0 && bytes % MB == 0 ) {
+            return ( bytes / MB ) + "MB";
+        }
+
+        if ( bytes != 0 && bytes % KB == 0 ) {
+            return ( bytes / KB ) + "KB";
+        }
+
+        return bytes + "B";
+    }
+}
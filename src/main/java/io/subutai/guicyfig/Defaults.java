@@ -0,0 +1,30 @@
+package io.subutai.guicyfig;
+
+
+/**
+ * The cascaded defaults of a configuration interface for an environment, read
+ * either from its defaults properties files or from a precompiled
+ * {@link DefaultsBundle}.
+ */
+interface Defaults {
+
+    /**
+     * Gets the default value of a key from the most specific defaults file
+     * defining it.
+     *
+     * @param key the property key
+     * @return the default value, or null if no defaults file defines the key
+     */
+    String get( String key );
+
+
+    /**
+     * Gets the layer of the defaults file defining the default value of a key.
+     *
+     * @param key the property key
+     * @return {@link OptionLayer#DEFAULTS_FILE} for the defaults file of the configuration
+     * interface, {@link OptionLayer#ENVIRONMENT_DEFAULTS} for an environment specific one,
+     * or null if no defaults file defines the key
+     */
+    OptionLayer getLayer( String key );
+}
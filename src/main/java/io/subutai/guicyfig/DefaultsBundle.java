@@ -0,0 +1,375 @@
+package io.subutai.guicyfig;
+
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteStreams;
+
+
+/**
+ * A precompiled bundle of the defaults files of configuration interfaces. The
+ * bundle is a single binary file holding a table of records sorted by
+ * resource name and key, looked up by binary search directly on the mapped
+ * bytes: the only allocation of a lookup is the String of the value found.
+ *
+ * The layout is a header of the magic number, the format version and the
+ * record count, followed by one fixed size index entry per record (offset
+ * and length of the record name, offset and length of the value) and then
+ * the UTF-8 encoded names and values. A record name is the resource name of
+ * the defaults file, a NUL character and the property key. Every compiled
+ * defaults file also has a record with an empty key marking its presence.
+ *
+ * The bundle is compiled at build time by {@link DefaultsCompiler} into
+ * {@value #RESOURCE}, or any file named by the {@value #LOCATION_PROPERTY}
+ * system property, and memory mapped when it is a file on disk.
+ *
+ * @since 4.1
+ */
+final class DefaultsBundle {
+    private static final Logger LOG = LoggerFactory.getLogger( DefaultsBundle.class );
+
+    static final String RESOURCE = "META-INF/guicyfig/defaults.bin";
+    static final String LOCATION_PROPERTY = "guicyfig.defaults.bundle";
+
+    private static final int MAGIC = 0x47464442;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int ENTRY_SIZE = 16;
+    private static final char SEPARATOR = '\0';
+
+    private static volatile DefaultsBundle instance;
+    private static volatile boolean loaded;
+
+    private final ByteBuffer buffer;
+    private final int count;
+
+
+    private DefaultsBundle( ByteBuffer buffer ) throws IOException {
+        this.buffer = buffer;
+
+        if ( buffer.limit() < HEADER_SIZE || buffer.getInt( 0 ) != MAGIC ) {
+            throw new IOException( "Not a GuicyFig defaults bundle" );
+        }
+
+        if ( buffer.getInt( 4 ) != VERSION ) {
+            throw new IOException( "Unsupported GuicyFig defaults bundle version " + buffer.getInt( 4 ) );
+        }
+
+        this.count = buffer.getInt( 8 );
+    }
+
+
+    /**
+     * Gets the defaults bundle on the class path, or at the location given by the
+     * {@value #LOCATION_PROPERTY} system property. The bundle is loaded once.
+     *
+     * @return the bundle, or null if there is none
+     */
+    static DefaultsBundle getInstance() {
+        if ( ! loaded ) {
+            synchronized ( DefaultsBundle.class ) {
+                if ( ! loaded ) {
+                    instance = locate();
+                    loaded = true;
+                }
+            }
+        }
+
+        return instance;
+    }
+
+
+    private static DefaultsBundle locate() {
+        try {
+            String location = System.getProperty( LOCATION_PROPERTY );
+            if ( location != null ) {
+                return open( new File( location ) );
+            }
+
+            URL url = DefaultsBundle.class.getClassLoader().getResource( RESOURCE );
+            if ( url == null ) {
+                return null;
+            }
+
+            if ( "file".equals( url.getProtocol() ) ) {
+                return open( new File( url.toURI() ) );
+            }
+
+            // not a file, in a jar for example: read it once into memory
+            InputStream in = url.openStream();
+            try {
+                return new DefaultsBundle( ByteBuffer.wrap( ByteStreams.toByteArray( in ) ) );
+            }
+            finally {
+                in.close();
+            }
+        }
+        catch ( IOException e ) {
+            LOG.warn( "Failed to load the defaults bundle, falling back to defaults files: {}", e.getMessage() );
+        }
+        catch ( URISyntaxException e ) {
+            LOG.warn( "Failed to locate the defaults bundle, falling back to defaults files: {}", e.getMessage() );
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Memory maps a defaults bundle file.
+     *
+     * @param file the bundle file
+     * @return the bundle
+     * @throws IOException if the file cannot be mapped or is not a bundle
+     */
+    static DefaultsBundle open( File file ) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile( file, "r" );
+
+        try {
+            FileChannel channel = raf.getChannel();
+            return new DefaultsBundle( channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() ) );
+        }
+        finally {
+            // the mapping stays valid after the file is closed
+            raf.close();
+        }
+    }
+
+
+    /**
+     * Checks if a defaults file was compiled into this bundle.
+     *
+     * @param resource the resource name of the defaults file
+     * @return true if the defaults file is in the bundle, false otherwise
+     */
+    boolean contains( String resource ) {
+        return find( resource, "" ) >= 0;
+    }
+
+
+    /**
+     * Looks up the value of a key in a defaults file of this bundle.
+     *
+     * @param resource the resource name of the defaults file
+     * @param key the property key
+     * @return the value, or null if the defaults file has no such key
+     */
+    String get( String resource, String key ) {
+        int index = find( resource, key );
+
+        if ( index < 0 ) {
+            return null;
+        }
+
+        int entry = HEADER_SIZE + index * ENTRY_SIZE;
+        return decode( buffer.getInt( entry + 8 ), buffer.getInt( entry + 12 ) );
+    }
+
+
+    /**
+     * Gets the defaults cascaded from defaults files of this bundle.
+     *
+     * @param resources the resource names of the defaults files, most general first
+     * @return the defaults looked up in the most specific defaults file first
+     */
+    Defaults defaults( final List<String> resources ) {
+        return new Defaults() {
+            @Override
+            public String get( String key ) {
+                for ( int ii = resources.size() - 1; ii >= 0; ii-- ) {
+                    String value = DefaultsBundle.this.get( resources.get( ii ), key );
+
+                    if ( value != null ) {
+                        return value;
+                    }
+                }
+
+                return null;
+            }
+
+
+            @Override
+            public OptionLayer getLayer( String key ) {
+                for ( int ii = resources.size() - 1; ii >= 0; ii-- ) {
+                    if ( DefaultsBundle.this.get( resources.get( ii ), key ) != null ) {
+                        return ii == 0 ? OptionLayer.DEFAULTS_FILE : OptionLayer.ENVIRONMENT_DEFAULTS;
+                    }
+                }
+
+                return null;
+            }
+        };
+    }
+
+
+    private int find( String resource, String key ) {
+        int low = 0;
+        int high = count - 1;
+
+        while ( low <= high ) {
+            int middle = ( low + high ) >>> 1;
+            int entry = HEADER_SIZE + middle * ENTRY_SIZE;
+            int comparison = compare( buffer.getInt( entry ), buffer.getInt( entry + 4 ), resource, key );
+
+            if ( comparison < 0 ) {
+                low = middle + 1;
+            }
+            else if ( comparison > 0 ) {
+                high = middle - 1;
+            }
+            else {
+                return middle;
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Compares the UTF-8 bytes of a record name with a resource name and key
+     * without encoding them. Characters outside of ASCII are compared by their
+     * UTF-8 bytes as well, which keeps the order of {@link #write}.
+     */
+    private int compare( int offset, int length, String resource, String key ) {
+        int position = offset;
+        int end = offset + length;
+        int total = resource.length() + 1 + key.length();
+
+        for ( int ii = 0; ii < total; ii++ ) {
+            char c = charAt( resource, key, ii );
+
+            if ( c < 0x80 ) {
+                if ( position == end ) {
+                    return -1;
+                }
+
+                int diff = ( buffer.get( position++ ) & 0xff ) - c;
+                if ( diff != 0 ) {
+                    return diff;
+                }
+
+                continue;
+            }
+
+            // rare: encode the code point to compare its bytes
+            String codePoint = String.valueOf( c );
+            if ( Character.isHighSurrogate( c ) && ii + 1 < total ) {
+                codePoint = new String( new char[] { c, charAt( resource, key, ++ii ) } );
+            }
+
+            for ( byte b : codePoint.getBytes( StandardCharsets.UTF_8 ) ) {
+                if ( position == end ) {
+                    return -1;
+                }
+
+                int diff = ( buffer.get( position++ ) & 0xff ) - ( b & 0xff );
+                if ( diff != 0 ) {
+                    return diff;
+                }
+            }
+        }
+
+        return position == end ? 0 : 1;
+    }
+
+
+    private static char charAt( String resource, String key, int index ) {
+        if ( index < resource.length() ) {
+            return resource.charAt( index );
+        }
+
+        return index == resource.length() ? SEPARATOR : key.charAt( index - resource.length() - 1 );
+    }
+
+
+    private String decode( int offset, int length ) {
+        byte[] bytes = new byte[length];
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position( offset );
+        duplicate.get( bytes );
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+
+
+    /**
+     * Writes a defaults bundle.
+     *
+     * @param defaultsFiles the properties of each defaults file by resource name
+     * @param out the stream to write the bundle to
+     * @throws IOException if writing fails
+     */
+    static void write( Map<String,? extends Map<?,?>> defaultsFiles, OutputStream out ) throws IOException {
+        Preconditions.checkNotNull( defaultsFiles, "defaults files cannot be null" );
+
+        // sorted by the UTF-8 bytes of the record names: the order binary searches rely on
+        SortedMap<byte[],byte[]> records = new TreeMap<byte[], byte[]>( new Comparator<byte[]>() {
+            @Override
+            public int compare( byte[] a, byte[] b ) {
+                for ( int ii = 0; ii < Math.min( a.length, b.length ); ii++ ) {
+                    int diff = ( a[ii] & 0xff ) - ( b[ii] & 0xff );
+                    if ( diff != 0 ) {
+                        return diff;
+                    }
+                }
+
+                return a.length - b.length;
+            }
+        } );
+
+        for ( Map.Entry<String,? extends Map<?,?>> defaultsFile : defaultsFiles.entrySet() ) {
+            String resource = defaultsFile.getKey();
+            records.put( ( resource + SEPARATOR ).getBytes( StandardCharsets.UTF_8 ), new byte[0] );
+
+            for ( Map.Entry<?,?> property : defaultsFile.getValue().entrySet() ) {
+                byte[] name = ( resource + SEPARATOR + property.getKey() ).getBytes( StandardCharsets.UTF_8 );
+                records.put( name, String.valueOf( property.getValue() ).getBytes( StandardCharsets.UTF_8 ) );
+            }
+        }
+
+        DataOutputStream data = new DataOutputStream( out );
+        data.writeInt( MAGIC );
+        data.writeInt( VERSION );
+        data.writeInt( records.size() );
+
+        int offset = HEADER_SIZE + records.size() * ENTRY_SIZE;
+        List<byte[]> blobs = new ArrayList<byte[]>( records.size() * 2 );
+
+        for ( Map.Entry<byte[],byte[]> record : records.entrySet() ) {
+            data.writeInt( offset );
+            data.writeInt( record.getKey().length );
+            offset += record.getKey().length;
+            data.writeInt( offset );
+            data.writeInt( record.getValue().length );
+            offset += record.getValue().length;
+            blobs.add( record.getKey() );
+            blobs.add( record.getValue() );
+        }
+
+        for ( byte[] blob : blobs ) {
+            data.write( blob );
+        }
+
+        data.flush();
+    }
+}
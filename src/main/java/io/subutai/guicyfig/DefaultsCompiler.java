@@ -0,0 +1,136 @@
+package io.subutai.guicyfig;
+
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import org.reflections.Reflections;
+import org.reflections.scanners.ResourcesScanner;
+import org.reflections.scanners.SubTypesScanner;
+import org.reflections.util.ClasspathHelper;
+import org.reflections.util.ConfigurationBuilder;
+
+import com.google.common.base.Preconditions;
+
+
+/**
+ * Compiles the defaults files of configuration interfaces into a
+ * {@link DefaultsBundle} at build time, for example with the exec-maven-plugin
+ * in the process-classes phase:
+ *
+ * <pre>
+ * java io.subutai.guicyfig.DefaultsCompiler target/classes/META-INF/guicyfig/defaults.bin com.foo com.bar
+ * </pre>
+ *
+ * Every configuration interface found in the packages is compiled with its
+ * defaults file and all of its environment specific defaults files.
+ *
+ * @since 4.1
+ */
+public final class DefaultsCompiler {
+
+    private DefaultsCompiler() {
+    }
+
+
+    public static void main( String[] args ) throws IOException {
+        if ( args.length < 2 ) {
+            System.err.println( "Usage: DefaultsCompiler <bundle file> <package> [<package> ...]" );
+            System.exit( 1 );
+        }
+
+        ConfigurationBuilder configuration = new ConfigurationBuilder()
+                .setScanners( new SubTypesScanner(), new ResourcesScanner() );
+
+        for ( int ii = 1; ii < args.length; ii++ ) {
+            configuration.addUrls( ClasspathHelper.forPackage( args[ii] ) );
+        }
+
+        Set<Class<? extends GuicyFig>> figs = new Reflections( configuration ).getSubTypesOf( GuicyFig.class );
+        File bundle = new File( args[0] );
+
+        if ( bundle.getParentFile() != null && ! bundle.getParentFile().isDirectory()
+                && ! bundle.getParentFile().mkdirs() ) {
+            throw new IOException( "Cannot create directory " + bundle.getParentFile() );
+        }
+
+        OutputStream out = new BufferedOutputStream( new FileOutputStream( bundle ) );
+        try {
+            compile( figs, out );
+        }
+        finally {
+            out.close();
+        }
+    }
+
+
+    /**
+     * Compiles the defaults files of configuration interfaces into a bundle.
+     * Configuration interfaces without a defaults file are left out: they
+     * still fall back to the defaults files at runtime.
+     *
+     * @param figInterfaces the configuration interfaces
+     * @param out the stream to write the bundle to
+     * @throws IOException if a defaults file cannot be read or the bundle cannot be written
+     */
+    public static void compile( Collection<Class<? extends GuicyFig>> figInterfaces, OutputStream out )
+            throws IOException {
+        Preconditions.checkNotNull( figInterfaces, "configuration interfaces cannot be null" );
+
+        // scan the class path roots of the configuration interfaces once for defaults files
+        ConfigurationBuilder configuration = new ConfigurationBuilder().setScanners( new ResourcesScanner() );
+        for ( Class<? extends GuicyFig> figInterface : figInterfaces ) {
+            configuration.addUrls( ClasspathHelper.forClass( figInterface ) );
+        }
+
+        Reflections reflections = new Reflections( configuration );
+        Map<String,Properties> defaultsFiles = new TreeMap<String, Properties>();
+
+        for ( Class<? extends GuicyFig> figInterface : figInterfaces ) {
+            if ( ! figInterface.isInterface() || figInterface == GuicyFig.class ) {
+                continue;
+            }
+
+            String directory = figInterface.getPackage().getName().replace( '.', '/' ) + '/';
+            Pattern pattern = Pattern.compile(
+                    Pattern.quote( figInterface.getSimpleName() ) + "(-[^.]+)?\\.properties" );
+
+            for ( String resource : reflections.getResources( pattern ) ) {
+                // same named defaults files may exist in other packages
+                if ( resource.startsWith( directory ) && resource.indexOf( '/', directory.length() ) < 0 ) {
+                    defaultsFiles.put( resource, load( figInterface, resource ) );
+                }
+            }
+        }
+
+        DefaultsBundle.write( defaultsFiles, out );
+    }
+
+
+    private static Properties load( Class<? extends GuicyFig> figInterface, String resource ) throws IOException {
+        InputStream in = figInterface.getClassLoader().getResourceAsStream( resource );
+
+        if ( in == null ) {
+            throw new IOException( "Cannot read defaults file " + resource );
+        }
+
+        try {
+            Properties properties = new Properties();
+            properties.load( in );
+            return properties;
+        }
+        finally {
+            in.close();
+        }
+    }
+}
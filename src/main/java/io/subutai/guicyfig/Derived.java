@@ -0,0 +1,39 @@
+package io.subutai.guicyfig;
+
+
+/**
+ * A value derived from a configuration option by an expensive transformation,
+ * like compiling a Pattern or parsing a JSON document. The transformation is
+ * applied once when the derived value is created and again only when the
+ * option's effective value changes, so reading a derived value costs a
+ * volatile read. See {@link GuicyFig#derive(String, com.google.common.base.Function)}.
+ *
+ * Options hold their derived values weakly: a derived value nobody refers to
+ * any more is no longer refreshed and is dropped. Closing a derived value
+ * drops it right away.
+ *
+ * @since 4.1
+ */
+public interface Derived<D> extends AutoCloseable {
+    /**
+     * Gets the value derived from the option's current effective value.
+     *
+     * @return the derived value
+     */
+    D get();
+
+
+    /**
+     * Gets the key of the option this value is derived from.
+     *
+     * @return the option key
+     */
+    String getKey();
+
+
+    /**
+     * Stops refreshing this value: it keeps the value last derived.
+     */
+    @Override
+    void close();
+}
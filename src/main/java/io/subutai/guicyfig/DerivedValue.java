@@ -0,0 +1,105 @@
+package io.subutai.guicyfig;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Function;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+
+/**
+ * Memoizing {@link Derived} implementation refreshed by its option. Refreshes
+ * are serialized and always read the latest effective value of the option,
+ * so overlapping changes cannot leave a value derived from an older one.
+ */
+class DerivedValue<D> implements Derived<D> {
+    private static final Logger LOG = LoggerFactory.getLogger( DerivedValue.class );
+    private final InternalOptionState option;
+    private final Function<Object, ? extends D> function;
+    private volatile D value;
+    private volatile boolean closed;
+    /** The effective value the current value was derived from, guarded by this */
+    private Object source;
+    private boolean derived;
+
+
+    DerivedValue( InternalOptionState option, Function<Object, ? extends D> function ) {
+        Preconditions.checkNotNull( function, "function cannot be null" );
+        this.option = option;
+        this.function = function;
+    }
+
+
+    /**
+     * Derives the initial value. Unlike later refreshes, a failing
+     * transformation is thrown to the caller.
+     */
+    synchronized void initialize() {
+        if ( ! derived ) {
+            derive();
+        }
+    }
+
+
+    /**
+     * Applies the transformation to the current effective value of the option
+     * unless the value was already derived from it. A failing transformation
+     * leaves the previously derived value in place.
+     */
+    synchronized void refresh() {
+        if ( derived && Objects.equal( source, option.getEffectiveValue() ) ) {
+            return;
+        }
+
+        try {
+            derive();
+        }
+        catch ( RuntimeException e ) {
+            LOG.error( "Failed to derive a value from {} for key {}: keeping the previous value.",
+                    option.getEffectiveValue(), option.getKey() );
+            LOG.debug( "Derivation failure: ", e );
+        }
+    }
+
+
+    /**
+     * Derives the value until the effective value it was derived from is
+     * still current afterwards: a transformation may change the option itself.
+     */
+    private void derive() {
+        Object effective;
+
+        do {
+            effective = option.getEffectiveValue();
+            value = function.apply( effective );
+            source = effective;
+            derived = true;
+        }
+        while ( ! Objects.equal( effective, option.getEffectiveValue() ) );
+    }
+
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+
+    boolean isClosed() {
+        return closed;
+    }
+
+
+    @Override
+    public D get() {
+        return value;
+    }
+
+
+    @Override
+    public String getKey() {
+        return option.getKey();
+    }
+}
@@ -6,7 +6,8 @@ import com.netflix.config.DeploymentContext;
 
 
 /**
- * The environment enumeration type.
+ * The environment enumeration type. See {@link Environment} for environments
+ * that are not part of this enumeration.
  *
  * @since 2.0
  */
@@ -1,8 +1,11 @@
 package io.subutai.guicyfig;
 
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.junit.rules.TestRule;
 import org.junit.runner.Description;
@@ -14,13 +17,23 @@ import org.slf4j.LoggerFactory;
 /**
  * A base class for environment specific Rules that set up an external
  * resource before a test (a file, socket, server, database connection, etc.),
- * and guarantee to tear it down afterward:
+ * and guarantee to tear it down afterward. Used as a ClassRule the resource
+ * is set up once per test class, and with {@link #shared()} once for all test
+ * classes. Several resources can be set up in parallel with
+ * {@link EnvironResources}.
  *
  * @since 3.0
  */
 public abstract class EnvironResource implements TestRule {
     private static final Logger LOG = LoggerFactory.getLogger( EnvironResource.class );
+
+    private enum SharedState { STOPPED, STARTED, FAILED }
+
     private final Set<Env> environs;
+    /** Whether this resource is active, decided once per test class it is applied to */
+    private final ConcurrentMap<Class<?>,Boolean> activations = new ConcurrentHashMap<Class<?>, Boolean>();
+    private final Object sharedLock = new Object();
+    private SharedState sharedState = SharedState.STOPPED;
 
 
     /**
@@ -53,6 +66,7 @@ public abstract class EnvironResource implements TestRule {
      */
     public final boolean addEnvironment( Env env ) {
         LOG.debug( "Adding environment {} to set of environments {}", env, environs );
+        activations.clear();
         return environs.add( env );
     }
 
@@ -64,45 +78,144 @@ public abstract class EnvironResource implements TestRule {
      * @return the modified statement
      */
     public final Statement apply( Statement base, Description description ) {
-        return statement( base );
+        applying( description.getTestClass() );
+        return statement( base, isActive( description.getTestClass() ) );
     }
 
 
-    private Statement statement( final Statement base ) {
+    /**
+     * Called when this resource is applied to a test class.
+     *
+     * @param testClass the test class
+     */
+    void applying( Class<?> testClass ) {
+        // do nothing
+    }
+
+
+    private Statement statement( final Statement base, final boolean active ) {
         return new Statement() {
             @Override
             public void evaluate() throws Throwable {
-                Env env = Env.getEnvironment();
-
-                LOG.info( "Operating environment = {}", env );
-
-                if ( env == Env.ALL || environs.contains( Env.ALL ) || environs.contains( env ) ) {
-                    LOG.info( "Operating environment {} matched by valid environments: ", environs );
+                if ( active ) {
                     before();
                 }
-                else {
-                    LOG.info( "Skipping before() invocation: current env {} NOT in valid environment set: {}",
-                            env, environs );
-                }
 
                 try {
                     base.evaluate();
                 }
                 finally {
-                    if ( env == Env.ALL || environs.contains( Env.ALL ) || environs.contains( env ) ) {
-                        LOG.info( "Operating environment {} matched by valid environments: ", environs );
+                    if ( active ) {
                         after();
                     }
-                    else {
-                        LOG.info( "Skipping after() invocation: current env {} NOT in valid environment set: {}",
-                                env, environs );
-                    }
                 }
             }
         };
     }
 
 
+    /**
+     * Checks if this resource is active in the current environment. This
+     * resource caches the answer per test class: rules are applied to every
+     * test method, while the environment does not change within a test class.
+     *
+     * @param testClass the test class, or null to not use the cache
+     * @return true if the resource is active, false otherwise
+     */
+    final boolean isActive( Class<?> testClass ) {
+        if ( testClass == null ) {
+            return isActiveIn( environs );
+        }
+
+        Boolean active = activations.get( testClass );
+
+        if ( active == null ) {
+            active = isActiveIn( environs );
+            activations.put( testClass, active );
+        }
+
+        return active;
+    }
+
+
+    private static boolean isActiveIn( Set<Env> environs ) {
+        Set<Env> environments = EnumSet.noneOf( Env.class );
+        environments.addAll( environs );
+        Env env = Env.getEnvironment();
+        boolean active = env == Env.ALL || environments.contains( Env.ALL ) || environments.contains( env );
+
+        LOG.debug( "Resource active = {} in operating environment {} with valid environments {}",
+                new Object[] { active, env, environments } );
+        return active;
+    }
+
+
+    /**
+     * Gets a rule sharing this resource by all test classes using it, for
+     * resources too expensive to set up for every test or test class, like
+     * local stand-ins of external services. The resource is set up by the
+     * first test class applying the rule and torn down when the JVM shuts
+     * down. Use it as a ClassRule with a resource held in a static field:
+     *
+     * <pre>
+     * &#064;ClassRule
+     * public static TestRule database = Resources.DATABASE.shared();
+     * </pre>
+     *
+     * @return the rule sharing this resource
+     * @since 4.1
+     */
+    public final TestRule shared() {
+        return new TestRule() {
+            @Override
+            public Statement apply( final Statement base, final Description description ) {
+                return new Statement() {
+                    @Override
+                    public void evaluate() throws Throwable {
+                        startShared( description.getTestClass() );
+                        base.evaluate();
+                    }
+                };
+            }
+        };
+    }
+
+
+    private void startShared( Class<?> testClass ) throws Throwable {
+        synchronized ( sharedLock ) {
+            if ( sharedState == SharedState.STARTED ) {
+                return;
+            }
+
+            if ( sharedState == SharedState.FAILED ) {
+                throw new IllegalStateException( "Shared resource " + this + " failed to start" );
+            }
+
+            if ( ! isActive( testClass ) ) {
+                return;
+            }
+
+            applying( testClass );
+
+            try {
+                before();
+            }
+            catch ( Throwable t ) {
+                sharedState = SharedState.FAILED;
+                throw t;
+            }
+
+            sharedState = SharedState.STARTED;
+            Runtime.getRuntime().addShutdownHook( new Thread( new Runnable() {
+                @Override
+                public void run() {
+                    after();
+                }
+            }, "environ-resource-shutdown" ) );
+        }
+    }
+
+
     /**
      * Override to set up your specific external resource.
      *
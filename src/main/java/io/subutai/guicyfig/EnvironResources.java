@@ -0,0 +1,175 @@
+package io.subutai.guicyfig;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+
+/**
+ * Sets up several environment specific resources in parallel and tears them
+ * down together afterwards, so slow resources do not add up. Each resource
+ * is only set up in its own environments. If any resource fails to set up,
+ * those that did are torn down again and the first failure is thrown.
+ *
+ * <pre>
+ * &#064;ClassRule
+ * public static EnvironResources resources = new EnvironResources( new Cassandra(), new Elasticsearch() );
+ * </pre>
+ *
+ * @since 4.1
+ */
+public class EnvironResources extends EnvironResource {
+    private static final Logger LOG = LoggerFactory.getLogger( EnvironResources.class );
+
+    private final List<EnvironResource> resources;
+    private final List<EnvironResource> started = Collections.synchronizedList( new ArrayList<EnvironResource>() );
+    private Class<?> testClass;
+
+
+    public EnvironResources( EnvironResource... resources ) {
+        super( Env.ALL );
+
+        for ( EnvironResource resource : resources ) {
+            Preconditions.checkNotNull( resource, "resources cannot be null" );
+        }
+
+        this.resources = Arrays.asList( resources );
+    }
+
+
+    @Override
+    void applying( Class<?> testClass ) {
+        this.testClass = testClass;
+    }
+
+
+    @Override
+    protected void before() throws Throwable {
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>( resources.size() );
+
+        for ( final EnvironResource resource : resources ) {
+            if ( ! resource.isActive( testClass ) ) {
+                continue;
+            }
+
+            tasks.add( new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    try {
+                        resource.before();
+                    }
+                    catch ( Exception e ) {
+                        throw e;
+                    }
+                    catch ( Error e ) {
+                        throw e;
+                    }
+                    catch ( Throwable t ) {
+                        throw new ExecutionException( t );
+                    }
+
+                    started.add( resource );
+                    return null;
+                }
+            } );
+        }
+
+        Throwable failure = null;
+        for ( Future<Void> future : run( tasks ) ) {
+            try {
+                future.get();
+            }
+            catch ( ExecutionException e ) {
+                Throwable cause = e.getCause() instanceof ExecutionException ? e.getCause().getCause() : e.getCause();
+
+                if ( failure == null ) {
+                    failure = cause;
+                }
+                else {
+                    LOG.error( "Another resource failed to set up", cause );
+                }
+            }
+        }
+
+        if ( failure != null ) {
+            after();
+            throw failure;
+        }
+    }
+
+
+    @Override
+    protected void after() {
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>( started.size() );
+
+        for ( final EnvironResource resource : started ) {
+            tasks.add( new Callable<Void>() {
+                @Override
+                public Void call() {
+                    resource.after();
+                    return null;
+                }
+            } );
+        }
+
+        started.clear();
+
+        for ( Future<Void> future : run( tasks ) ) {
+            try {
+                future.get();
+            }
+            catch ( ExecutionException e ) {
+                LOG.error( "Failed to tear down a resource", e.getCause() );
+            }
+            catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+
+    private static List<Future<Void>> run( List<Callable<Void>> tasks ) {
+        if ( tasks.isEmpty() ) {
+            return Collections.emptyList();
+        }
+
+        // resources block on I/O while setting up: give each its own thread
+        ExecutorService executor = Executors.newFixedThreadPool( tasks.size(), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+
+            @Override
+            public Thread newThread( Runnable runnable ) {
+                Thread thread = new Thread( runnable, "environ-resource-" + count.incrementAndGet() );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+
+        try {
+            return executor.invokeAll( tasks );
+        }
+        catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted while setting up or tearing down resources", e );
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
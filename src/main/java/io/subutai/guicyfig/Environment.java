@@ -0,0 +1,324 @@
+package io.subutai.guicyfig;
+
+
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Preconditions;
+import com.netflix.config.ConfigurationManager;
+import com.netflix.config.DeploymentContext;
+
+
+/**
+ * A registry backed deployment environment. Unlike the fixed {@link Env}
+ * enumeration, new environments can be registered at runtime and may inherit
+ * from a parent environment: a "perf" environment registered with a parent of
+ * {@link #PROD} is matched by every {@link Overrides} or {@link Bypass} scoped
+ * to PROD as well as by those scoped to "perf" itself.
+ *
+ * Each environment precomputes the set of its ancestors (itself included) as a
+ * bit set indexed by environment id so matching against the environments of
+ * an annotation is a single bit set intersection.
+ *
+ * Environment names are case insensitive. Names from the Archaius deployment
+ * context which have not been registered are registered on first sight as
+ * provisional root environments: they are no longer silently treated as
+ * {@link #ALL}, and a later explicit registration may still give them a parent.
+ *
+ * @since 4.1
+ */
+public final class Environment {
+    private static final ConcurrentMap<String,Environment> registry =
+            new ConcurrentHashMap<String, Environment>();
+    private static final Object lock = new Object();
+    private static int nextId = 0;
+
+    public static final Environment ALL = builtIn( Env.ALL );
+    public static final Environment UNIT = builtIn( Env.UNIT );
+    public static final Environment TEST = builtIn( Env.TEST );
+    public static final Environment CHOP = builtIn( Env.CHOP );
+    public static final Environment DEV = builtIn( Env.DEV );
+    public static final Environment INTEG = builtIn( Env.INTEG );
+    public static final Environment ACCEPT = builtIn( Env.ACCEPT );
+    public static final Environment PROD = builtIn( Env.PROD );
+
+    private final String name;
+    private final int id;
+    private volatile Environment parent;
+    private volatile BitSet ancestry;
+    /** True while auto-registered from the deployment context and not yet registered explicitly */
+    private boolean provisional;
+
+
+    private Environment( String name, int id, Environment parent ) {
+        this.name = name;
+        this.id = id;
+        setParent( parent );
+    }
+
+
+    private void setParent( Environment parent ) {
+        BitSet ancestry = parent == null ? new BitSet() : ( BitSet ) parent.ancestry.clone();
+        ancestry.set( id );
+        this.parent = parent;
+        this.ancestry = ancestry;
+    }
+
+
+    private static Environment builtIn( Env env ) {
+        return register( env.name(), null );
+    }
+
+
+    /**
+     * Registers a new root environment, or returns the existing one.
+     *
+     * @param name the name of the environment
+     * @return the registered environment
+     */
+    public static Environment register( String name ) {
+        return register( name, null );
+    }
+
+
+    /**
+     * Registers a new environment inheriting from a parent environment. Registering
+     * an already registered name with the same parent returns the existing environment.
+     * An environment auto-registered from the deployment context takes the parent
+     * of its first explicit registration.
+     *
+     * @param name the name of the environment
+     * @param parent the parent environment, or null for a root environment
+     * @return the registered environment
+     * @throws IllegalStateException if the name is already registered with another parent
+     */
+    public static Environment register( String name, Environment parent ) {
+        Preconditions.checkNotNull( name, "environment name cannot be null" );
+        String normalized = normalize( name );
+
+        synchronized ( lock ) {
+            Environment existing = registry.get( normalized );
+
+            if ( parent != null ) {
+                // once inherited from, an environment keeps its place in the hierarchy
+                parent.provisional = false;
+            }
+
+            if ( existing != null && existing.provisional ) {
+                existing.provisional = false;
+                existing.setParent( parent );
+                return existing;
+            }
+
+            if ( existing != null ) {
+                if ( existing.parent != parent ) {
+                    throw new IllegalStateException( "Environment " + name + " is already registered with parent "
+                            + existing.parent );
+                }
+
+                return existing;
+            }
+
+            Environment environment = new Environment( normalized, nextId++, parent );
+            registry.put( normalized, environment );
+            return environment;
+        }
+    }
+
+
+    /**
+     * Removes a registered environment, so test fixtures can leave the registry
+     * as they found it. Environments other environments inherit from and the
+     * built in environments cannot be removed. The removed environment keeps
+     * working for its holders, and registering its name again creates a new
+     * environment.
+     *
+     * @param name the name of the environment
+     * @return true if the environment was removed, false if it was not registered
+     * @throws IllegalStateException if the environment is built in or inherited from
+     */
+    static boolean unregister( String name ) {
+        Preconditions.checkNotNull( name, "environment name cannot be null" );
+        String normalized = normalize( name );
+
+        synchronized ( lock ) {
+            Environment environment = registry.get( normalized );
+
+            if ( environment == null ) {
+                return false;
+            }
+
+            for ( Env env : Env.values() ) {
+                Preconditions.checkState( ! normalized.equals( normalize( env.name() ) ),
+                        "Environment %s is built in", name );
+            }
+
+            for ( Environment other : registry.values() ) {
+                Preconditions.checkState( other.parent != environment, "Environment %s is inherited by %s", name,
+                        other );
+            }
+
+            registry.remove( normalized );
+            return true;
+        }
+    }
+
+
+    /**
+     * Gets a registered environment by name.
+     *
+     * @param name the environment name
+     * @return the environment or null if none is registered by that name
+     */
+    public static Environment get( String name ) {
+        if ( name == null ) {
+            return null;
+        }
+
+        return registry.get( normalize( name ) );
+    }
+
+
+    /**
+     * Gets the environment for an {@link Env} enumeration value.
+     *
+     * @param env the enumeration value
+     * @return the built in environment for the value
+     */
+    public static Environment of( Env env ) {
+        Preconditions.checkNotNull( env, "env cannot be null" );
+        return registry.get( normalize( env.name() ) );
+    }
+
+
+    /**
+     * Gets the environment from the Archaius deployment context. If one is not
+     * set then {@link #ALL} is returned. Unknown environment names are registered
+     * as root environments.
+     *
+     * @return the current environment
+     */
+    public static Environment current() {
+        DeploymentContext context = ConfigurationManager.getDeploymentContext();
+        if ( context == null || context.getDeploymentEnvironment() == null ) {
+            return ALL;
+        }
+
+        String name = context.getDeploymentEnvironment();
+        Environment environment = get( name );
+
+        if ( environment == null ) {
+            synchronized ( lock ) {
+                environment = get( name );
+
+                if ( environment == null ) {
+                    environment = register( name );
+                    environment.provisional = true;
+                }
+            }
+        }
+
+        return environment;
+    }
+
+
+    /**
+     * Builds the bit set used to match environments from the environment
+     * enumerations and names of an {@link Overrides} or {@link Bypass}. Names
+     * are resolved like {@link #current()} does, so the name of the deployment
+     * environment is matched even before it is registered. Other names that are
+     * not registered cannot be matched and are left out. If neither
+     * enumerations nor names are given the mask matches all environments.
+     *
+     * @param envs the environment enumeration values
+     * @param names the environment names
+     * @return the mask to hand to {@link #matches(BitSet)}
+     */
+    public static BitSet mask( Env[] envs, String[] names ) {
+        BitSet mask = new BitSet();
+
+        if ( ( envs == null || envs.length == 0 ) && ( names == null || names.length == 0 ) ) {
+            mask.set( ALL.id );
+            return mask;
+        }
+
+        if ( envs != null ) {
+            for ( Env env : envs ) {
+                mask.set( of( env ).id );
+            }
+        }
+
+        if ( names != null && names.length > 0 ) {
+            // registers the deployment environment if seen for the first time
+            current();
+
+            for ( String name : names ) {
+                Environment environment = get( name );
+
+                if ( environment != null ) {
+                    mask.set( environment.id );
+                }
+            }
+        }
+
+        return mask;
+    }
+
+
+    /**
+     * Checks if this environment is matched by a mask: this is the case if this
+     * environment is {@link #ALL}, the mask contains ALL or the mask contains this
+     * environment or one of its ancestors.
+     *
+     * @param mask the mask built by {@link #mask(Env[], String[])}
+     * @return true if matched, false otherwise
+     */
+    public boolean matches( BitSet mask ) {
+        return this == ALL || mask.get( ALL.id ) || ancestry.intersects( mask );
+    }
+
+
+    /**
+     * Checks if this environment is, or inherits from, another environment.
+     *
+     * @param other the other environment
+     * @return true if other is this environment or one of its ancestors
+     */
+    public boolean inherits( Environment other ) {
+        return ancestry.get( other.id );
+    }
+
+
+    public String getName() {
+        return name;
+    }
+
+
+    /**
+     * Gets the registry id of this environment, which is its bit position in
+     * the masks built by {@link #mask(Env[], String[])}.
+     *
+     * @return the registry id
+     */
+    public int getId() {
+        return id;
+    }
+
+
+    public Environment getParent() {
+        return parent;
+    }
+
+
+    private static String normalize( String name ) {
+        return name.toUpperCase( Locale.ENGLISH );
+    }
+
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,419 @@
+package io.subutai.guicyfig;
+
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.BaseEncoding;
+import com.google.common.net.InetAddresses;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+
+/**
+ * Administration of the live configuration objects of the process, over JMX
+ * and a small HTTP endpoint bound to the loopback interface. Both list the
+ * options of every configuration object with their effective values, layers,
+ * overrides, bypasses and access statistics, and allow overriding and
+ * bypassing options at runtime. Nothing is exposed until asked for:
+ *
+ * <pre>
+ * FigAdmin.registerMBean();
+ * FigAdmin.startHttp( 8199 );
+ * </pre>
+ *
+ * The HTTP endpoint answers to:
+ *
+ * <ul>
+ *     <li>{@code GET /figs}: the snapshots as JSON</li>
+ *     <li>{@code POST /figs/<id>/override?method=<method or key>&value=<value>}:
+ *     overrides an option, or clears its override without a value</li>
+ *     <li>{@code POST /figs/<id>/bypass?method=<method or key>&value=<value>}:
+ *     bypasses an option, or clears its bypass without a value</li>
+ * </ul>
+ *
+ * Being bound to the loopback interface does not keep browsers on the host
+ * from reaching the endpoint, so it refuses requests carrying an
+ * {@code Origin} header or a {@code Host} header other than a loopback
+ * address, which rules out cross-site requests and DNS rebinding. Changes
+ * also need the {@value #TOKEN_HEADER} header set to the token returned by
+ * {@link #getHttpToken()}, which is generated anew each time the endpoint
+ * starts.
+ *
+ * Reads are served from snapshots cached for {@value #SNAPSHOT_TTL_MILLIS}
+ * milliseconds and taken without going through the getters, so polling the
+ * endpoints costs the configuration objects little and does not skew their
+ * statistics or tracing.
+ *
+ * @since 4.1
+ */
+public final class FigAdmin implements FigAdminMXBean {
+    private static final Logger LOG = LoggerFactory.getLogger( FigAdmin.class );
+
+    /** The name the MBean is registered under */
+    public static final String OBJECT_NAME = "io.subutai.guicyfig:type=FigAdmin";
+
+    /** How long snapshots are served before new ones are taken */
+    public static final long SNAPSHOT_TTL_MILLIS = 1000;
+
+    /** The header the token authorizing changes over HTTP is sent in */
+    public static final String TOKEN_HEADER = "X-GuicyFig-Token";
+
+    private static final FigAdmin INSTANCE = new FigAdmin();
+    private static HttpServer server;
+    private static ExecutorService executor;
+    private static volatile String token;
+
+    private volatile Snapshots snapshots;
+
+
+    private FigAdmin() {
+    }
+
+
+    public static FigAdmin getInstance() {
+        return INSTANCE;
+    }
+
+
+    /**
+     * Registers the MBean with the platform MBean server, unless already registered.
+     */
+    public static synchronized void registerMBean() {
+        MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            ObjectName name = new ObjectName( OBJECT_NAME );
+
+            if ( ! mbeanServer.isRegistered( name ) ) {
+                mbeanServer.registerMBean( INSTANCE, name );
+            }
+        }
+        catch ( JMException e ) {
+            throw new IllegalStateException( "Cannot register " + OBJECT_NAME, e );
+        }
+    }
+
+
+    /**
+     * Unregisters the MBean from the platform MBean server, if registered.
+     */
+    public static synchronized void unregisterMBean() {
+        MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            ObjectName name = new ObjectName( OBJECT_NAME );
+
+            if ( mbeanServer.isRegistered( name ) ) {
+                mbeanServer.unregisterMBean( name );
+            }
+        }
+        catch ( JMException e ) {
+            throw new IllegalStateException( "Cannot unregister " + OBJECT_NAME, e );
+        }
+    }
+
+
+    /**
+     * Starts the HTTP endpoint on the loopback interface, unless already started.
+     *
+     * @param port the port to listen on, or 0 for any free port
+     * @return the address the endpoint listens on
+     * @throws IOException if the endpoint cannot listen on the port
+     */
+    public static synchronized InetSocketAddress startHttp( int port ) throws IOException {
+        if ( server == null ) {
+            server = HttpServer.create( new InetSocketAddress( InetAddress.getLoopbackAddress(), port ), 0 );
+            byte[] bytes = new byte[16];
+            new SecureRandom().nextBytes( bytes );
+            token = BaseEncoding.base16().lowerCase().encode( bytes );
+
+            server.createContext( "/figs", new FigsHandler() );
+            executor = Executors.newSingleThreadExecutor();
+            server.setExecutor( executor );
+            server.start();
+            LOG.info( "Configuration admin endpoint listening on {}", server.getAddress() );
+        }
+
+        return server.getAddress();
+    }
+
+
+    /**
+     * Stops the HTTP endpoint, if started.
+     */
+    public static synchronized void stopHttp() {
+        if ( server != null ) {
+            server.stop( 0 );
+            server = null;
+            executor.shutdown();
+            executor = null;
+            token = null;
+        }
+    }
+
+
+    /**
+     * Gets the token changes over HTTP must send in the {@value #TOKEN_HEADER} header.
+     *
+     * @return the token, or null if the HTTP endpoint is not started
+     */
+    public static String getHttpToken() {
+        return token;
+    }
+
+
+    @Override
+    public List<FigSnapshot> getFigs() {
+        Snapshots current = snapshots;
+
+        if ( current == null || System.currentTimeMillis() - current.taken >= SNAPSHOT_TTL_MILLIS ) {
+            synchronized ( this ) {
+                current = snapshots;
+
+                // another thread may have taken the snapshots while this one waited
+                if ( current == null || System.currentTimeMillis() - current.taken >= SNAPSHOT_TTL_MILLIS ) {
+                    current = new Snapshots();
+                    snapshots = current;
+                }
+            }
+        }
+
+        return current.figs;
+    }
+
+
+    @Override
+    public void override( long id, String methodOrKey, String value ) {
+        getFig( id ).override( methodOrKey, value );
+        refresh();
+    }
+
+
+    @Override
+    public void bypass( long id, String methodOrKey, String value ) {
+        getFig( id ).bypass( methodOrKey, value );
+        refresh();
+    }
+
+
+    @Override
+    public void refresh() {
+        snapshots = null;
+    }
+
+
+    private static GuicyFig getFig( long id ) {
+        GuicyFig fig = FigRegistry.getFig( id );
+
+        if ( fig == null ) {
+            throw new IllegalArgumentException( "There is no live configuration object with id " + id );
+        }
+
+        return fig;
+    }
+
+
+    private static final class Snapshots {
+        private final long taken = System.currentTimeMillis();
+        private final List<FigSnapshot> figs;
+
+
+        private Snapshots() {
+            List<FigSnapshot> figs = new ArrayList<FigSnapshot>();
+
+            for ( Map.Entry<Long,GuicyFig> entry : FigRegistry.getFigs().entrySet() ) {
+                figs.add( FigSnapshot.of( entry.getKey(), entry.getValue() ) );
+            }
+
+            this.figs = Collections.unmodifiableList( figs );
+        }
+    }
+
+
+    private static class FigsHandler implements HttpHandler {
+
+        @Override
+        public void handle( HttpExchange exchange ) throws IOException {
+            try {
+                String[] path = exchange.getRequestURI().getPath().split( "/" );
+
+                if ( exchange.getRequestHeaders().containsKey( "Origin" )
+                        || ! isLoopback( exchange.getRequestHeaders().getFirst( "Host" ) ) ) {
+                    send( exchange, 403, "Only local requests not coming from web pages are served" );
+                }
+                else if ( path.length == 2 && exchange.getRequestMethod().equals( "GET" ) ) {
+                    exchange.getResponseHeaders().set( "Content-Type", "application/json; charset=UTF-8" );
+                    exchange.sendResponseHeaders( 200, 0 );
+
+                    Writer writer = new BufferedWriter(
+                            new OutputStreamWriter( exchange.getResponseBody(), Charsets.UTF_8 ) );
+                    write( INSTANCE.getFigs(), writer );
+                    writer.flush();
+                }
+                else if ( path.length == 4 && exchange.getRequestMethod().equals( "POST" ) ) {
+                    Map<String,String> query = parseQuery( exchange.getRequestURI().getRawQuery() );
+                    long id = Long.parseLong( path[2] );
+
+                    if ( ! isAuthorized( exchange.getRequestHeaders().getFirst( TOKEN_HEADER ) ) ) {
+                        send( exchange, 403, "The " + TOKEN_HEADER + " header is missing or wrong" );
+                    }
+                    else if ( ! query.containsKey( "method" ) ) {
+                        send( exchange, 400, "The method parameter is missing" );
+                    }
+                    else if ( path[3].equals( "override" ) ) {
+                        INSTANCE.override( id, query.get( "method" ), query.get( "value" ) );
+                        exchange.sendResponseHeaders( 204, -1 );
+                    }
+                    else if ( path[3].equals( "bypass" ) ) {
+                        INSTANCE.bypass( id, query.get( "method" ), query.get( "value" ) );
+                        exchange.sendResponseHeaders( 204, -1 );
+                    }
+                    else {
+                        send( exchange, 404, "Unknown operation " + path[3] );
+                    }
+                }
+                else {
+                    send( exchange, 404, "Unknown resource " + exchange.getRequestURI().getPath() );
+                }
+            }
+            catch ( IllegalArgumentException e ) {
+                send( exchange, 400, e.getMessage() );
+            }
+            catch ( RuntimeException e ) {
+                LOG.error( "Failed to handle " + exchange.getRequestURI(), e );
+                send( exchange, 500, String.valueOf( e.getMessage() ) );
+            }
+            finally {
+                exchange.close();
+            }
+        }
+
+
+        /**
+         * Checks the Host header names a loopback address, which a page served
+         * from a rebound DNS name cannot send.
+         */
+        private static boolean isLoopback( String host ) {
+            if ( host == null ) {
+                return false;
+            }
+
+            // strip the port, keeping IPv6 literals in brackets whole
+            int colon = host.lastIndexOf( ':' );
+            if ( colon > host.lastIndexOf( ']' ) ) {
+                host = host.substring( 0, colon );
+            }
+
+            if ( host.startsWith( "[" ) && host.endsWith( "]" ) ) {
+                host = host.substring( 1, host.length() - 1 );
+            }
+
+            if ( host.equalsIgnoreCase( "localhost" ) ) {
+                return true;
+            }
+
+            return InetAddresses.isInetAddress( host ) && InetAddresses.forString( host ).isLoopbackAddress();
+        }
+
+
+        private static boolean isAuthorized( String sent ) {
+            String expected = token;
+
+            return sent != null && expected != null
+                    && MessageDigest.isEqual( sent.getBytes( Charsets.UTF_8 ), expected.getBytes( Charsets.UTF_8 ) );
+        }
+
+
+        private static void send( HttpExchange exchange, int status, String message ) throws IOException {
+            byte[] body = message.getBytes( Charsets.UTF_8 );
+            exchange.getResponseHeaders().set( "Content-Type", "text/plain; charset=UTF-8" );
+            exchange.sendResponseHeaders( status, body.length );
+            exchange.getResponseBody().write( body );
+        }
+
+
+        private static Map<String,String> parseQuery( String query ) throws UnsupportedEncodingException {
+            Map<String,String> parameters = new HashMap<String, String>();
+
+            if ( query == null ) {
+                return parameters;
+            }
+
+            for ( String parameter : query.split( "&" ) ) {
+                int equals = parameter.indexOf( '=' );
+
+                if ( equals > 0 ) {
+                    parameters.put( URLDecoder.decode( parameter.substring( 0, equals ), "UTF-8" ),
+                            URLDecoder.decode( parameter.substring( equals + 1 ), "UTF-8" ) );
+                }
+            }
+
+            return parameters;
+        }
+
+
+        private static void write( List<FigSnapshot> figs, Writer writer ) throws IOException {
+            writer.write( '[' );
+
+            for ( int ii = 0; ii < figs.size(); ii++ ) {
+                FigSnapshot fig = figs.get( ii );
+                writer.write( ii == 0 ? "\n  {\"id\": " : ",\n  {\"id\": " );
+                writer.write( Long.toString( fig.getId() ) );
+                writer.write( ", \"fig\": " );
+                FigExport.quote( writer, fig.getFigInterface() );
+                writer.write( ", \"singleton\": " + fig.isSingleton() + ", \"options\": [" );
+
+                for ( int jj = 0; jj < fig.getOptions().size(); jj++ ) {
+                    OptionSnapshot option = fig.getOptions().get( jj );
+                    writer.write( jj == 0 ? "\n    {\"key\": " : ",\n    {\"key\": " );
+                    FigExport.quote( writer, option.getKey() );
+                    writer.write( ", \"value\": " );
+
+                    if ( option.getValue() == null ) {
+                        writer.write( "null" );
+                    }
+                    else {
+                        FigExport.quote( writer, option.getValue() );
+                    }
+
+                    writer.write( ", \"layer\": " );
+                    FigExport.quote( writer, option.getLayer() );
+                    writer.write( ", \"overridden\": " + option.isOverridden() + ", \"bypassed\": "
+                            + option.isBypassed() + ", \"reads\": " + option.getReads() + ", \"overrideHits\": "
+                            + option.getOverrideHits() + ", \"bypassHits\": " + option.getBypassHits()
+                            + ", \"lastRead\": " + option.getLastRead() + "}" );
+                }
+
+                writer.write( "]}" );
+            }
+
+            writer.write( "\n]\n" );
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package io.subutai.guicyfig;
+
+
+import java.util.List;
+
+
+/**
+ * Management interface of the live configuration objects, registered by
+ * {@link FigAdmin#registerMBean()} under {@value FigAdmin#OBJECT_NAME}.
+ *
+ * @since 4.1
+ */
+public interface FigAdminMXBean {
+    /**
+     * Gets snapshots of the live configuration objects. Snapshots are cached
+     * for {@value FigAdmin#SNAPSHOT_TTL_MILLIS} milliseconds.
+     *
+     * @return the snapshots, in the order the configuration objects were created
+     */
+    List<FigSnapshot> getFigs();
+
+
+    /**
+     * Overrides an option of a live configuration object.
+     *
+     * @param id the id of the configuration object
+     * @param methodOrKey the method name or key of the option
+     * @param value the override, or null to clear it
+     * @throws IllegalArgumentException if there is no such configuration object or option
+     */
+    void override( long id, String methodOrKey, String value );
+
+
+    /**
+     * Bypasses an option of a live configuration object.
+     *
+     * @param id the id of the configuration object
+     * @param methodOrKey the method name or key of the option
+     * @param value the bypass value, or null to clear it
+     * @throws IllegalArgumentException if there is no such configuration object or option
+     */
+    void bypass( long id, String methodOrKey, String value );
+
+
+    /**
+     * Drops the cached snapshots so the next read takes new ones.
+     */
+    void refresh();
+}
@@ -0,0 +1,404 @@
+package io.subutai.guicyfig;
+
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+
+
+/**
+ * Exports the effective configuration of configuration objects: the value of
+ * every option after bypasses and overrides, with the layer it comes from.
+ * Entries are written to the output as they are read, so exports of any size
+ * need no more memory than a single entry. Useful to snapshot the
+ * configuration into diagnostics:
+ *
+ * <pre>
+ * FigExport.write( Arrays.asList( serviceFig, clusterFig ), FigExport.Format.JSON, writer );
+ * </pre>
+ *
+ * Sections are configuration objects of their own and are exported by passing
+ * them as well. Options of {@link LazyOptions} configurations which were never
+ * accessed are read from the configuration source without being materialized.
+ *
+ * @since 4.1
+ */
+public final class FigExport {
+
+    /** The formats configurations are exported in */
+    public enum Format {
+        /** Java properties, with the configuration interface and the layers as comments */
+        PROPERTIES,
+        /** A JSON array with an object per configuration */
+        JSON,
+        /** A YAML sequence with an entry per configuration */
+        YAML
+    }
+
+
+    private FigExport() {
+    }
+
+
+    /**
+     * Exports the effective configuration of configuration objects to a Writer.
+     * The writer is neither flushed nor closed.
+     *
+     * @param figs the configuration objects
+     * @param format the format to export in
+     * @param writer the writer to export to
+     * @throws IOException if writing fails
+     */
+    public static void write( Iterable<? extends GuicyFig> figs, Format format, Writer writer ) throws IOException {
+        Preconditions.checkNotNull( figs, "figs cannot be null" );
+        Preconditions.checkNotNull( format, "format cannot be null" );
+        Preconditions.checkNotNull( writer, "writer cannot be null" );
+
+        final Serializer serializer = serializer( format, writer );
+        boolean first = true;
+
+        serializer.begin();
+
+        for ( GuicyFig fig : figs ) {
+            serializer.beginFig( fig.getFigInterface().getName(), first );
+            serializer.firstOption = true;
+
+            try {
+                ( ( BaseGuicyFig ) fig ).getTarget().readOptions( new BaseGuicyFig.OptionReader() {
+                    @Override
+                    public void read( String key, Object value, OptionLayer layer, InternalOptionState state ) {
+                        try {
+                            serializer.option( key, value, layer.name(), serializer.firstOption );
+                            serializer.firstOption = false;
+                        }
+                        catch ( IOException e ) {
+                            throw new UncheckedIOException( e );
+                        }
+                    }
+                } );
+            }
+            catch ( UncheckedIOException e ) {
+                throw e.getCause();
+            }
+
+            serializer.endFig();
+            first = false;
+        }
+
+        serializer.end();
+    }
+
+
+    /**
+     * Exports the effective configuration of configuration objects to an
+     * OutputStream encoded in UTF-8. The stream is flushed but not closed.
+     *
+     * @param figs the configuration objects
+     * @param format the format to export in
+     * @param out the stream to export to
+     * @throws IOException if writing fails
+     */
+    public static void write( Iterable<? extends GuicyFig> figs, Format format, OutputStream out ) throws IOException {
+        Preconditions.checkNotNull( out, "out cannot be null" );
+
+        Writer writer = new BufferedWriter( new OutputStreamWriter( out, Charsets.UTF_8 ) );
+        write( figs, format, writer );
+        writer.flush();
+    }
+
+
+    /**
+     * Writes a double quoted string with the escapes JSON and YAML have in common.
+     */
+    static void quote( Writer writer, String value ) throws IOException {
+        writer.write( '"' );
+
+        for ( int ii = 0; ii < value.length(); ii++ ) {
+            char c = value.charAt( ii );
+
+            switch ( c ) {
+                case '"':
+                    writer.write( "\\\"" );
+                    break;
+                case '\\':
+                    writer.write( "\\\\" );
+                    break;
+                case '\n':
+                    writer.write( "\\n" );
+                    break;
+                case '\r':
+                    writer.write( "\\r" );
+                    break;
+                case '\t':
+                    writer.write( "\\t" );
+                    break;
+                default:
+                    if ( c < 0x20 ) {
+                        writer.write( String.format( "\\u%04x", ( int ) c ) );
+                    }
+                    else {
+                        writer.write( c );
+                    }
+            }
+        }
+
+        writer.write( '"' );
+    }
+
+
+    private static Serializer serializer( Format format, Writer writer ) {
+        switch ( format ) {
+            case PROPERTIES:
+                return new PropertiesSerializer( writer );
+            case JSON:
+                return new JsonSerializer( writer );
+            default:
+                return new YamlSerializer( writer );
+        }
+    }
+
+
+    /**
+     * Writes the parts of an export as they come.
+     */
+    private abstract static class Serializer {
+        final Writer writer;
+        boolean firstOption;
+
+
+        Serializer( Writer writer ) {
+            this.writer = writer;
+        }
+
+
+        void begin() throws IOException {
+        }
+
+
+        abstract void beginFig( String figInterface, boolean first ) throws IOException;
+
+
+        abstract void option( String key, Object value, String layer, boolean first ) throws IOException;
+
+
+        void endFig() throws IOException {
+        }
+
+
+        void end() throws IOException {
+        }
+
+
+        void quoted( String value ) throws IOException {
+            quote( writer, value );
+        }
+
+
+        /**
+         * Writes a value: numbers and booleans as they are, everything else quoted.
+         */
+        void value( Object value ) throws IOException {
+            if ( value == null ) {
+                writer.write( "null" );
+            }
+            else if ( value instanceof Boolean || isFinite( value ) ) {
+                writer.write( value.toString() );
+            }
+            else if ( value instanceof Enum ) {
+                quoted( ( ( Enum ) value ).name() );
+            }
+            else {
+                quoted( value.toString() );
+            }
+        }
+
+
+        private static boolean isFinite( Object value ) {
+            if ( value instanceof Double || value instanceof Float ) {
+                double number = ( ( Number ) value ).doubleValue();
+                return ! Double.isNaN( number ) && ! Double.isInfinite( number );
+            }
+
+            return value instanceof Number;
+        }
+    }
+
+
+    private static class PropertiesSerializer extends Serializer {
+
+        PropertiesSerializer( Writer writer ) {
+            super( writer );
+        }
+
+
+        @Override
+        void beginFig( String figInterface, boolean first ) throws IOException {
+            if ( ! first ) {
+                writer.write( '\n' );
+            }
+
+            writer.write( "# " );
+            writer.write( figInterface );
+            writer.write( '\n' );
+        }
+
+
+        @Override
+        void option( String key, Object value, String layer, boolean first ) throws IOException {
+            writer.write( "# " );
+            writer.write( layer );
+            writer.write( '\n' );
+            escaped( key, true );
+
+            if ( value != null ) {
+                writer.write( '=' );
+                escaped( value instanceof Enum ? ( ( Enum ) value ).name() : value.toString(), false );
+            }
+
+            writer.write( '\n' );
+        }
+
+
+        /**
+         * Writes a key or value escaped like {@link java.util.Properties#store(Writer, String)}
+         * does, with characters outside of ASCII escaped so the output is valid in any encoding.
+         */
+        private void escaped( String value, boolean key ) throws IOException {
+            for ( int ii = 0; ii < value.length(); ii++ ) {
+                char c = value.charAt( ii );
+
+                switch ( c ) {
+                    case ' ':
+                        writer.write( ii == 0 || key ? "\\ " : " " );
+                        break;
+                    case '\\':
+                    case '=':
+                    case ':':
+                    case '#':
+                    case '!':
+                        writer.write( '\\' );
+                        writer.write( c );
+                        break;
+                    case '\n':
+                        writer.write( "\\n" );
+                        break;
+                    case '\r':
+                        writer.write( "\\r" );
+                        break;
+                    case '\t':
+                        writer.write( "\\t" );
+                        break;
+                    case '\f':
+                        writer.write( "\\f" );
+                        break;
+                    default:
+                        if ( c < 0x20 || c > 0x7e ) {
+                            writer.write( String.format( "\\u%04X", ( int ) c ) );
+                        }
+                        else {
+                            writer.write( c );
+                        }
+                }
+            }
+        }
+    }
+
+
+    private static class JsonSerializer extends Serializer {
+
+        JsonSerializer( Writer writer ) {
+            super( writer );
+        }
+
+
+        @Override
+        void begin() throws IOException {
+            writer.write( '[' );
+        }
+
+
+        @Override
+        void beginFig( String figInterface, boolean first ) throws IOException {
+            writer.write( first ? "\n  {\"fig\": " : ",\n  {\"fig\": " );
+            quoted( figInterface );
+            writer.write( ", \"options\": [" );
+        }
+
+
+        @Override
+        void option( String key, Object value, String layer, boolean first ) throws IOException {
+            writer.write( first ? "\n    {\"key\": " : ",\n    {\"key\": " );
+            quoted( key );
+            writer.write( ", \"value\": " );
+            value( value );
+            writer.write( ", \"layer\": " );
+            quoted( layer );
+            writer.write( '}' );
+        }
+
+
+        @Override
+        void endFig() throws IOException {
+            writer.write( "]}" );
+        }
+
+
+        @Override
+        void end() throws IOException {
+            writer.write( "\n]\n" );
+        }
+    }
+
+
+    private static class YamlSerializer extends Serializer {
+        private boolean empty = true;
+        private boolean noOptions;
+
+
+        YamlSerializer( Writer writer ) {
+            super( writer );
+        }
+
+
+        @Override
+        void beginFig( String figInterface, boolean first ) throws IOException {
+            empty = false;
+            noOptions = true;
+            writer.write( "- fig: " );
+            quoted( figInterface );
+            writer.write( "\n  options:" );
+        }
+
+
+        @Override
+        void option( String key, Object value, String layer, boolean first ) throws IOException {
+            noOptions = false;
+            writer.write( "\n    - key: " );
+            quoted( key );
+            writer.write( "\n      value: " );
+            value( value );
+            writer.write( "\n      layer: " );
+            writer.write( layer );
+        }
+
+
+        @Override
+        void endFig() throws IOException {
+            writer.write( noOptions ? " []\n" : "\n" );
+        }
+
+
+        @Override
+        void end() throws IOException {
+            if ( empty ) {
+                writer.write( "[]\n" );
+            }
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package io.subutai.guicyfig;
+
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Preconditions;
+
+
+/**
+ * The precompiled description of a configuration interface for an environment:
+ * keys are resolved and the defaults files are cascaded and merged into typed
+ * defaults once, so building fig instances does no parsing of its own.
+ */
+class FigMetadata {
+    private final Class<? extends GuicyFig> figInterface;
+    private final Environment environment;
+    private final String keyBase;
+    private final List<OptionMetadata> options;
+    private final Map<Method,SectionMetadata> sections;
+    private final boolean lazy;
+
+    /** Ordinals of the options by method, and by method name or key for top level options and each section */
+    private final Map<Method,Integer> methodOrdinals = new HashMap<Method, Integer>();
+    private final Map<String,Ordinals> lookup;
+    private final ConcurrentMap<String,Scope> scopes = new ConcurrentHashMap<String, Scope>();
+
+
+    private FigMetadata( Class<? extends GuicyFig> figInterface, Environment environment, String keyBase,
+                         List<OptionMetadata> options, Map<Method,SectionMetadata> sections ) {
+        this.figInterface = figInterface;
+        this.environment = environment;
+        this.keyBase = keyBase;
+        this.options = Collections.unmodifiableList( options );
+        this.sections = Collections.unmodifiableMap( sections );
+        this.lazy = figInterface.isAnnotationPresent( LazyOptions.class );
+
+        for ( int ii = 0; ii < options.size(); ii++ ) {
+            methodOrdinals.put( options.get( ii ).getMethod(), ii );
+        }
+
+        this.lookup = buildLookup( options );
+    }
+
+
+    /**
+     * The ordinals of the options a name resolves to, as a key and as a method
+     * name, so either resolves in a single probe.
+     */
+    static final class Ordinals {
+        final int byKey;
+        final int byMethodName;
+
+
+        private Ordinals( int byKey, int byMethodName ) {
+            this.byKey = byKey;
+            this.byMethodName = byMethodName;
+        }
+    }
+
+
+    /**
+     * The options of a section scoped under a prefix and their lookup index,
+     * shared by all instances of the section.
+     */
+    private static final class Scope {
+        private final List<OptionMetadata> options;
+        private final Map<String,Ordinals> lookup;
+
+
+        private Scope( List<OptionMetadata> options ) {
+            this.options = Collections.unmodifiableList( options );
+            this.lookup = buildLookup( options );
+        }
+    }
+
+
+    private static Map<String,Ordinals> buildLookup( List<OptionMetadata> options ) {
+        Map<String,Ordinals> lookup = new HashMap<String, Ordinals>( options.size() * 4 );
+
+        for ( int ii = 0; ii < options.size(); ii++ ) {
+            String methodName = options.get( ii ).getMethod().getName();
+            Ordinals ordinals = lookup.get( methodName );
+            lookup.put( methodName, new Ordinals( ordinals == null ? -1 : ordinals.byKey, ii ) );
+        }
+
+        for ( int ii = 0; ii < options.size(); ii++ ) {
+            String key = options.get( ii ).getKey();
+            Ordinals ordinals = lookup.get( key );
+            lookup.put( key, new Ordinals( ii, ordinals == null ? -1 : ordinals.byMethodName ) );
+        }
+
+        return lookup;
+    }
+
+
+    /**
+     * Builds the metadata of a configuration interface. Defaults come from the
+     * defaults files cascaded for the environment, and are overridden by the
+     * {@link Default} annotations.
+     *
+     * @param figInterface the configuration interface
+     * @param environment the environment to cascade the defaults files for
+     * @return the configuration interface's metadata
+     */
+    static FigMetadata build( Class<? extends GuicyFig> figInterface, Environment environment ) {
+        Preconditions.checkNotNull( figInterface, "The configuration interface cannot be null." );
+        Preconditions.checkNotNull( environment, "The environment cannot be null." );
+
+        return build( figInterface, environment, GuicyFigModule.loadDefaults( figInterface, environment ) );
+    }
+
+
+    /**
+     * Builds the metadata of a configuration interface from already cascaded defaults.
+     *
+     * @param figInterface the configuration interface
+     * @param environment the environment the defaults were cascaded for
+     * @param defaults the cascaded defaults
+     * @return the configuration interface's metadata
+     */
+    static FigMetadata build( Class<? extends GuicyFig> figInterface, Environment environment, Defaults defaults ) {
+        Method[] methods = figInterface.getDeclaredMethods();
+        List<OptionMetadata> options = new ArrayList<OptionMetadata>( methods.length );
+        Map<Method,SectionMetadata> sections = new HashMap<Method, SectionMetadata>();
+
+        // Prefix annotation overrides the canonical name as key base
+        String keyBase = figInterface.getCanonicalName();
+        if ( figInterface.getAnnotation( Prefix.class ) != null ) {
+            keyBase = figInterface.getAnnotation( Prefix.class ).value();
+        }
+
+        for ( Method method : methods ) {
+            SectionMetadata section = SectionMetadata.forMethod( method );
+
+            if ( section != null ) {
+                sections.put( method, section );
+                continue;
+            }
+
+            // Key annotation overrides standard key convention
+            String name = method.getName();
+            String key;
+            if ( method.getAnnotation( Key.class ) != null ) {
+                name = method.getAnnotation( Key.class ).value();
+                key = name;
+            }
+            else {
+                key = keyBase + '.' + name;
+            }
+
+            // Default annotation overrides defaults properties file
+            String defval = defaults.get( key );
+            OptionLayer layer = defval == null ? OptionLayer.NONE : defaults.getLayer( key );
+            if ( method.getAnnotation( Default.class ) != null ) {
+                defval = method.getAnnotation( Default.class ).value();
+                layer = OptionLayer.DEFAULT_ANNOTATION;
+            }
+
+            options.add( new OptionMetadata( key, name, defval, layer, method ) );
+        }
+
+        return new FigMetadata( figInterface, environment, keyBase, options, sections );
+    }
+
+
+    Class<? extends GuicyFig> getFigInterface() {
+        return figInterface;
+    }
+
+
+    Environment getEnvironment() {
+        return environment;
+    }
+
+
+    /**
+     * Gets the base of the conventional keys of a top level configuration: the
+     * {@link Prefix} of the configuration interface or its canonical name.
+     *
+     * @return the key base
+     */
+    String getKeyBase() {
+        return keyBase;
+    }
+
+
+    List<OptionMetadata> getOptions() {
+        return options;
+    }
+
+
+    /**
+     * Gets the options of a section scoped under a prefix. The options share
+     * the defaults and converters of the top level options: with the exception
+     * of the keys nothing is computed again, and the scoped options are built
+     * once per prefix.
+     *
+     * @param prefix the prefix of the section
+     * @return the options of the section
+     */
+    List<OptionMetadata> getOptions( String prefix ) {
+        return getScope( prefix ).options;
+    }
+
+
+    private Scope getScope( String prefix ) {
+        Scope scope = scopes.get( prefix );
+
+        if ( scope == null ) {
+            List<OptionMetadata> scoped = new ArrayList<OptionMetadata>( options.size() );
+
+            for ( OptionMetadata option : options ) {
+                scoped.add( option.withKey( prefix + '.' + option.getName() ) );
+            }
+
+            scope = new Scope( scoped );
+            Scope existing = scopes.putIfAbsent( prefix, scope );
+            scope = existing == null ? scope : existing;
+        }
+
+        return scope;
+    }
+
+
+    Map<Method,SectionMetadata> getSections() {
+        return sections;
+    }
+
+
+    /**
+     * Checks if the options are materialized lazily, see {@link LazyOptions}.
+     *
+     * @return true if options are materialized on first access
+     */
+    boolean isLazy() {
+        return lazy;
+    }
+
+
+    /**
+     * Gets the ordinal of the option of a method: its index in {@link #getOptions()}.
+     *
+     * @param method the configuration interface method
+     * @return the ordinal, or -1 if the method is not an option
+     */
+    int getOrdinal( Method method ) {
+        Integer ordinal = methodOrdinals.get( method );
+        return ordinal == null ? -1 : ordinal;
+    }
+
+
+    /**
+     * Gets the index resolving method names and keys to ordinals, for top level
+     * options or options of a section scoped under a prefix. The index of a
+     * section is built with its options the first time either is asked for.
+     *
+     * @param prefix the prefix of the section, or null for top level options
+     * @return the lookup index
+     */
+    Map<String,Ordinals> getLookup( String prefix ) {
+        if ( prefix == null ) {
+            return lookup;
+        }
+
+        return getScope( prefix ).lookup;
+    }
+
+
+    /**
+     * Gets the ordinal of the option of a method by the method's name.
+     *
+     * @param methodName the name of the configuration interface method
+     * @return the ordinal, or -1 if there is no option with such a method name
+     */
+    int getOrdinalByMethodName( String methodName ) {
+        Ordinals ordinals = lookup.get( methodName );
+        return ordinals == null ? -1 : ordinals.byMethodName;
+    }
+}
@@ -0,0 +1,134 @@
+package io.subutai.guicyfig;
+
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+
+
+/**
+ * Publishes the operational metrics of the configuration subsystem through an
+ * installed {@link MetricsSink}. Until one is installed, metrics go to a sink
+ * doing nothing and nothing is measured: the hooks pay a single volatile read.
+ * None of the hooks is on the path of the option getters.
+ *
+ * @since 4.1
+ */
+public final class FigMetrics {
+    /** Timer of the creation of configuration objects, tagged with the configuration interface */
+    public static final String CONSTRUCTION = "guicyfig.construction";
+    /** Timer of loading the defaults of configuration interfaces, tagged with the configuration interface */
+    public static final String DEFAULTS_LOAD = "guicyfig.defaults.load";
+    /** Counter of the change callbacks registered by options, tagged with the key */
+    public static final String CALLBACKS = "guicyfig.callbacks";
+    /** Counter of the changes propagated to options, tagged with the key */
+    public static final String CHANGES = "guicyfig.changes";
+    /** Timer of notifying the listeners of a change, tagged with the key */
+    public static final String LISTENERS = "guicyfig.listeners";
+    /** Timer of whole change cascades, tagged with the key of the change starting them */
+    public static final String CASCADES = "guicyfig.cascades";
+    /** Counter of the change cascades cut for looping or going too deep, tagged with the key of their origin */
+    public static final String CASCADES_CUT = "guicyfig.cascades.cut";
+    /** Counter of the overrides set on options, tagged with the key */
+    public static final String OVERRIDES = "guicyfig.overrides";
+    /** Counter of the bypasses set on options, tagged with the key */
+    public static final String BYPASSES = "guicyfig.bypasses";
+    /** Gauge of the configuration objects not garbage collected yet */
+    public static final String FIGS_ALIVE = "guicyfig.figs.alive";
+    /** Gauge of the keys having a callback registered with their Archaius dynamic property */
+    public static final String DISPATCHED_KEYS = "guicyfig.dispatched.keys";
+
+    private static final MetricsSink NOOP = new MetricsSink() {
+        @Override
+        public void count( String name, String tag ) {
+        }
+
+
+        @Override
+        public void time( String name, String tag, long nanos ) {
+        }
+
+
+        @Override
+        public void gauge( String name, Supplier<? extends Number> value ) {
+        }
+    };
+
+    private static volatile MetricsSink sink = NOOP;
+
+
+    private FigMetrics() {
+    }
+
+
+    /**
+     * Installs the sink metrics are published through, and registers the gauges with it.
+     *
+     * @param sink the sink
+     */
+    public static synchronized void install( MetricsSink sink ) {
+        Preconditions.checkNotNull( sink, "sink cannot be null" );
+
+        sink.gauge( FIGS_ALIVE, new Supplier<Number>() {
+            @Override
+            public Number get() {
+                return FigRegistry.size();
+            }
+        } );
+
+        sink.gauge( DISPATCHED_KEYS, new Supplier<Number>() {
+            @Override
+            public Number get() {
+                return OptionIndex.keys();
+            }
+        } );
+
+        FigMetrics.sink = sink;
+    }
+
+
+    /**
+     * Stops publishing metrics.
+     */
+    public static synchronized void uninstall() {
+        sink = NOOP;
+    }
+
+
+    /**
+     * Gets the installed sink.
+     *
+     * @return the sink, or a sink doing nothing if none is installed
+     */
+    public static MetricsSink getSink() {
+        return sink;
+    }
+
+
+    static void count( String name, String tag ) {
+        sink.count( name, tag );
+    }
+
+
+    /**
+     * Starts timing an operation.
+     *
+     * @return the start of the operation, or 0 if nothing is measured
+     */
+    static long start() {
+        return sink == NOOP ? 0 : System.nanoTime();
+    }
+
+
+    /**
+     * Records the duration of an operation started with {@link #start()}.
+     *
+     * @param name the name of the timer
+     * @param tag the key or configuration interface the operation is about
+     * @param start the start of the operation
+     */
+    static void time( String name, String tag, long start ) {
+        if ( start != 0 ) {
+            sink.time( name, tag, System.nanoTime() - start );
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package io.subutai.guicyfig;
+
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+
+/**
+ * Generates the implementations of configuration interfaces at build time, so
+ * no classes have to be generated with cglib at runtime. The implementation of
+ * com.foo.BarFig is the class com.foo.GuicyFig_BarFig, and of a nested
+ * interface com.foo.Outer.BarFig the class com.foo.GuicyFig_Outer$BarFig,
+ * which cannot clash with the implementation of a top level Outer_BarFig.
+ * The GuicyFigModule uses generated implementations whenever they are found.
+ *
+ * The processor is registered as a service, but generates nothing unless it
+ * is asked to: pass -Aguicyfig.generate=true to javac to turn it on.
+ * Configuration interfaces that cannot be generated, such as generic ones,
+ * are reported with a warning and keep using cglib.
+ *
+ * @since 4.1
+ */
+public class FigProcessor extends AbstractProcessor {
+    /** The processor option turning generation on, off by default */
+    public static final String GENERATE_OPTION = "guicyfig.generate";
+
+    static final String PREFIX = "GuicyFig_";
+
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        // configuration interfaces need no annotation: look at all types
+        return Collections.singleton( "*" );
+    }
+
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return Collections.singleton( GENERATE_OPTION );
+    }
+
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+
+    @Override
+    public boolean process( Set<? extends TypeElement> annotations, RoundEnvironment roundEnv ) {
+        if ( ! Boolean.parseBoolean( processingEnv.getOptions().get( GENERATE_OPTION ) ) ) {
+            return false;
+        }
+
+        TypeElement guicyFig = processingEnv.getElementUtils().getTypeElement( GuicyFig.class.getName() );
+        if ( guicyFig == null ) {
+            return false;
+        }
+
+        List<TypeElement> types = new ArrayList<TypeElement>();
+        collectTypes( ElementFilter.typesIn( roundEnv.getRootElements() ), types );
+
+        for ( TypeElement type : types ) {
+            if ( type.getKind() == ElementKind.INTERFACE && ! type.equals( guicyFig )
+                    && processingEnv.getTypeUtils().isAssignable( type.asType(), guicyFig.asType() ) ) {
+                generate( type, guicyFig );
+            }
+        }
+
+        // never claim annotations: other processors may need them
+        return false;
+    }
+
+
+    private static void collectTypes( Iterable<TypeElement> elements, List<TypeElement> types ) {
+        for ( TypeElement element : elements ) {
+            types.add( element );
+            collectTypes( ElementFilter.typesIn( element.getEnclosedElements() ), types );
+        }
+    }
+
+
+    /**
+     * Gets the name of the generated implementation of a configuration interface.
+     *
+     * @param figInterface the configuration interface
+     * @return the fully qualified name of its generated implementation
+     */
+    static String getImplementationName( Class<?> figInterface ) {
+        String packageName = figInterface.getPackage() == null ? "" : figInterface.getPackage().getName();
+        String simpleNames = figInterface.getName().substring( packageName.isEmpty() ? 0 : packageName.length() + 1 );
+        String implementation = PREFIX + simpleNames;
+        return packageName.isEmpty() ? implementation : packageName + "." + implementation;
+    }
+
+
+    private void generate( TypeElement type, TypeElement guicyFig ) {
+        String reason = getUnsupportedReason( type );
+
+        if ( reason != null ) {
+            processingEnv.getMessager().printMessage( Diagnostic.Kind.WARNING,
+                    "Not generating an implementation of " + type.getQualifiedName() + ": " + reason
+                            + ". It will be implemented with cglib at runtime.", type );
+            return;
+        }
+
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf( type );
+        String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+        String simpleName = PREFIX + getSimpleNames( type );
+        String className = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+
+        try {
+            Writer writer = processingEnv.getFiler().createSourceFile( className, type ).openWriter();
+            PrintWriter out = new PrintWriter( writer );
+
+            try {
+                if ( ! packageName.isEmpty() ) {
+                    out.println( "package " + packageName + ";" );
+                    out.println();
+                    out.println();
+                }
+
+                out.println( "/**" );
+                out.println( " * Implementation of {@link " + type.getQualifiedName() + "} generated by the "
+                        + FigProcessor.class.getName() + "." );
+                out.println( " */" );
+                out.println( "@SuppressWarnings( \"unchecked\" )" );
+                out.println( "public final class " + simpleName + " extends " + BaseGuicyFig.class.getName()
+                        + " implements " + type.getQualifiedName() + " {" );
+
+                for ( ExecutableElement method : getFigMethods( type, guicyFig ) ) {
+                    String returnType = method.getReturnType().toString();
+                    String name = method.getSimpleName().toString();
+
+                    out.println();
+                    out.println( "    @Override" );
+                    out.println( "    public " + returnType + " " + name + "() {" );
+
+                    if ( isSection( method.getReturnType(), guicyFig ) ) {
+                        out.println( "        return ( " + returnType + " ) getSectionValue( \"" + name + "\" );" );
+                    }
+                    else {
+                        out.println( "        return ( " + returnType + " ) getOptionValue( \"" + name + "\" );" );
+                    }
+
+                    out.println( "    }" );
+                }
+
+                out.println( "}" );
+            }
+            finally {
+                out.close();
+            }
+        }
+        catch ( IOException e ) {
+            processingEnv.getMessager().printMessage( Diagnostic.Kind.ERROR,
+                    "Cannot generate " + className + ": " + e.getMessage(), type );
+        }
+    }
+
+
+    private String getUnsupportedReason( TypeElement type ) {
+        for ( Element element = type; element instanceof TypeElement; element = element.getEnclosingElement() ) {
+            TypeElement enclosing = ( TypeElement ) element;
+
+            if ( ! enclosing.getTypeParameters().isEmpty() ) {
+                return "it is generic";
+            }
+
+            if ( enclosing.getNestingKind() != NestingKind.TOP_LEVEL
+                    && enclosing.getNestingKind() != NestingKind.MEMBER ) {
+                return "it is a local type";
+            }
+
+            if ( enclosing.getModifiers().contains( Modifier.PRIVATE ) ) {
+                return "it is private";
+            }
+        }
+
+        for ( ExecutableElement method : ElementFilter.methodsIn(
+                processingEnv.getElementUtils().getAllMembers( type ) ) ) {
+            if ( ! method.getModifiers().contains( Modifier.ABSTRACT ) ) {
+                continue;
+            }
+
+            if ( ! method.getParameters().isEmpty() && ! isGuicyFigMethod( method ) ) {
+                return "method " + method.getSimpleName() + " has parameters";
+            }
+
+            if ( ! method.getTypeParameters().isEmpty() && ! isGuicyFigMethod( method ) ) {
+                return "method " + method.getSimpleName() + " is generic";
+            }
+
+            if ( method.getReturnType().getKind() == TypeKind.VOID && ! isGuicyFigMethod( method ) ) {
+                return "method " + method.getSimpleName() + " returns nothing";
+            }
+        }
+
+        return null;
+    }
+
+
+    private boolean isGuicyFigMethod( ExecutableElement method ) {
+        TypeElement enclosing = ( TypeElement ) method.getEnclosingElement();
+        return enclosing.getQualifiedName().contentEquals( GuicyFig.class.getName() )
+                || enclosing.getQualifiedName().contentEquals( Object.class.getName() );
+    }
+
+
+    private List<ExecutableElement> getFigMethods( TypeElement type, TypeElement guicyFig ) {
+        List<ExecutableElement> methods = new ArrayList<ExecutableElement>();
+
+        for ( ExecutableElement method : ElementFilter.methodsIn(
+                processingEnv.getElementUtils().getAllMembers( type ) ) ) {
+            // GuicyFig's own methods are implemented by BaseGuicyFig
+            if ( method.getModifiers().contains( Modifier.ABSTRACT ) && ! isGuicyFigMethod( method ) ) {
+                methods.add( method );
+            }
+        }
+
+        return methods;
+    }
+
+
+    private boolean isSection( TypeMirror returnType, TypeElement guicyFig ) {
+        if ( returnType.getKind() != TypeKind.DECLARED ) {
+            return false;
+        }
+
+        DeclaredType declared = ( DeclaredType ) returnType;
+        Element element = declared.asElement();
+
+        if ( element.getKind() == ElementKind.INTERFACE
+                && processingEnv.getTypeUtils().isAssignable( returnType, guicyFig.asType() ) ) {
+            return true;
+        }
+
+        // mirrors SectionMetadata: a Map of String to a configuration interface
+        TypeElement map = processingEnv.getElementUtils().getTypeElement( Map.class.getName() );
+        List<? extends TypeMirror> arguments = declared.getTypeArguments();
+
+        return element.equals( map ) && arguments.size() == 2
+                && arguments.get( 0 ).toString().equals( String.class.getName() )
+                && arguments.get( 1 ).getKind() == TypeKind.DECLARED
+                && processingEnv.getTypeUtils().isAssignable( arguments.get( 1 ), guicyFig.asType() );
+    }
+
+
+    private static String getSimpleNames( TypeElement type ) {
+        StringBuilder sb = new StringBuilder( type.getSimpleName() );
+
+        for ( Element element = type.getEnclosingElement(); element instanceof TypeElement;
+              element = element.getEnclosingElement() ) {
+            sb.insert( 0, element.getSimpleName() + "$" );
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,148 @@
+package io.subutai.guicyfig;
+
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+
+
+/**
+ * Tracks the propagation of configuration changes to options and their
+ * listeners so tests can wait for it instead of sleeping.
+ *
+ * Changes made through configuration interfaces (overrides and bypasses), to
+ * a {@link MemoryConfigSource}, to a {@link SnapshotConfiguration} or to any
+ * other Archaius configuration in the calling thread propagate synchronously:
+ * listeners have been notified when the change returns. Only changes detected
+ * by other threads, such as a {@link WatchedFileConfiguration} noticing a
+ * changed file, propagate asynchronously. {@link #awaitPropagation()} waits
+ * until no propagation is in flight in any thread. It cannot wait for changes
+ * not noticed yet: a changed file is only in flight once its watcher wakes
+ * up, so tests changing watched files should call
+ * {@link WatchedFileConfiguration#reload()} instead.
+ *
+ * Tracking propagations costs an atomic increment and decrement per change;
+ * the waiters are only notified while someone is waiting.
+ *
+ * Changes made by listeners while they are notified cascade: they carry the
+ * {@link ChangeContext} of the change that started the cascade, and cascades
+ * looping or going deeper than {@link #getMaxCascadeDepth()} are cut.
+ *
+ * @since 4.1
+ */
+public final class FigPropagation {
+    /** How long {@link #awaitPropagation()} waits at most */
+    public static final long DEFAULT_TIMEOUT_MILLIS = 10000;
+
+    /** System property setting the initial maximum depth of change cascades */
+    public static final String MAX_DEPTH_PROPERTY = "guicyfig.cascade.maxDepth";
+
+    /** The maximum depth of change cascades unless set otherwise */
+    public static final int DEFAULT_MAX_DEPTH = 16;
+
+    private static final Object lock = new Object();
+    private static final AtomicInteger inFlight = new AtomicInteger();
+    private static final AtomicInteger waiters = new AtomicInteger();
+    private static volatile int maxCascadeDepth = Integer.getInteger( MAX_DEPTH_PROPERTY, DEFAULT_MAX_DEPTH );
+
+
+    private FigPropagation() {
+    }
+
+
+    /**
+     * Marks the start of a propagation. Every call must be followed by a call to {@link #end()}.
+     */
+    static void begin() {
+        inFlight.incrementAndGet();
+    }
+
+
+    /**
+     * Marks the end of a propagation.
+     */
+    static void end() {
+        // waiters register before checking inFlight, so one of the two sides always sees the other
+        if ( inFlight.decrementAndGet() == 0 && waiters.get() > 0 ) {
+            synchronized ( lock ) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+
+    /**
+     * Sets how deep changes made by listeners while notified of other changes
+     * may cascade before their listeners are no longer notified.
+     *
+     * @param depth the maximum depth, 0 to never notify changes made by listeners
+     * @see ChangeContext
+     */
+    public static void setMaxCascadeDepth( int depth ) {
+        Preconditions.checkArgument( depth >= 0, "the maximum depth cannot be negative" );
+        maxCascadeDepth = depth;
+    }
+
+
+    public static int getMaxCascadeDepth() {
+        return maxCascadeDepth;
+    }
+
+
+    /**
+     * Waits until no propagation is in flight, for up to {@value #DEFAULT_TIMEOUT_MILLIS} milliseconds.
+     *
+     * @throws IllegalStateException if propagations are still in flight after the timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static void awaitPropagation() throws InterruptedException {
+        if ( ! awaitPropagation( DEFAULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS ) ) {
+            throw new IllegalStateException( "Changes still propagating after " + DEFAULT_TIMEOUT_MILLIS + " ms" );
+        }
+    }
+
+
+    /**
+     * Waits until no propagation is in flight.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return true if no propagation is in flight, false if the timeout elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static boolean awaitPropagation( long timeout, TimeUnit unit ) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos( timeout );
+
+        synchronized ( lock ) {
+            waiters.incrementAndGet();
+
+            try {
+                while ( inFlight.get() > 0 ) {
+                    long remaining = deadline - System.nanoTime();
+
+                    if ( remaining <= 0 ) {
+                        return false;
+                    }
+
+                    TimeUnit.NANOSECONDS.timedWait( lock, remaining );
+                }
+            }
+            finally {
+                waiters.decrementAndGet();
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Checks if propagations are in flight.
+     *
+     * @return true if changes are being propagated
+     */
+    public static boolean isPropagating() {
+        return inFlight.get() > 0;
+    }
+}
@@ -0,0 +1,67 @@
+package io.subutai.guicyfig;
+
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.MapMaker;
+
+
+/**
+ * Registry of the live configuration objects, singletons or not, for the
+ * administration endpoints. Configuration objects are held weakly by id: they
+ * are dropped from the registry once they are garbage collected.
+ */
+final class FigRegistry {
+    private static final AtomicLong ids = new AtomicLong();
+    private static final ConcurrentMap<Long,GuicyFig> figs = new MapMaker().weakValues().makeMap();
+
+
+    private FigRegistry() {
+    }
+
+
+    /**
+     * Registers a configuration object under the next id.
+     *
+     * @param fig the configuration object
+     * @return the configuration object
+     */
+    static <T extends GuicyFig> T register( T fig ) {
+        figs.put( ids.incrementAndGet(), fig );
+        return fig;
+    }
+
+
+    /**
+     * Gets the live configuration objects.
+     *
+     * @return the configuration objects by id, in the order they were created
+     */
+    static SortedMap<Long,GuicyFig> getFigs() {
+        return new TreeMap<Long, GuicyFig>( figs );
+    }
+
+
+    /**
+     * Gets a live configuration object by id.
+     *
+     * @param id the id of the configuration object
+     * @return the configuration object, or null if there is none with the id
+     */
+    static GuicyFig getFig( long id ) {
+        return figs.get( id );
+    }
+
+
+    /**
+     * Gets the number of configuration objects not garbage collected yet.
+     *
+     * @return the number of configuration objects
+     */
+    static int size() {
+        return figs.size();
+    }
+}
@@ -0,0 +1,74 @@
+package io.subutai.guicyfig;
+
+
+import java.beans.ConstructorProperties;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * The state of a live configuration object and its options at the time the
+ * snapshot was taken, as served by the {@link FigAdmin} endpoints.
+ *
+ * @since 4.1
+ */
+public final class FigSnapshot {
+    private final long id;
+    private final String figInterface;
+    private final boolean singleton;
+    private final List<OptionSnapshot> options;
+
+
+    @ConstructorProperties( { "id", "figInterface", "singleton", "options" } )
+    public FigSnapshot( long id, String figInterface, boolean singleton, List<OptionSnapshot> options ) {
+        this.id = id;
+        this.figInterface = figInterface;
+        this.singleton = singleton;
+        this.options = Collections.unmodifiableList( new ArrayList<OptionSnapshot>( options ) );
+    }
+
+
+    /**
+     * Takes a snapshot of a configuration object without materializing the
+     * options of {@link LazyOptions} configurations.
+     */
+    static FigSnapshot of( long id, GuicyFig fig ) {
+        final List<OptionSnapshot> options = new ArrayList<OptionSnapshot>();
+
+        ( ( BaseGuicyFig ) fig ).getTarget().readOptions( new BaseGuicyFig.OptionReader() {
+            @Override
+            public void read( String key, Object value, OptionLayer layer, InternalOptionState state ) {
+                options.add( state != null ? OptionSnapshot.of( state )
+                        : OptionSnapshot.unread( key, value, layer ) );
+            }
+        } );
+
+        return new FigSnapshot( id, fig.getFigInterface().getName(), fig.isSingleton(), options );
+    }
+
+
+    /**
+     * Gets the id the configuration object is administered by, unique for the life of the process.
+     *
+     * @return the id
+     */
+    public long getId() {
+        return id;
+    }
+
+
+    public String getFigInterface() {
+        return figInterface;
+    }
+
+
+    public boolean isSingleton() {
+        return singleton;
+    }
+
+
+    public List<OptionSnapshot> getOptions() {
+        return options;
+    }
+}
@@ -0,0 +1,121 @@
+package io.subutai.guicyfig;
+
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+
+/**
+ * Opt-in tracing of the options read through configuration interfaces. Reads
+ * are not logged at all unless tracing is turned on, either for every Nth read
+ * or for the reads of specific keys: the getters then pay a single volatile
+ * read for it. Traced reads are logged at INFO to this class's logger with
+ * the method, key, value and where the value came from.
+ *
+ * The sample rate can also be set at startup with the {@value #SAMPLE_PROPERTY}
+ * system property.
+ *
+ * @since 4.1
+ */
+public final class FigTracing {
+    private static final Logger LOG = LoggerFactory.getLogger( FigTracing.class );
+
+    /** System property setting the initial sample rate */
+    public static final String SAMPLE_PROPERTY = "guicyfig.trace.sample";
+
+    private static final Set<String> keys = Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>() );
+    private static final AtomicLong reads = new AtomicLong();
+    private static volatile int sampleRate = Math.max( 0, Integer.getInteger( SAMPLE_PROPERTY, 0 ) );
+
+    /** True if any tracing is on: the only thing read on the getter path otherwise */
+    private static volatile boolean active = sampleRate > 0;
+
+
+    private FigTracing() {
+    }
+
+
+    /**
+     * Traces every Nth read of any option.
+     *
+     * @param rate trace one read in this many, 1 to trace all reads, or 0 to stop sampling
+     */
+    public static synchronized void setSampleRate( int rate ) {
+        Preconditions.checkArgument( rate >= 0, "the sample rate cannot be negative" );
+
+        sampleRate = rate;
+        reads.set( 0 );
+        active = sampleRate > 0 || ! keys.isEmpty();
+    }
+
+
+    public static int getSampleRate() {
+        return sampleRate;
+    }
+
+
+    /**
+     * Traces all reads of an option, whatever the sample rate.
+     *
+     * @param key the key of the option
+     */
+    public static synchronized void trace( String key ) {
+        Preconditions.checkNotNull( key, "key cannot be null" );
+
+        keys.add( key );
+        active = true;
+    }
+
+
+    /**
+     * Stops tracing all reads of an option.
+     *
+     * @param key the key of the option
+     */
+    public static synchronized void untrace( String key ) {
+        keys.remove( key );
+        active = sampleRate > 0 || ! keys.isEmpty();
+    }
+
+
+    /**
+     * Turns all tracing off.
+     */
+    public static synchronized void reset() {
+        keys.clear();
+        sampleRate = 0;
+        active = false;
+    }
+
+
+    static boolean isActive() {
+        return active;
+    }
+
+
+    /**
+     * Traces a read if its key is traced or it is sampled. Only called when
+     * tracing is active.
+     *
+     * @param option the option read
+     * @param value the value returned
+     */
+    static void read( InternalOptionState option, Object value ) {
+        int rate = sampleRate;
+        boolean sampled = rate > 0 && reads.incrementAndGet() % rate == 0;
+
+        if ( ! sampled && ! keys.contains( option.getKey() ) ) {
+            return;
+        }
+
+        LOG.info( "{}() read {} = {} from {}", new Object[] {
+                option.getMethod().getName(), option.getKey(), value, option.getLayer() } );
+    }
+}
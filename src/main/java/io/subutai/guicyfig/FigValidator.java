@@ -0,0 +1,141 @@
+package io.subutai.guicyfig;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Checks compiled configuration interfaces and the options of their
+ * {@link Overrides} and {@link Bypass} injection points for the problems that
+ * would otherwise only surface, if at all, when options are first used.
+ */
+final class FigValidator {
+
+    private FigValidator() {
+    }
+
+
+    /**
+     * Validates a compiled configuration interface: its options must have
+     * supported return types and defaults convertible to them.
+     *
+     * @param metadata the configuration interface's metadata
+     * @return the errors found, empty if there are none
+     */
+    static List<String> validate( FigMetadata metadata ) {
+        return validate( metadata, true );
+    }
+
+
+    /**
+     * Validates a compiled configuration interface: its options must have
+     * defaults convertible to their return types, and supported return types
+     * unless unsupported ones are allowed.
+     *
+     * @param metadata the configuration interface's metadata
+     * @param supportedOnly true if unsupported return types are errors, false
+     * if their options are just ignored
+     * @return the errors found, empty if there are none
+     */
+    static List<String> validate( FigMetadata metadata, boolean supportedOnly ) {
+        List<String> errors = new ArrayList<String>();
+        String figName = metadata.getFigInterface().getName();
+
+        for ( OptionMetadata option : metadata.getOptions() ) {
+            if ( ! option.isSupported() ) {
+                if ( supportedOnly ) {
+                    errors.add( figName + "." + option.getMethod().getName() + "() returns unsupported type "
+                            + option.getMethod().getGenericReturnType() );
+                }
+            }
+            else if ( option.getDefaultError() != null ) {
+                errors.add( figName + "." + option.getMethod().getName() + "() has invalid default "
+                        + option.getDefaultValue() + ": " + option.getDefaultError() );
+            }
+            else if ( option.getConverter() != null && option.getDefaultValue() != null ) {
+                // converted defaults are only parsed on first access: check them now
+                try {
+                    option.parse( option.getDefaultValue() );
+                }
+                catch ( IllegalArgumentException e ) {
+                    errors.add( figName + "." + option.getMethod().getName() + "() has invalid default "
+                            + option.getDefaultValue() + ": " + e.getMessage() );
+                }
+            }
+        }
+
+        return errors;
+    }
+
+
+    /**
+     * Checks that no key is used by two options, within or across configuration interfaces.
+     *
+     * @param metadata the metadata of the configuration interfaces
+     * @return the errors found, empty if there are none
+     */
+    static List<String> validateKeys( List<FigMetadata> metadata ) {
+        Map<String,String> owners = new LinkedHashMap<String, String>();
+        List<String> errors = new ArrayList<String>();
+
+        for ( FigMetadata figMetadata : metadata ) {
+            for ( OptionMetadata option : figMetadata.getOptions() ) {
+                String owner = figMetadata.getFigInterface().getName() + "." + option.getMethod().getName() + "()";
+                String existing = owners.put( option.getKey(), owner );
+
+                if ( existing != null ) {
+                    errors.add( "Key " + option.getKey() + " is used by both " + existing + " and " + owner );
+                }
+            }
+        }
+
+        return errors;
+    }
+
+
+    /**
+     * Validates the options of an {@link Overrides} or {@link Bypass} injection
+     * point: they must name methods of options and have values valid for them.
+     *
+     * @param metadata the metadata of the injected configuration interface
+     * @param options the options of the annotation
+     * @param injectionPoint a description of the injection point for the errors
+     * @return the errors found, empty if there are none
+     */
+    static List<String> validateOptions( FigMetadata metadata, Option[] options, String injectionPoint ) {
+        if ( options.length == 0 ) {
+            return Collections.emptyList();
+        }
+
+        List<String> errors = new ArrayList<String>();
+
+        for ( Option option : options ) {
+            int ordinal = metadata.getOrdinalByMethodName( option.method() );
+
+            if ( ordinal < 0 ) {
+                errors.add( injectionPoint + " names method " + option.method() + " which is not an option of "
+                        + metadata.getFigInterface().getName() );
+                continue;
+            }
+
+            OptionMetadata optionMetadata = metadata.getOptions().get( ordinal );
+            if ( ! optionMetadata.isSupported() ) {
+                continue;
+            }
+
+            try {
+                optionMetadata.parse( option.override() );
+            }
+            catch ( IllegalArgumentException e ) {
+                errors.add( injectionPoint + " has invalid value " + option.override() + " for method "
+                        + option.method() + ": " + e.getMessage() );
+            }
+        }
+
+        return errors;
+    }
+}
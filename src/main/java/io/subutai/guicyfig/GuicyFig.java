@@ -2,9 +2,12 @@ package io.subutai.guicyfig;
 
 
 import java.beans.PropertyChangeListener;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
+import com.google.common.base.Function;
+
 
 /**
  * Super interface for dynamic configurations. Make your configuration interface
@@ -34,13 +37,28 @@ public interface GuicyFig {
 
 
     /**
-     * Gets the configuration options for this GuicyFig.
+     * Gets the configuration options for this GuicyFig. The options of
+     * {@link LazyOptions} configurations are all materialized to return them,
+     * with their dynamic properties and change callbacks.
      *
      * @return the configuration options
      */
     OptionState[] getOptions();
 
 
+    /**
+     * Gets the configuration options for this GuicyFig as an unmodifiable list
+     * which is built once and shared by all callers, unlike the array returned
+     * by {@link #getOptions()} which is copied on every call. Like
+     * {@link #getOptions()}, it materializes all options of {@link LazyOptions}
+     * configurations.
+     *
+     * @return the configuration options
+     * @since 4.1
+     */
+    List<OptionState> getOptionList();
+
+
     /**
      * Gets a specific configuration option by key NOT by method name.
      *
@@ -90,6 +108,22 @@ public interface GuicyFig {
     Map<String,Object> filterOptions( Map<String,Object> entries );
 
 
+    /**
+     * Gets a live, read only view of the entries of a {@link Map} whose keys
+     * match the option keys of this GuicyFig. Nothing is copied: lookups probe
+     * the Map once, and iterating the view costs as much as the number of
+     * options, however large the Map is. Combine with
+     * {@link OptionMaps#withPrefix(Map, String)} to slice large Maps.
+     *
+     * @param entries the Map of entries to view
+     * @param converted true to convert String values to the types of the
+     * options, false to return the values as they are
+     * @return a view of the entries whose keys map to this GuicyFig's options
+     * @since 4.1
+     */
+    Map<String,Object> viewOptions( Map<String,?> entries, boolean converted );
+
+
     /**
      * Sets a method (or key) value override.
      *
@@ -143,6 +177,20 @@ public interface GuicyFig {
     Bypass getBypass();
 
 
+    /**
+     * Derives a value from a configuration option. The function is applied to the
+     * option's effective value (bypass, override or property value) right away and
+     * again only when the effective value changes, so repeated reads of the derived
+     * value do not repeat the transformation. The derived value is refreshed
+     * for as long as it is referred to and not closed.
+     *
+     * @param methodOrKey the key or the method name (either can be provided)
+     * @param function the transformation to apply to the effective value
+     * @return the memoized derived value
+     */
+    <D> Derived<D> derive( String methodOrKey, Function<Object, ? extends D> function );
+
+
     /**
      * Gets the user defined configuration interface.
      *
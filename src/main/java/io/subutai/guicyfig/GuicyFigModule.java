@@ -4,18 +4,35 @@ package io.subutai.guicyfig;
 import java.beans.PropertyChangeListener;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.LinkedHashSet;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.reflections.Reflections;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -41,11 +58,40 @@ import net.sf.cglib.proxy.MethodProxy;
  */
 public class GuicyFigModule extends AbstractModule {
     private static final Logger LOG = LoggerFactory.getLogger( GuicyFigModule.class );
+
+    /**
+     * System property enabling eager bootstrap for all modules.
+     *
+     * @since 4.1
+     */
+    public static final String EAGER_PROPERTY = "guicyfig.bootstrap.eager";
+
+    /**
+     * System property requiring implementations generated at build time by the
+     * {@link FigProcessor}: with it set to true no implementation is generated
+     * with cglib at runtime.
+     *
+     * @since 4.1
+     */
+    public static final String AOT_PROPERTY = "guicyfig.aot";
+
     private final Class[] classes;
+    private final ConfigSource source;
+    private boolean eager = Boolean.getBoolean( EAGER_PROPERTY );
+    private boolean scanned;
+
+    // Static because singleton instances to be injected regardless of Module instance, per source
+    private static final ConcurrentMap<ConfigSource,ConcurrentMap<Class<? extends GuicyFig>,FutureTask<BaseGuicyFig>>>
+            singletons = new ConcurrentHashMap<ConfigSource,
+                    ConcurrentMap<Class<? extends GuicyFig>, FutureTask<BaseGuicyFig>>>();
 
-    // Static because singleton instances to be injected regardless of Module instance
-    private static final Map<Class<? extends GuicyFig>,BaseGuicyFig> singletons =
-            new HashMap<Class<? extends GuicyFig>, BaseGuicyFig>();
+    // Static because configuration interface metadata is shared by all instances
+    private static final ConcurrentMap<Class<? extends GuicyFig>,FigMetadata> metadata =
+            new ConcurrentHashMap<Class<? extends GuicyFig>, FigMetadata>();
+
+    // Static because the implementations generated at build time are the same for all instances
+    private static final ConcurrentMap<Class<? extends GuicyFig>,Optional<Constructor<? extends BaseGuicyFig>>>
+            generated = new ConcurrentHashMap<Class<? extends GuicyFig>, Optional<Constructor<? extends BaseGuicyFig>>>();
 
 
     /**
@@ -55,6 +101,7 @@ public class GuicyFigModule extends AbstractModule {
      */
     public GuicyFigModule( Class<? extends GuicyFig> clazz ) {
         classes = new Class[] { clazz };
+        source = ArchaiusConfigSource.getInstance();
     }
 
 
@@ -64,7 +111,7 @@ public class GuicyFigModule extends AbstractModule {
      * @param classCollection a collection of GuicyFig types
      */
     public GuicyFigModule( Collection<Class<? extends GuicyFig>> classCollection ) {
-        classes = classCollection.toArray( new Class[ classCollection.size()] );
+        this( ArchaiusConfigSource.getInstance(), classCollection );
     }
 
 
@@ -74,13 +121,295 @@ public class GuicyFigModule extends AbstractModule {
      * @param classes array of GuicyFig types
      */
     public GuicyFigModule( Class<? extends GuicyFig>... classes ) {
+        this( ArchaiusConfigSource.getInstance(), classes );
+    }
+
+
+    /**
+     * Configure Guice injection for a collection of GuicyFig types resolving
+     * their options against a configuration source.
+     *
+     * @param source the configuration source
+     * @param classCollection a collection of GuicyFig types
+     * @since 4.1
+     */
+    public GuicyFigModule( ConfigSource source, Collection<Class<? extends GuicyFig>> classCollection ) {
+        Preconditions.checkNotNull( source, "The configuration source cannot be null." );
+        this.classes = classCollection.toArray( new Class[ classCollection.size()] );
+        this.source = source;
+    }
+
+
+    /**
+     * Configure Guice injection for a var arg array of GuicyFig types resolving
+     * their options against a configuration source.
+     *
+     * @param source the configuration source
+     * @param classes array of GuicyFig types
+     * @since 4.1
+     */
+    public GuicyFigModule( ConfigSource source, Class<? extends GuicyFig>... classes ) {
+        Preconditions.checkNotNull( source, "The configuration source cannot be null." );
         this.classes = classes;
+        this.source = source;
+    }
+
+
+    /**
+     * Switches this module to eager bootstrap: the implementations of its
+     * singleton configuration interfaces are created, and the implementation
+     * classes of the others generated, while the injector is created. This
+     * happens in parallel together with the compilation of the configuration
+     * interfaces, instead of serially on the threads first asking for them.
+     * Eager bootstrap can also be enabled for all modules with the
+     * {@value #EAGER_PROPERTY} system property.
+     *
+     * @return this module
+     * @since 4.1
+     */
+    public GuicyFigModule eager() {
+        this.eager = true;
+        return this;
+    }
+
+
+    /**
+     * Marks the configuration interfaces of this module as found by a package
+     * scan rather than chosen: options with unsupported return types are then
+     * ignored with a warning, as they were before interfaces were validated,
+     * rather than reported as errors.
+     *
+     * @return this module
+     */
+    GuicyFigModule scanned() {
+        this.scanned = true;
+        return this;
+    }
+
+
+    /**
+     * Gets the singleton implementation of a configuration interface for the
+     * source of this module, creating it on first access. Singletons of
+     * different configuration interfaces are created concurrently, while
+     * threads asking for the same one wait for its creation.
+     *
+     * @param clazz the configuration interface
+     * @return the singleton implementation
+     */
+    private BaseGuicyFig getSingleton( final Class<? extends GuicyFig> clazz ) {
+        ConcurrentMap<Class<? extends GuicyFig>,FutureTask<BaseGuicyFig>> sourceSingletons = singletons.get( source );
+
+        if ( sourceSingletons == null ) {
+            ConcurrentMap<Class<? extends GuicyFig>,FutureTask<BaseGuicyFig>> created =
+                    new ConcurrentHashMap<Class<? extends GuicyFig>, FutureTask<BaseGuicyFig>>();
+            sourceSingletons = singletons.putIfAbsent( source, created );
+
+            if ( sourceSingletons == null ) {
+                sourceSingletons = created;
+            }
+        }
+
+        FutureTask<BaseGuicyFig> singleton = sourceSingletons.get( clazz );
+
+        if ( singleton == null ) {
+            FutureTask<BaseGuicyFig> created = new FutureTask<BaseGuicyFig>( new Callable<BaseGuicyFig>() {
+                @Override
+                public BaseGuicyFig call() {
+                    return getConcreteObject( true, clazz, null, source );
+                }
+            } );
+
+            singleton = sourceSingletons.putIfAbsent( clazz, created );
+
+            if ( singleton == null ) {
+                singleton = created;
+                singleton.run();
+            }
+        }
+
+        try {
+            return singleton.get();
+        }
+        catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted while creating singleton " + clazz.getName(), e );
+        }
+        catch ( ExecutionException e ) {
+            // let later requests try again instead of failing forever
+            sourceSingletons.remove( clazz, singleton );
+            Throwables.propagateIfPossible( e.getCause() );
+            throw new IllegalStateException( "Failed to create singleton " + clazz.getName(), e.getCause() );
+        }
+    }
+
+
+    /**
+     * Checks if the singleton implementation of a configuration interface was
+     * created for a source.
+     *
+     * @param source the configuration source
+     * @param clazz the configuration interface
+     * @return true if the singleton exists, false otherwise
+     */
+    static boolean hasSingleton( ConfigSource source, Class<? extends GuicyFig> clazz ) {
+        Map<Class<? extends GuicyFig>,FutureTask<BaseGuicyFig>> sourceSingletons = singletons.get( source );
+        return sourceSingletons != null && sourceSingletons.containsKey( clazz );
+    }
+
+
+    /**
+     * Releases the singletons created for a source so the source and its
+     * singletons can be garbage collected. Singletons injected afterwards are
+     * created again.
+     *
+     * @param source the configuration source
+     */
+    static void releaseSingletons( ConfigSource source ) {
+        singletons.remove( source );
+    }
+
+
+    /**
+     * Prepares a compiled configuration interface for injection during eager
+     * bootstrap: creates its singleton, or generates its implementation class
+     * unless it was generated at build time.
+     *
+     * @param figInterface the configuration interface
+     */
+    private void prepare( Class<? extends GuicyFig> figInterface ) {
+        if ( figInterface.isAnnotationPresent( FigSingleton.class ) ) {
+            getSingleton( figInterface );
+        }
+        else if ( getGeneratedConstructor( figInterface ) == null ) {
+            // cglib caches the generated class for the instances created later
+            Enhancer enhancer = createEnhancer( figInterface );
+            enhancer.setCallbackType( MethodInterceptor.class );
+            enhancer.createClass();
+        }
+    }
+
+
+    /**
+     * Compiles the metadata of the configuration interfaces of this module in
+     * parallel and caches it for the providers. Every problem found in any of
+     * the configuration interfaces is reported as an error, so they all come
+     * up together when the injector is created. Errors are reported in the
+     * order of the configuration interfaces, whatever order they were compiled in.
+     * With eager bootstrap valid configuration interfaces are also prepared for
+     * injection in parallel.
+     */
+    private void compile() {
+        final List<Class<? extends GuicyFig>> interfaces = new ArrayList<Class<? extends GuicyFig>>();
+        List<Callable<FigMetadata>> tasks = new ArrayList<Callable<FigMetadata>>();
+
+        for ( Class clazz : new LinkedHashSet<Class>( Arrays.asList( classes ) ) ) {
+            // package scans also find implementations such as BaseGuicyFig
+            if ( ! clazz.isInterface() ) {
+                continue;
+            }
+
+            //noinspection unchecked
+            final Class<? extends GuicyFig> figInterface = clazz;
+            interfaces.add( figInterface );
+            tasks.add( new Callable<FigMetadata>() {
+                @Override
+                public FigMetadata call() {
+                    return getMetadata( figInterface );
+                }
+            } );
+        }
+
+        List<Future<FigMetadata>> futures = ForkJoinPool.commonPool().invokeAll( tasks );
+        List<Class<? extends GuicyFig>> valid = new ArrayList<Class<? extends GuicyFig>>( futures.size() );
+        List<FigMetadata> compiled = new ArrayList<FigMetadata>( futures.size() );
+
+        for ( int ii = 0; ii < futures.size(); ii++ ) {
+            try {
+                FigMetadata figMetadata = futures.get( ii ).get();
+                compiled.add( figMetadata );
+                List<String> errors = FigValidator.validate( figMetadata, ! scanned );
+
+                for ( String error : errors ) {
+                    addError( "%s", error );
+                }
+
+                if ( errors.isEmpty() ) {
+                    valid.add( interfaces.get( ii ) );
+                }
+            }
+            catch ( ExecutionException e ) {
+                addError( "Cannot compile %s: %s", interfaces.get( ii ).getName(), e.getCause().getMessage() );
+            }
+            catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                addError( "Interrupted while compiling %s", interfaces.get( ii ).getName() );
+                return;
+            }
+        }
+
+        for ( String error : FigValidator.validateKeys( compiled ) ) {
+            addError( "%s", error );
+        }
+
+        if ( eager ) {
+            prepare( valid );
+        }
+    }
+
+
+    private void prepare( final List<Class<? extends GuicyFig>> figInterfaces ) {
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>( figInterfaces.size() );
+
+        for ( final Class<? extends GuicyFig> figInterface : figInterfaces ) {
+            tasks.add( new Callable<Void>() {
+                @Override
+                public Void call() {
+                    prepare( figInterface );
+                    return null;
+                }
+            } );
+        }
+
+        List<Future<Void>> futures = ForkJoinPool.commonPool().invokeAll( tasks );
+
+        for ( int ii = 0; ii < futures.size(); ii++ ) {
+            try {
+                futures.get( ii ).get();
+            }
+            catch ( ExecutionException e ) {
+                addError( "Cannot create %s: %s", figInterfaces.get( ii ).getName(), e.getCause().getMessage() );
+            }
+            catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                addError( "Interrupted while creating %s", figInterfaces.get( ii ).getName() );
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * Validates the options of an Overrides or Bypass annotated field.
+     *
+     * @return true if the options are valid, false if errors were reported to the encounter
+     */
+    private static boolean validateOptions( Class<? extends GuicyFig> clazz, Field field, Option[] options,
+                                            TypeEncounter<?> encounter ) {
+        String injectionPoint = field.getDeclaringClass().getName() + "." + field.getName();
+        List<String> errors = FigValidator.validateOptions( getMetadata( clazz ), options, injectionPoint );
+
+        for ( String error : errors ) {
+            encounter.addError( "%s", error );
+        }
+
+        return errors.isEmpty();
     }
 
 
     protected void configure() {
         // add configuration logic here
         LOG.debug( "Configuring ..."  );
+        compile();
 
         for ( final Class clazz : classes ) {
 
@@ -90,21 +419,11 @@ public class GuicyFigModule extends AbstractModule {
                 @Override
                 public Object get() {
                     if ( clazz.isAnnotationPresent( FigSingleton.class ) ) {
-                        BaseGuicyFig config;
-
-                        if ( !singletons.containsKey( clazz ) ) {
-                            config = getConcreteObject( true, clazz );
-                            singletons.put( clazz, config );
-                        }
-                        else {
-                            config = singletons.get( clazz );
-                        }
-
-                        return config;
+                        return getSingleton( clazz );
                     }
                     else {
                         //noinspection unchecked
-                        return getConcreteObject( false, clazz );
+                        return getConcreteObject( false, clazz, null, source );
                     }
                 }
             } );
@@ -115,15 +434,23 @@ public class GuicyFigModule extends AbstractModule {
                 public <I> void hear( final TypeLiteral<I> type, final TypeEncounter<I> encounter ) {
                     for ( final Field field : type.getRawType().getDeclaredFields() ) {
 
+                        if ( field.getType() == clazz && field.isAnnotationPresent( Overrides.class )
+                                && ! validateOptions( clazz, field, field.getAnnotation( Overrides.class ).options(),
+                                        encounter ) ) {
+                            continue;
+                        }
+
+                        if ( field.getType() == clazz && field.isAnnotationPresent( Bypass.class )
+                                && ! validateOptions( clazz, field, field.getAnnotation( Bypass.class ).options(),
+                                        encounter ) ) {
+                            continue;
+                        }
+
                         if ( field.getType() == clazz &&
                                 clazz.isAnnotationPresent( FigSingleton.class ) &&
                                 field.isAnnotationPresent( Overrides.class ) ) {
 
-                            if ( ! singletons.containsKey( clazz ) ) {
-                                singletons.put( clazz, getConcreteObject( true, clazz ) );
-                            }
-
-                            final BaseGuicyFig newInstance = singletons.get( clazz );
+                            final BaseGuicyFig newInstance = getSingleton( clazz );
                             newInstance.setOverrides( field.getAnnotation( Overrides.class ) );
                             encounter.register( new MembersInjector<I>() {
                                 @Override
@@ -139,7 +466,7 @@ public class GuicyFigModule extends AbstractModule {
                         }
 
                         else if ( field.getType() == clazz && field.isAnnotationPresent( Overrides.class ) ) {
-                            final BaseGuicyFig newInstance = getConcreteObject( false, clazz );
+                            final BaseGuicyFig newInstance = getConcreteObject( false, clazz, null, source );
                             newInstance.setOverrides( field.getAnnotation( Overrides.class ) );
                             encounter.register( new MembersInjector<I>() {
                                 @Override
@@ -158,11 +485,7 @@ public class GuicyFigModule extends AbstractModule {
                                 clazz.isAnnotationPresent( FigSingleton.class ) &&
                                 field.isAnnotationPresent( Bypass.class ) ) {
 
-                            if ( ! singletons.containsKey( clazz ) ) {
-                                singletons.put( clazz, getConcreteObject( true, clazz ) );
-                            }
-
-                            final BaseGuicyFig newInstance = singletons.get( clazz );
+                            final BaseGuicyFig newInstance = getSingleton( clazz );
                             newInstance.setBypass( field.getAnnotation( Bypass.class ) );
                             encounter.register( new MembersInjector<I>() {
                                 @Override
@@ -178,7 +501,7 @@ public class GuicyFigModule extends AbstractModule {
                         }
 
                         else if ( field.getType() == clazz && field.isAnnotationPresent( Bypass.class ) ) {
-                            final BaseGuicyFig newInstance = getConcreteObject( false, clazz );
+                            final BaseGuicyFig newInstance = getConcreteObject( false, clazz, null, source );
                             newInstance.setBypass( field.getAnnotation( Bypass.class ) );
                             encounter.register( new MembersInjector<I>() {
                                 @Override
@@ -202,12 +525,64 @@ public class GuicyFigModule extends AbstractModule {
 
 
     static BaseGuicyFig getConcreteObject( boolean singleton, final Class<? extends GuicyFig> configInterface ) {
-        final BaseGuicyFig config = buildBaseObject( configInterface );
+        return getConcreteObject( singleton, configInterface, null );
+    }
+
+
+    /**
+     * Creates the implementation of a configuration interface.
+     *
+     * @param singleton whether or not the configuration is a singleton
+     * @param configInterface the configuration interface
+     * @param prefix the prefix of a nested configuration section, or null for a top level configuration
+     * @return the configuration implementation
+     */
+    static BaseGuicyFig getConcreteObject( boolean singleton, final Class<? extends GuicyFig> configInterface,
+                                           String prefix ) {
+        return getConcreteObject( singleton, configInterface, prefix, ArchaiusConfigSource.getInstance() );
+    }
+
+
+    /**
+     * Creates the implementation of a configuration interface resolving its
+     * options against a configuration source.
+     *
+     * @param singleton whether or not the configuration is a singleton
+     * @param configInterface the configuration interface
+     * @param prefix the prefix of a nested configuration section, or null for a top level configuration
+     * @param source the configuration source
+     * @return the configuration implementation
+     */
+    static BaseGuicyFig getConcreteObject( boolean singleton, final Class<? extends GuicyFig> configInterface,
+                                           String prefix, ConfigSource source ) {
+        long start = FigMetrics.start();
+        Constructor<? extends BaseGuicyFig> constructor = getGeneratedConstructor( configInterface );
+
+        if ( constructor != null ) {
+            BaseGuicyFig config;
+
+            try {
+                config = constructor.newInstance();
+            }
+            catch ( Exception e ) {
+                throw new IllegalStateException( "Cannot instantiate " + constructor.getDeclaringClass(), e );
+            }
+
+            initialize( config, configInterface, prefix, source );
+            config.setSingleton( singleton );
+            FigMetrics.time( FigMetrics.CONSTRUCTION, configInterface.getName(), start );
+            return FigRegistry.register( config );
+        }
+
+        if ( Boolean.getBoolean( AOT_PROPERTY ) ) {
+            throw new IllegalStateException( "No implementation of " + configInterface.getName()
+                    + " was generated at build time and " + AOT_PROPERTY + " is set" );
+        }
+
+        final BaseGuicyFig config = buildBaseObject( configInterface, prefix, source );
         config.setSingleton( singleton );
 
-        Enhancer enhancer = new Enhancer();
-        enhancer.setSuperclass( BaseGuicyFig.class );
-        enhancer.setInterfaces( new Class[] { configInterface } );
+        Enhancer enhancer = createEnhancer( configInterface );
         Callback[] callbacks = new Callback[] { new MethodInterceptor() {
             @Override
             public Object intercept( final Object o, final Method method, final Object[] objects,
@@ -222,20 +597,24 @@ public class GuicyFigModule extends AbstractModule {
                  * ------------------------------------------------------------
                  */
 
-                Class[] classes = new Class[objects.length];
-                for ( int ii = 0; ii < classes.length; ii ++ ) {
-                    classes[ii] = objects.getClass();
-                    LOG.debug( "{}-th argument is {}", ii, objects[ii] );
-                }
-
                 if ( option == null ) {
-                    LOG.debug( "Invoking method {} in declaring class {}",
-                            method.getName(), method.getDeclaringClass() );
+                    Object section = config.getSection( method );
+                    if ( section != null ) {
+                        return section;
+                    }
 
                     if ( method.getName().equals( "getOptions" ) ) {
                         return config.getOptions();
                     }
 
+                    if ( method.getName().equals( "getOptionList" ) ) {
+                        return config.getOptionList();
+                    }
+
+                    if ( method.getName().equals( "getTarget" ) ) {
+                        return config;
+                    }
+
                     if ( method.getName().equals( "getOption" ) ) {
                         return config.getOption( ( String ) objects[0] );
                     }
@@ -249,7 +628,8 @@ public class GuicyFigModule extends AbstractModule {
                     }
 
                     if ( method.getName().equals( "filterOptions" ) ) {
-                        if ( Properties.class == objects[0].getClass() ) {
+                        // dispatch on the declared parameter: Properties subclasses are Properties too
+                        if ( method.getParameterTypes()[0] == Properties.class ) {
                             return config.filterOptions( ( Properties ) objects[0] );
                         }
                         else {
@@ -258,6 +638,11 @@ public class GuicyFigModule extends AbstractModule {
                         }
                     }
 
+                    if ( method.getName().equals( "viewOptions" ) ) {
+                        //noinspection unchecked
+                        return config.viewOptions( ( Map<String,?> ) objects[0], ( Boolean ) objects[1] );
+                    }
+
                     if ( method.getName().equals( "addPropertyChangeListener" ) ) {
                         config.addPropertyChangeListener( ( PropertyChangeListener ) objects[0] );
                         return null;
@@ -282,6 +667,11 @@ public class GuicyFigModule extends AbstractModule {
                         return null;
                     }
 
+                    if ( method.getName().equals( "derive" ) ) {
+                        //noinspection unchecked
+                        return config.derive( ( String ) objects[0], ( Function<Object, ?> ) objects[1] );
+                    }
+
                     if ( method.getName().equals( "getOverrides" ) ) {
                         return config.getOverrides();
                     }
@@ -317,30 +707,66 @@ public class GuicyFigModule extends AbstractModule {
                     return config.getClass().getMethod( method.getName() ).invoke( o, objects );
                 }
 
-                // OK this stuff is redirected to the dynamic properties
-                LOG.debug( "Invoking method {} to get property with key {}", method.getName(), option.getKey() );
-
-                if ( option.isBypassed() ) {
-                    Object value = option.getBypassValue();
-                    LOG.debug( "Bypassed method {} with value {}", method.getName(), value );
-                    return value;
-                }
-                else if ( option.isOverridden() ) {
-                    Object value = option.getOverrideValue();
-                    LOG.debug( "Overridden method {} with value {}", method.getName(), value );
-                    return value;
-                }
-                else {
-                    Object value = option.getValue();
-                    LOG.debug( "Method {} with value {}", method.getName(), value );
-                    return value;
-                }
+                // OK this stuff is redirected to the dynamic properties: no
+                // logging here, reads are traced only when FigTracing is on
+                return BaseGuicyFig.resolve( option );
             } }
         };
 
         //noinspection unchecked
         enhancer.setCallbacks( callbacks );
-        return ( BaseGuicyFig ) enhancer.create();
+        BaseGuicyFig proxy = ( BaseGuicyFig ) enhancer.create();
+        FigMetrics.time( FigMetrics.CONSTRUCTION, configInterface.getName(), start );
+        return FigRegistry.register( proxy );
+    }
+
+
+    /**
+     * Gets the constructor of the implementation of a configuration interface
+     * generated at build time by the {@link FigProcessor}.
+     *
+     * @param configInterface the configuration interface
+     * @return the constructor, or null if no implementation was generated
+     */
+    static Constructor<? extends BaseGuicyFig> getGeneratedConstructor( Class<? extends GuicyFig> configInterface ) {
+        Optional<Constructor<? extends BaseGuicyFig>> constructor = generated.get( configInterface );
+
+        if ( constructor == null ) {
+            constructor = Optional.absent();
+
+            try {
+                Class<?> implementation = Class.forName( FigProcessor.getImplementationName( configInterface ),
+                        false, configInterface.getClassLoader() );
+
+                if ( BaseGuicyFig.class.isAssignableFrom( implementation )
+                        && configInterface.isAssignableFrom( implementation ) ) {
+                    //noinspection unchecked
+                    constructor = Optional.<Constructor<? extends BaseGuicyFig>>of(
+                            ( Constructor<? extends BaseGuicyFig> ) implementation.getConstructor() );
+                }
+                else {
+                    LOG.warn( "Ignoring {} which does not implement {}", implementation, configInterface );
+                }
+            }
+            catch ( ClassNotFoundException e ) {
+                LOG.debug( "No implementation of {} was generated at build time", configInterface );
+            }
+            catch ( NoSuchMethodException e ) {
+                LOG.warn( "Ignoring the implementation of {} without a public constructor", configInterface );
+            }
+
+            generated.put( configInterface, constructor );
+        }
+
+        return constructor.orNull();
+    }
+
+
+    private static Enhancer createEnhancer( Class<? extends GuicyFig> configInterface ) {
+        Enhancer enhancer = new Enhancer();
+        enhancer.setSuperclass( BaseGuicyFig.class );
+        enhancer.setInterfaces( new Class[] { configInterface } );
+        return enhancer;
     }
 
 
@@ -355,54 +781,193 @@ public class GuicyFigModule extends AbstractModule {
      */
     static Properties loadProperties( Class<? extends GuicyFig> configInterface ) {
         Properties properties = new Properties();
+        loadProperties( configInterface, getDefaultsResource( configInterface, "" ), properties );
+        return properties;
+    }
+
+
+    /**
+     * Loads the defaults properties file of the configuration interface and
+     * cascades the environment specific defaults files over it. For a
+     * configuration interface com.foo.BarFig in a "perf" environment which
+     * inherits from PROD the files com/foo/BarFig.properties,
+     * com/foo/BarFig-prod.properties and com/foo/BarFig-perf.properties are
+     * loaded in that order, later files overriding the earlier ones.
+     *
+     * @param configInterface the configuration interface
+     * @param environment the environment to cascade defaults files for
+     * @return the merged properties loaded from the properties files
+     */
+    static Properties loadProperties( Class<? extends GuicyFig> configInterface, Environment environment ) {
+        Properties properties = new Properties();
+
+        for ( String resource : getDefaultsResources( configInterface, environment ) ) {
+            if ( ! loadProperties( configInterface, resource, properties ) ) {
+                LOG.debug( "No defaults {} found for {}.", resource, configInterface.getSimpleName() );
+            }
+        }
+
+        return properties;
+    }
+
+
+    /**
+     * Loads the cascaded defaults of the configuration interface for an
+     * environment. They are looked up in the precompiled {@link DefaultsBundle}
+     * if it has the configuration interface, otherwise the defaults properties
+     * files are loaded as in {@link #loadProperties(Class, Environment)}.
+     *
+     * @param configInterface the configuration interface
+     * @param environment the environment to cascade defaults for
+     * @return the cascaded defaults
+     */
+    static Defaults loadDefaults( Class<? extends GuicyFig> configInterface, Environment environment ) {
+        long start = FigMetrics.start();
+        List<String> resources = getDefaultsResources( configInterface, environment );
+        DefaultsBundle bundle = DefaultsBundle.getInstance();
+
+        if ( bundle != null && bundle.contains( resources.get( 0 ) ) ) {
+            Defaults defaults = bundle.defaults( resources );
+            FigMetrics.time( FigMetrics.DEFAULTS_LOAD, configInterface.getName(), start );
+            return defaults;
+        }
+
+        // each file is kept apart to tell which one defines a key
+        final Properties base = new Properties();
+        loadProperties( configInterface, resources.get( 0 ), base );
+
+        final Properties cascaded = new Properties();
+        for ( String resource : resources.subList( 1, resources.size() ) ) {
+            if ( ! loadProperties( configInterface, resource, cascaded ) ) {
+                LOG.debug( "No defaults {} found for {}.", resource, configInterface.getSimpleName() );
+            }
+        }
+
+        FigMetrics.time( FigMetrics.DEFAULTS_LOAD, configInterface.getName(), start );
+
+        return new Defaults() {
+            @Override
+            public String get( String key ) {
+                String value = cascaded.getProperty( key );
+                return value != null ? value : base.getProperty( key );
+            }
+
+
+            @Override
+            public OptionLayer getLayer( String key ) {
+                if ( cascaded.containsKey( key ) ) {
+                    return OptionLayer.ENVIRONMENT_DEFAULTS;
+                }
+
+                return base.containsKey( key ) ? OptionLayer.DEFAULTS_FILE : null;
+            }
+        };
+    }
+
+
+    /**
+     * Gets the resource names of the defaults files cascaded for an environment.
+     *
+     * @param configInterface the configuration interface
+     * @param environment the environment to cascade defaults files for
+     * @return the resource names, the defaults file of the configuration interface first
+     */
+    static List<String> getDefaultsResources( Class<? extends GuicyFig> configInterface, Environment environment ) {
+        LinkedList<String> resources = new LinkedList<String>();
+
+        for ( Environment env = environment; env != null && env != Environment.ALL; env = env.getParent() ) {
+            String suffix = "-" + env.getName().toLowerCase( Locale.ENGLISH );
+            resources.addFirst( getDefaultsResource( configInterface, suffix ) );
+        }
+
+        resources.addFirst( getDefaultsResource( configInterface, "" ) );
+        return resources;
+    }
+
+
+    private static String getDefaultsResource( Class<? extends GuicyFig> configInterface, String suffix ) {
         String packageName = configInterface.getPackage().getName();
-        String name = packageName.replace( '.', '/' ) + "/" + configInterface.getSimpleName() + ".properties";
+        return packageName.replace( '.', '/' ) + "/" + configInterface.getSimpleName() + suffix + ".properties";
+    }
+
+
+    private static boolean loadProperties( Class<? extends GuicyFig> configInterface, String name,
+                                           Properties properties ) {
         InputStream in = configInterface.getClassLoader().getResourceAsStream( name );
 
+        if ( in == null ) {
+            if ( name.equals( getDefaultsResource( configInterface, "" ) ) ) {
+                LOG.warn( "No property defaults file {} found for {}.", name, configInterface.getSimpleName() );
+            }
+
+            return false;
+        }
+
         try {
             properties.load( in );
-        }
-        catch ( NullPointerException e ) {
-            LOG.warn( "No property defaults file {} found for {}.", name, configInterface.getSimpleName() );
+            return true;
         }
         catch ( IOException e ) {
-            LOG.warn( "No property defaults file {} found for {}.", name, configInterface.getSimpleName() );
+            LOG.warn( "Failed to load property defaults file {} for {}.", name, configInterface.getSimpleName() );
+            return false;
+        }
+        finally {
+            try {
+                in.close();
+            }
+            catch ( IOException e ) {
+                LOG.warn( "Failed to close property defaults file {}.", name );
+            }
         }
+    }
 
-        return properties;
+
+    /**
+     * Gets the metadata of a configuration interface for the current environment,
+     * building and caching it if it has not been built for this environment yet.
+     *
+     * @param configInterface the configuration interface
+     * @return the configuration interface's metadata
+     */
+    static FigMetadata getMetadata( Class<? extends GuicyFig> configInterface ) {
+        Environment environment = Environment.current();
+        FigMetadata figMetadata = metadata.get( configInterface );
+
+        if ( figMetadata == null || figMetadata.getEnvironment() != environment ) {
+            figMetadata = FigMetadata.build( configInterface, environment );
+            metadata.put( configInterface, figMetadata );
+        }
+
+        return figMetadata;
     }
 
 
     static BaseGuicyFig buildBaseObject( Class<? extends GuicyFig> configInterface ) {
-        Properties defaults = loadProperties( configInterface );
-        BaseGuicyFig config = new BaseGuicyFig();
-        config.setFigInterface( configInterface );
+        return buildBaseObject( configInterface, null );
+    }
 
-        Method[] methods = configInterface.getDeclaredMethods();
-        for ( Method method : methods ) {
 
-            // Key annotation overrides standard key convention
-            String key;
-            if ( method.getAnnotation( Key.class ) != null ) {
-                key = method.getAnnotation( Key.class ).value();
-            }
-            else {
-                StringBuilder sb = new StringBuilder();
-                sb.append( configInterface.getCanonicalName() )
-                        .append( '.' )
-                        .append( method.getName() );
-                key = sb.toString();
-            }
+    static BaseGuicyFig buildBaseObject( Class<? extends GuicyFig> configInterface, String prefix ) {
+        return buildBaseObject( configInterface, prefix, ArchaiusConfigSource.getInstance() );
+    }
 
-            // Default annotation overrides defaults properties file
-            String defval = defaults.getProperty( key );
-            if ( method.getAnnotation( Default.class ) != null ) {
-                defval = method.getAnnotation( Default.class ).value();
-            }
 
-            config.add( key, defval, method );
-        }
+    static BaseGuicyFig buildBaseObject( Class<? extends GuicyFig> configInterface, String prefix,
+                                         ConfigSource source ) {
+        return initialize( new BaseGuicyFig(), configInterface, prefix, source );
+    }
+
+
+    private static BaseGuicyFig initialize( BaseGuicyFig config, Class<? extends GuicyFig> configInterface,
+                                            String prefix, ConfigSource source ) {
+        FigMetadata figMetadata = getMetadata( configInterface );
+        config.setSource( source );
+        config.setFigInterface( configInterface );
+        config.setSections( prefix == null ? figMetadata.getKeyBase() : prefix, figMetadata.getSections() );
+
+        List<OptionMetadata> options = prefix == null ? figMetadata.getOptions() : figMetadata.getOptions( prefix );
 
+        config.setOptions( figMetadata, prefix, options );
         return config;
     }
 
@@ -417,7 +982,7 @@ public class GuicyFigModule extends AbstractModule {
     public static void injectMembers( Object obj ) {
         Reflections reflections = new Reflections( obj.getClass().getPackage().getName() );
         Set<Class<? extends GuicyFig>> subTypes = reflections.getSubTypesOf( GuicyFig.class );
-        Injector injector = Guice.createInjector( new GuicyFigModule( subTypes ) );
+        Injector injector = Guice.createInjector( new GuicyFigModule( subTypes ).scanned() );
         injector.injectMembers( obj );
     }
 }
@@ -1,10 +1,19 @@
 package io.subutai.guicyfig;
 
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.hash.HashCode;
+import com.google.common.primitives.Primitives;
 import com.netflix.config.DynamicBooleanProperty;
 import com.netflix.config.DynamicDoubleProperty;
 import com.netflix.config.DynamicFloatProperty;
@@ -18,15 +27,60 @@ import com.netflix.config.PropertyWrapper;
  * A module's configuration options.
  */
 class InternalOptionState<V, T extends PropertyWrapper<V>> implements OptionState<V> {
+    private static final Logger LOG = LoggerFactory.getLogger( InternalOptionState.class );
     private final String key;
     private final T property;
     private V oldValue;
-    private Option bypass;
-    private Option override;
+    private final Converter<?> converter;
+    private volatile Converted converted;
+    private volatile Option bypass;
+    private volatile Object bypassValue;
+    private volatile Option override;
+    private volatile Object overrideValue;
     private Method method;
+    private final ConfigSource source;
+    private final Object fallback;
+    /** Held weakly so derived values dropped by their users do not pile up */
+    private final List<WeakReference<DerivedValue<?>>> derived = new CopyOnWriteArrayList<WeakReference<DerivedValue<?>>>();
+    private final OptionStats stats = new OptionStats();
+
+    /** Provenance: the source asked for the layer of values, the layer of the default and the current layer */
+    private ConfigSource layerSource;
+    private OptionLayer defaultLayer = OptionLayer.NONE;
+    private volatile OptionLayer layer;
 
 
     InternalOptionState( String key, T property, Method method ) {
+        this( key, property, method, null );
+    }
+
+
+    /**
+     * Creates an option whose value is converted from a String property.
+     *
+     * @param key the key of the option
+     * @param property the property backing the option
+     * @param method the configuration interface method
+     * @param converter the converter for the property's String values, or null
+     * if the property's value is directly returned
+     */
+    InternalOptionState( String key, T property, Method method, Converter<?> converter ) {
+        this( key, property, method, converter, null );
+    }
+
+
+    /**
+     * Creates an option whose value is converted from a String property,
+     * falling back to the converted default for values which cannot be converted.
+     *
+     * @param key the key of the option
+     * @param property the property backing the option
+     * @param method the configuration interface method
+     * @param converter the converter for the property's String values, or null
+     * if the property's value is directly returned
+     * @param defaultValue the unconverted default, or null if there is none
+     */
+    InternalOptionState( String key, T property, Method method, Converter<?> converter, String defaultValue ) {
         Preconditions.checkNotNull( key, "key cannot be null" );
         Preconditions.checkNotNull( property, "property cannot be null" );
         Preconditions.checkNotNull( method, "method cannot be null" );
@@ -34,12 +88,62 @@ class InternalOptionState<V, T extends PropertyWrapper<V>> implements OptionStat
         this.key = key;
         this.property = property;
         this.method = method;
+        this.converter = converter;
+        this.source = null;
+        this.fallback = converter != null && defaultValue != null ? converter.convert( defaultValue ) : null;
         this.oldValue = extractValue();
+        refreshLayer();
+    }
+
+
+    /**
+     * Creates an option resolved against a {@link ConfigSource} other than
+     * Archaius rather than backed by a dynamic property. All values, including
+     * those of primitive types, are converted from the source's String values.
+     *
+     * @param source the source of the option's values
+     * @param metadata the option's metadata
+     */
+    InternalOptionState( ConfigSource source, OptionMetadata metadata ) {
+        Preconditions.checkNotNull( source, "source cannot be null" );
+        Preconditions.checkNotNull( metadata, "metadata cannot be null" );
+
+        this.key = metadata.getKey();
+        this.property = null;
+        this.method = metadata.getMethod();
+        this.source = source;
+        this.layerSource = source;
+        this.defaultLayer = metadata.getDefaultLayer();
+
+        if ( metadata.getConverter() != null ) {
+            this.converter = metadata.getConverter();
+        }
+        else {
+            this.converter = Converters.forType( Primitives.wrap( method.getReturnType() ) );
+        }
+
+        if ( metadata.getDefaultValue() != null ) {
+            this.fallback = converter.convert( metadata.getDefaultValue() );
+        }
+        else {
+            this.fallback = metadata.getConverter() == null ? metadata.getTypedDefault() : null;
+        }
+
+        this.oldValue = extractValue();
+        refreshLayer();
     }
 
 
     private V extractValue() {
-        if ( method.getReturnType().isEnum() ) {
+        if ( source != null ) {
+            //noinspection unchecked
+            return ( V ) extractSourced();
+        }
+        else if ( converter != null ) {
+            //noinspection unchecked
+            return ( V ) extractConverted( ( String ) property.getValue() );
+        }
+        else if ( method.getReturnType().isEnum() ) {
             //noinspection unchecked
             return ( V ) EnumUtils.getEnumInstance( ( String ) property.getValue(), method.getReturnType() );
         }
@@ -49,11 +153,193 @@ class InternalOptionState<V, T extends PropertyWrapper<V>> implements OptionStat
     }
 
 
+    /**
+     * Converted values are cached with the String they were converted from. The
+     * dynamic property hands out the same String instance until its value changes
+     * so the cache hit costs an identity comparison.
+     *
+     * Like Archaius typed properties, falls back to the default when the value
+     * cannot be converted. The fallback is cached too, so a bad value is only
+     * warned about once.
+     */
+    private Object extractConverted( String raw ) {
+        Converted current = converted;
+
+        if ( current != null && ( current.raw == raw || ( raw != null && raw.equals( current.raw ) ) ) ) {
+            return current.value;
+        }
+
+        Object value;
+
+        try {
+            value = raw == null ? null : converter.convert( raw );
+        }
+        catch ( IllegalArgumentException e ) {
+            LOG.warn( "Cannot convert value {} of key {}, using the default: {}",
+                    new Object[] { raw, key, e.getMessage() } );
+            value = fallback;
+        }
+
+        current = new Converted( raw, value );
+        converted = current;
+        return current.value;
+    }
+
+
+    /**
+     * Like Archaius properties, falls back to the default when the source has
+     * no value for the key or a value which cannot be converted.
+     */
+    private Object extractSourced() {
+        String raw = source.getValue( key );
+        return raw == null ? fallback : extractConverted( raw );
+    }
+
+
+    private static final class Converted {
+        private final String raw;
+        private final Object value;
+
+
+        private Converted( String raw, Object value ) {
+            this.raw = raw;
+            this.value = value;
+        }
+    }
+
+
+    boolean isConverted() {
+        return converter != null;
+    }
+
+
+    /**
+     * Registers a value derived from the effective value of this option.
+     *
+     * @param function the transformation deriving the value
+     * @return the derived value which is refreshed whenever the effective value changes
+     */
+    <D> Derived<D> derive( Function<Object, ? extends D> function ) {
+        DerivedValue<D> value = new DerivedValue<D>( this, function );
+        pruneDerived();
+        // registered before reading the effective value, so a change racing the first derivation refreshes it
+        WeakReference<DerivedValue<?>> reference = new WeakReference<DerivedValue<?>>( value );
+        derived.add( reference );
+
+        try {
+            value.initialize();
+        }
+        catch ( RuntimeException e ) {
+            derived.remove( reference );
+            throw e;
+        }
+
+        return value;
+    }
+
+
+    /**
+     * Refreshes the derived values after a change of the effective value.
+     */
+    void refreshDerived() {
+        if ( derived.isEmpty() ) {
+            return;
+        }
+
+        boolean dropped = false;
+
+        for ( WeakReference<DerivedValue<?>> reference : derived ) {
+            DerivedValue<?> value = reference.get();
+
+            if ( value == null || value.isClosed() ) {
+                dropped = true;
+            }
+            else {
+                value.refresh();
+            }
+        }
+
+        if ( dropped ) {
+            pruneDerived();
+        }
+    }
+
+
+    /**
+     * Drops the derived values which were closed or collected.
+     */
+    private void pruneDerived() {
+        derived.removeIf( new Predicate<WeakReference<DerivedValue<?>>>() {
+            @Override
+            public boolean test( WeakReference<DerivedValue<?>> reference ) {
+                DerivedValue<?> value = reference.get();
+                return value == null || value.isClosed();
+            }
+        } );
+    }
+
+
+    /**
+     * Gets the number of derived values still refreshed by this option.
+     *
+     * @return the number of derived values
+     */
+    int getDerivedCount() {
+        pruneDerived();
+        return derived.size();
+    }
+
+
     Method getMethod() {
         return method;
     }
 
 
+    /**
+     * Sets where the layer of an option backed by a dynamic property is looked up.
+     *
+     * @param source the source of the property's values
+     * @param defaultLayer the layer the default value comes from
+     */
+    void setProvenance( ConfigSource source, OptionLayer defaultLayer ) {
+        this.layerSource = source;
+        this.defaultLayer = defaultLayer;
+        refreshLayer();
+    }
+
+
+    /**
+     * Looks up the layer of the effective value again. Called whenever it may
+     * have changed, so reading the layer costs nothing.
+     */
+    void refreshLayer() {
+        if ( bypass != null ) {
+            layer = OptionLayer.BYPASS;
+        }
+        else if ( override != null ) {
+            layer = OptionLayer.OVERRIDE;
+        }
+        else {
+            OptionLayer sourced;
+
+            if ( layerSource != null ) {
+                sourced = layerSource.getLayer( key );
+            }
+            else {
+                sourced = property.getDynamicProperty().getString() == null ? null : OptionLayer.CONFIGURATION;
+            }
+
+            layer = sourced != null ? sourced : defaultLayer;
+        }
+    }
+
+
+    @Override
+    public OptionLayer getLayer() {
+        return layer;
+    }
+
+
     V update() {
         V val = oldValue;
         oldValue = extractValue();
@@ -81,23 +367,15 @@ class InternalOptionState<V, T extends PropertyWrapper<V>> implements OptionStat
 
     @Override
     public V getOverrideValue() {
-        if ( override == null || override.override() == null ) {
-            return null;
-        }
-
         //noinspection unchecked
-        return ( V ) convertValue( override.override() );
+        return ( V ) overrideValue;
     }
 
 
     @Override
     public V getBypassValue() {
-        if ( bypass == null || bypass.override() == null ) {
-            return null;
-        }
-
         //noinspection unchecked
-        return ( V ) convertValue( bypass.override() );
+        return ( V ) bypassValue;
     }
 
 
@@ -107,19 +385,33 @@ class InternalOptionState<V, T extends PropertyWrapper<V>> implements OptionStat
     }
 
 
+    @Override
+    public OptionStats getStats() {
+        return stats;
+    }
+
+
     @Override
     public int hashCode() {
         return HashCode.fromString( key ).hashCode();
     }
 
 
+    /**
+     * Gets the dynamic property backing this option.
+     *
+     * @return the property, or null if the option is resolved against another source than Archaius
+     */
     T getProperty() {
         return property;
     }
 
 
     void setBypass( Option value ) {
+        // converted once here rather than on every access
+        this.bypassValue = ( value == null || value.override() == null ) ? null : convertValue( value.override() );
         this.bypass = value;
+        refreshLayer();
     }
 
 
@@ -142,13 +434,17 @@ class InternalOptionState<V, T extends PropertyWrapper<V>> implements OptionStat
 
 
     public void setOverride( Option override ) {
+        // converted once here rather than on every access
+        this.overrideValue = ( override == null || override.override() == null ) ? null
+                : convertValue( override.override() );
         this.override = override;
+        refreshLayer();
     }
 
 
     Object getEffectiveValue() {
         if ( bypass == null && override == null ) {
-            return property.getValue();
+            return extractValue();
         }
 
         if ( bypass == null ) {
@@ -160,6 +456,10 @@ class InternalOptionState<V, T extends PropertyWrapper<V>> implements OptionStat
 
 
     Object convertValue( String value ) {
+        if ( converter != null ) {
+            return value == null ? null : converter.convert( value );
+        }
+
         if ( property instanceof DynamicStringProperty ) {
             if ( method.getReturnType().isEnum() ) {
                 return EnumUtils.getEnumInstance( value, method.getReturnType() );
@@ -0,0 +1,24 @@
+package io.subutai.guicyfig;
+
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+
+/**
+ * An annotation signaling that the options of the configuration interface are
+ * materialized lazily: the dynamic property, option state and change callback
+ * of an option are only created when the option is first accessed, rather than
+ * for every method when the configuration is created. Use it on large
+ * configuration interfaces created often of which few options are read.
+ *
+ * Change events are only fired for options which have been accessed.
+ *
+ * @since 4.1
+ */
+@Target( TYPE )
+@Retention( RUNTIME )
+public @interface LazyOptions {}
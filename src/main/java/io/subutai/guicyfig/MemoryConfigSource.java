@@ -0,0 +1,299 @@
+package io.subutai.guicyfig;
+
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+
+/**
+ * An isolated, in memory {@link ConfigSource}. Values and overrides are held
+ * in concurrent maps: reads never lock, and writes to different keys do not
+ * contend. Callbacks of a key run on the thread changing it. They are held
+ * weakly, so a long lived source does not keep the configuration instances
+ * created against it alive.
+ *
+ * A memory source can be layered over a parent source: keys it has no value
+ * for are read from the parent, while all changes stay in the memory source.
+ *
+ * @since 4.1
+ */
+public class MemoryConfigSource implements ConfigSource {
+    private static final Logger LOG = LoggerFactory.getLogger( MemoryConfigSource.class );
+
+    private final ConcurrentMap<String,String> values = new ConcurrentHashMap<String, String>();
+    private final ConcurrentMap<String,String> overrides = new ConcurrentHashMap<String, String>();
+    private final ConcurrentMap<String,List<WeakReference<Runnable>>> callbacks =
+            new ConcurrentHashMap<String, List<WeakReference<Runnable>>>();
+    private final ConfigSource parent;
+
+
+    public MemoryConfigSource() {
+        this.parent = null;
+    }
+
+
+    public MemoryConfigSource( Map<String,String> values ) {
+        Preconditions.checkNotNull( values, "values cannot be null" );
+        this.values.putAll( values );
+        this.parent = null;
+    }
+
+
+    /**
+     * Creates a source layered over a parent source. Keys without a value or
+     * override in this source are read from the parent, but the parent is
+     * never changed and changes to it are not dispatched to the callbacks of
+     * this source.
+     *
+     * @param parent the parent source
+     */
+    public MemoryConfigSource( ConfigSource parent ) {
+        Preconditions.checkNotNull( parent, "parent cannot be null" );
+        this.parent = parent;
+    }
+
+
+    /**
+     * Sets the value of a key.
+     *
+     * @param key the property key
+     * @param value the value, or null to remove the key
+     */
+    public void setValue( String key, String value ) {
+        Preconditions.checkNotNull( key, "key cannot be null" );
+        String before = getValue( key );
+        OptionLayer layerBefore = getLayer( key );
+
+        if ( value == null ) {
+            values.remove( key );
+        }
+        else {
+            values.put( key, value );
+        }
+
+        changed( key, before, layerBefore );
+    }
+
+
+    /**
+     * Sets the values of several keys.
+     *
+     * @param entries the values by key, null values removing their keys
+     */
+    public void setValues( Map<String,String> entries ) {
+        Preconditions.checkNotNull( entries, "entries cannot be null" );
+
+        for ( Map.Entry<String,String> entry : entries.entrySet() ) {
+            setValue( entry.getKey(), entry.getValue() );
+        }
+    }
+
+
+    /**
+     * Removes all values and overrides of this source, running the callbacks
+     * of the keys whose values change. The values of a parent source show
+     * through again.
+     */
+    public void clear() {
+        Map<String,String> before = new HashMap<String, String>();
+        Map<String,OptionLayer> layersBefore = new HashMap<String, OptionLayer>();
+
+        for ( String key : values.keySet() ) {
+            before.put( key, getValue( key ) );
+            layersBefore.put( key, getLayer( key ) );
+        }
+
+        for ( String key : overrides.keySet() ) {
+            before.put( key, getValue( key ) );
+            layersBefore.put( key, getLayer( key ) );
+        }
+
+        values.clear();
+        overrides.clear();
+
+        for ( Map.Entry<String,String> entry : before.entrySet() ) {
+            changed( entry.getKey(), entry.getValue(), layersBefore.get( entry.getKey() ) );
+        }
+    }
+
+
+    /**
+     * Removes the callbacks of all keys.
+     */
+    void clearCallbacks() {
+        callbacks.clear();
+    }
+
+
+    @Override
+    public String getValue( String key ) {
+        String override = overrides.get( key );
+
+        if ( override != null ) {
+            return override;
+        }
+
+        String value = values.get( key );
+        return value != null || parent == null ? value : parent.getValue( key );
+    }
+
+
+    @Override
+    public OptionLayer getLayer( String key ) {
+        if ( overrides.containsKey( key ) ) {
+            return OptionLayer.RUNTIME;
+        }
+
+        if ( values.containsKey( key ) ) {
+            return OptionLayer.CONFIGURATION;
+        }
+
+        return parent == null ? null : parent.getLayer( key );
+    }
+
+
+    @Override
+    public Iterator<String> getKeys( String prefix ) {
+        Set<String> keys = new TreeSet<String>();
+
+        for ( String key : values.keySet() ) {
+            if ( key.startsWith( prefix ) ) {
+                keys.add( key );
+            }
+        }
+
+        for ( String key : overrides.keySet() ) {
+            if ( key.startsWith( prefix ) ) {
+                keys.add( key );
+            }
+        }
+
+        if ( parent != null ) {
+            for ( Iterator<String> parentKeys = parent.getKeys( prefix ); parentKeys.hasNext(); ) {
+                keys.add( parentKeys.next() );
+            }
+        }
+
+        return keys.iterator();
+    }
+
+
+    @Override
+    public void setOverride( String key, Object value ) {
+        Preconditions.checkNotNull( key, "key cannot be null" );
+        Preconditions.checkNotNull( value, "override cannot be null" );
+
+        String before = getValue( key );
+        OptionLayer layerBefore = getLayer( key );
+        overrides.put( key, value.toString() );
+        changed( key, before, layerBefore );
+    }
+
+
+    @Override
+    public void clearOverride( String key ) {
+        String before = getValue( key );
+        OptionLayer layerBefore = getLayer( key );
+        overrides.remove( key );
+        changed( key, before, layerBefore );
+    }
+
+
+    @Override
+    public void addCallback( String key, Runnable callback ) {
+        Preconditions.checkNotNull( callback, "callback cannot be null" );
+        List<WeakReference<Runnable>> list = callbacks.get( key );
+
+        if ( list == null ) {
+            List<WeakReference<Runnable>> created = new CopyOnWriteArrayList<WeakReference<Runnable>>();
+            list = callbacks.putIfAbsent( key, created );
+
+            if ( list == null ) {
+                list = created;
+            }
+        }
+
+        prune( list );
+        list.add( new WeakReference<Runnable>( callback ) );
+    }
+
+
+    /**
+     * Gets the number of callbacks registered for a key which were not collected.
+     *
+     * @param key the property key
+     * @return the number of callbacks
+     */
+    int getCallbackCount( String key ) {
+        List<WeakReference<Runnable>> list = callbacks.get( key );
+
+        if ( list == null ) {
+            return 0;
+        }
+
+        prune( list );
+        return list.size();
+    }
+
+
+    /**
+     * Runs the callbacks of a key if its value or the layer of its value changed.
+     */
+    private void changed( String key, String before, OptionLayer layerBefore ) {
+        List<WeakReference<Runnable>> list = callbacks.get( key );
+
+        if ( list == null || ( Objects.equal( before, getValue( key ) ) && layerBefore == getLayer( key ) ) ) {
+            return;
+        }
+
+        boolean collected = false;
+
+        for ( WeakReference<Runnable> reference : list ) {
+            Runnable callback = reference.get();
+
+            if ( callback == null ) {
+                collected = true;
+                continue;
+            }
+
+            try {
+                callback.run();
+            }
+            catch ( RuntimeException e ) {
+                LOG.error( "Failed to dispatch the change of key {}", key, e );
+            }
+        }
+
+        if ( collected ) {
+            prune( list );
+        }
+    }
+
+
+    /**
+     * Drops the collected callbacks of a key.
+     */
+    private static void prune( List<WeakReference<Runnable>> list ) {
+        list.removeIf( new Predicate<WeakReference<Runnable>>() {
+            @Override
+            public boolean test( WeakReference<Runnable> reference ) {
+                return reference.get() == null;
+            }
+        } );
+    }
+}
@@ -0,0 +1,156 @@
+package io.subutai.guicyfig;
+
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Supplier;
+
+
+/**
+ * A {@link MetricsSink} keeping the metrics in memory, to check them in tests.
+ *
+ * @since 4.1
+ */
+public class MemoryMetricsSink implements MetricsSink {
+    private final ConcurrentMap<String,ConcurrentMap<String,LongAdder>> counts =
+            new ConcurrentHashMap<String, ConcurrentMap<String, LongAdder>>();
+    private final ConcurrentMap<String,ConcurrentMap<String,LongAdder>> timings =
+            new ConcurrentHashMap<String, ConcurrentMap<String, LongAdder>>();
+    private final ConcurrentMap<String,ConcurrentMap<String,LongAdder>> nanos =
+            new ConcurrentHashMap<String, ConcurrentMap<String, LongAdder>>();
+    private final ConcurrentMap<String,Supplier<? extends Number>> gauges =
+            new ConcurrentHashMap<String, Supplier<? extends Number>>();
+
+
+    @Override
+    public void count( String name, String tag ) {
+        adder( counts, name, tag ).increment();
+    }
+
+
+    @Override
+    public void time( String name, String tag, long nanos ) {
+        adder( timings, name, tag ).increment();
+        adder( this.nanos, name, tag ).add( nanos );
+    }
+
+
+    @Override
+    public void gauge( String name, Supplier<? extends Number> value ) {
+        gauges.put( name, value );
+    }
+
+
+    private static LongAdder adder( ConcurrentMap<String,ConcurrentMap<String,LongAdder>> meters, String name,
+                                    String tag ) {
+        ConcurrentMap<String,LongAdder> byTag = meters.get( name );
+
+        if ( byTag == null ) {
+            ConcurrentMap<String,LongAdder> created = new ConcurrentHashMap<String, LongAdder>();
+            byTag = meters.putIfAbsent( name, created );
+            byTag = byTag == null ? created : byTag;
+        }
+
+        LongAdder adder = byTag.get( tag );
+
+        if ( adder == null ) {
+            LongAdder created = new LongAdder();
+            adder = byTag.putIfAbsent( tag, created );
+            adder = adder == null ? created : adder;
+        }
+
+        return adder;
+    }
+
+
+    private static long sum( ConcurrentMap<String,ConcurrentMap<String,LongAdder>> meters, String name,
+                             String tag ) {
+        Map<String,LongAdder> byTag = meters.get( name );
+
+        if ( byTag == null ) {
+            return 0;
+        }
+
+        if ( tag != null ) {
+            LongAdder adder = byTag.get( tag );
+            return adder == null ? 0 : adder.sum();
+        }
+
+        long sum = 0;
+        for ( LongAdder adder : byTag.values() ) {
+            sum += adder.sum();
+        }
+
+        return sum;
+    }
+
+
+    /**
+     * Gets a count for all tags.
+     *
+     * @param name the name of the counter
+     * @return the number of events counted
+     */
+    public long getCount( String name ) {
+        return sum( counts, name, null );
+    }
+
+
+    /**
+     * Gets a count for a tag.
+     *
+     * @param name the name of the counter
+     * @param tag the tag
+     * @return the number of events counted with the tag
+     */
+    public long getCount( String name, String tag ) {
+        return sum( counts, name, tag );
+    }
+
+
+    /**
+     * Gets the number of durations recorded by a timer for all tags.
+     *
+     * @param name the name of the timer
+     * @return the number of durations recorded
+     */
+    public long getTimings( String name ) {
+        return sum( timings, name, null );
+    }
+
+
+    /**
+     * Gets the sum of the durations recorded by a timer for all tags.
+     *
+     * @param name the name of the timer
+     * @return the total duration in nanoseconds
+     */
+    public long getTotalNanos( String name ) {
+        return sum( nanos, name, null );
+    }
+
+
+    /**
+     * Samples a gauge.
+     *
+     * @param name the name of the gauge
+     * @return the current value of the gauge, or null if no such gauge was registered
+     */
+    public Number getGauge( String name ) {
+        Supplier<? extends Number> gauge = gauges.get( name );
+        return gauge == null ? null : gauge.get();
+    }
+
+
+    /**
+     * Forgets all counts and durations. Gauges stay registered.
+     */
+    public void reset() {
+        counts.clear();
+        timings.clear();
+        nanos.clear();
+    }
+}
@@ -0,0 +1,44 @@
+package io.subutai.guicyfig;
+
+
+import com.google.common.base.Supplier;
+
+
+/**
+ * The service provider interface metrics of the configuration subsystem are
+ * published through, to be bound to a metrics library. Meters are identified
+ * by the names defined in {@link FigMetrics} and tagged with the key or
+ * configuration interface they are about. Implementations must be thread safe
+ * and should not block: they are called on the threads creating
+ * configuration objects and propagating changes.
+ *
+ * @since 4.1
+ */
+public interface MetricsSink {
+    /**
+     * Counts an event.
+     *
+     * @param name the name of the counter
+     * @param tag the key or configuration interface the event is about
+     */
+    void count( String name, String tag );
+
+
+    /**
+     * Records the duration of an operation.
+     *
+     * @param name the name of the timer
+     * @param tag the key or configuration interface the operation is about
+     * @param nanos the duration in nanoseconds
+     */
+    void time( String name, String tag, long nanos );
+
+
+    /**
+     * Registers a gauge sampled by the metrics library whenever it wants.
+     *
+     * @param name the name of the gauge
+     * @param value the current value of the gauge
+     */
+    void gauge( String name, Supplier<? extends Number> value );
+}
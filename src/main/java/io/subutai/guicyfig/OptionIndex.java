@@ -0,0 +1,144 @@
+package io.subutai.guicyfig;
+
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.netflix.config.DynamicProperty;
+
+
+/**
+ * The index of the change callbacks of the options of all configuration
+ * instances by key. Each key registers a single callback with its Archaius
+ * dynamic property, which dispatches to the options of that key only: a
+ * change to a key costs a lookup and the callbacks of that key, no matter how
+ * many keys and configuration instances exist.
+ *
+ * Option callbacks are held weakly, so the index does not keep configuration
+ * instances alive: their callbacks are dropped once they are collected.
+ */
+final class OptionIndex {
+    private static final Logger LOG = LoggerFactory.getLogger( OptionIndex.class );
+
+    private static final ConcurrentMap<String,Dispatcher> dispatchers = new ConcurrentHashMap<String, Dispatcher>();
+
+
+    private OptionIndex() {
+    }
+
+
+    /**
+     * Registers the change callback of an option. The callback is held weakly
+     * and must be kept reachable by its option.
+     *
+     * @param property the dynamic property of the option's key
+     * @param callback the callback to run when the property's value changes
+     */
+    static void register( DynamicProperty property, Runnable callback ) {
+        Dispatcher dispatcher = dispatchers.get( property.getName() );
+
+        if ( dispatcher == null ) {
+            Dispatcher created = new Dispatcher( property.getName() );
+            dispatcher = dispatchers.putIfAbsent( property.getName(), created );
+
+            if ( dispatcher == null ) {
+                dispatcher = created;
+                property.addCallback( dispatcher );
+            }
+        }
+
+        dispatcher.add( callback );
+    }
+
+
+    /**
+     * Gets the number of option callbacks registered for a key whose options were not collected.
+     *
+     * @param key the property key
+     * @return the number of callbacks
+     */
+    static int size( String key ) {
+        Dispatcher dispatcher = dispatchers.get( key );
+
+        if ( dispatcher == null ) {
+            return 0;
+        }
+
+        dispatcher.prune();
+        return dispatcher.callbacks.size();
+    }
+
+
+    /**
+     * Gets the number of keys with a callback registered with their dynamic property.
+     *
+     * @return the number of keys
+     */
+    static int keys() {
+        return dispatchers.size();
+    }
+
+
+    private static final class Dispatcher implements Runnable {
+        private final String key;
+        private final List<WeakReference<Runnable>> callbacks = new CopyOnWriteArrayList<WeakReference<Runnable>>();
+
+
+        private Dispatcher( String key ) {
+            this.key = key;
+        }
+
+
+        private void add( Runnable callback ) {
+            prune();
+            callbacks.add( new WeakReference<Runnable>( callback ) );
+        }
+
+
+        /**
+         * Drops the callbacks of collected options.
+         */
+        private void prune() {
+            callbacks.removeIf( new Predicate<WeakReference<Runnable>>() {
+                @Override
+                public boolean test( WeakReference<Runnable> reference ) {
+                    return reference.get() == null;
+                }
+            } );
+        }
+
+
+        @Override
+        public void run() {
+            boolean collected = false;
+
+            for ( WeakReference<Runnable> reference : callbacks ) {
+                Runnable callback = reference.get();
+
+                if ( callback == null ) {
+                    collected = true;
+                    continue;
+                }
+
+                // a failing listener of one configuration instance must not starve the others
+                try {
+                    callback.run();
+                }
+                catch ( RuntimeException e ) {
+                    LOG.error( "Failed to dispatch the change of key {}", key, e );
+                }
+            }
+
+            if ( collected ) {
+                prune();
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package io.subutai.guicyfig;
+
+
+/**
+ * The layer of the configuration an option's effective value comes from, see
+ * {@link OptionState#getLayer()}. Layers are declared from the highest
+ * precedence to the lowest.
+ *
+ * @since 4.1
+ */
+public enum OptionLayer {
+    /** A bypass of the option on the configuration object */
+    BYPASS,
+    /** An override of the option on the configuration object, set with Overrides or override() */
+    OVERRIDE,
+    /** A runtime override of the key in the configuration source */
+    RUNTIME,
+    /** A system property or an environment variable */
+    SYSTEM,
+    /** Any other configuration of the source: configuration files, dynamic sources or set values */
+    CONFIGURATION,
+    /** An environment specific defaults file of the configuration interface, such as BarFig-prod.properties */
+    ENVIRONMENT_DEFAULTS,
+    /** The defaults file of the configuration interface, such as BarFig.properties */
+    DEFAULTS_FILE,
+    /** The Default annotation of the option's method */
+    DEFAULT_ANNOTATION,
+    /** Nowhere: the option has no value */
+    NONE
+}
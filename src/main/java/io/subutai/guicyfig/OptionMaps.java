@@ -0,0 +1,49 @@
+package io.subutai.guicyfig;
+
+
+import java.util.Map;
+import java.util.SortedMap;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.collect.Maps;
+
+
+/**
+ * Utilities for slicing large Maps of configuration entries.
+ *
+ * @since 4.1
+ */
+public final class OptionMaps {
+
+    private OptionMaps() {
+    }
+
+
+    /**
+     * Gets a live view of the entries of a Map whose keys start with a prefix,
+     * without copying. For a {@link SortedMap} in the natural order of its keys
+     * the view is a sub map: slicing costs a lookup and iterating the slice
+     * costs as much as its size. Other Maps are filtered while iterated.
+     *
+     * @param entries the Map of entries
+     * @param prefix the prefix of the keys to view
+     * @return a view of the entries whose keys start with the prefix
+     */
+    public static <V> Map<String,V> withPrefix( Map<String,V> entries, final String prefix ) {
+        Preconditions.checkNotNull( entries, "entries cannot be null" );
+        Preconditions.checkNotNull( prefix, "prefix cannot be null" );
+
+        if ( entries instanceof SortedMap && ( ( SortedMap<String,V> ) entries ).comparator() == null ) {
+            // every key starting with the prefix sorts before prefix + the largest char
+            return ( ( SortedMap<String,V> ) entries ).subMap( prefix, prefix + Character.MAX_VALUE );
+        }
+
+        return Maps.filterKeys( entries, new Predicate<String>() {
+            @Override
+            public boolean apply( String key ) {
+                return key != null && key.startsWith( prefix );
+            }
+        } );
+    }
+}
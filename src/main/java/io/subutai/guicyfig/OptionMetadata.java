@@ -0,0 +1,272 @@
+package io.subutai.guicyfig;
+
+
+import java.lang.reflect.Method;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+
+
+/**
+ * The immutable, instance independent description of a configuration option:
+ * its key, its method and its default value already converted to the type
+ * the option's dynamic property expects.
+ */
+class OptionMetadata {
+    private final String key;
+    private final String name;
+    private final String defaultValue;
+    private final OptionLayer defaultLayer;
+    private final Object typedDefault;
+    private final Method method;
+    private final Converter<?> converter;
+    private final boolean supported;
+    private final String defaultError;
+
+
+    OptionMetadata( String key, @Nullable String defaultValue, Method method ) {
+        this( key, key, defaultValue, method );
+    }
+
+
+    OptionMetadata( String key, String name, @Nullable String defaultValue, Method method ) {
+        this( key, name, defaultValue, defaultLayer( defaultValue, method ), method );
+    }
+
+
+    /**
+     * Creates an option whose default comes from a known layer.
+     *
+     * @param key the key of the option
+     * @param name the name of the option relative to its key base
+     * @param defaultValue the default value, or null if it has none
+     * @param defaultLayer the layer the default value comes from
+     * @param method the configuration interface method
+     */
+    OptionMetadata( String key, String name, @Nullable String defaultValue, OptionLayer defaultLayer, Method method ) {
+        Preconditions.checkNotNull( key, "key cannot be null" );
+        Preconditions.checkNotNull( defaultLayer, "default layer cannot be null for option with key {}", key );
+        Preconditions.checkNotNull( method, "method cannot be null for option with key {}", key );
+
+        this.key = key;
+        this.name = name;
+        this.defaultValue = defaultValue;
+        this.defaultLayer = defaultLayer;
+        this.method = method;
+
+        if ( isNative( method.getReturnType() ) && method.getAnnotation( Convert.class ) == null ) {
+            this.converter = null;
+            this.supported = true;
+        }
+        else {
+            this.converter = Converters.forMethod( method );
+            this.supported = converter != null;
+        }
+
+        Object typed = null;
+        String error = null;
+
+        if ( converter != null ) {
+            // converted types are backed by string properties
+            typed = defaultValue;
+        }
+        else if ( supported ) {
+            try {
+                typed = parseDefault( method.getReturnType(), defaultValue );
+            }
+            catch ( NumberFormatException e ) {
+                // reported by the validator along with the other errors of the interface
+                error = "not a valid " + method.getReturnType().getSimpleName();
+            }
+        }
+
+        this.typedDefault = typed;
+        this.defaultError = error;
+    }
+
+
+    /**
+     * Checks if a type is directly backed by a typed Archaius dynamic property
+     * rather than converted from a dynamic String property.
+     *
+     * @param type the return type of a configuration interface method
+     * @return true if natively supported, false if a converter is needed
+     */
+    static boolean isNative( Class<?> type ) {
+        return type.equals( int.class ) || type.equals( Integer.class )
+                || type.equals( long.class ) || type.equals( Long.class )
+                || type.equals( float.class ) || type.equals( Float.class )
+                || type.equals( double.class ) || type.equals( Double.class )
+                || type.equals( boolean.class ) || type.equals( Boolean.class )
+                || type.equals( String.class ) || type.isEnum();
+    }
+
+
+    private static OptionLayer defaultLayer( @Nullable String defaultValue, Method method ) {
+        if ( defaultValue == null ) {
+            return OptionLayer.NONE;
+        }
+
+        return method.getAnnotation( Default.class ) != null ? OptionLayer.DEFAULT_ANNOTATION : OptionLayer.DEFAULTS_FILE;
+    }
+
+
+    private static Object parseDefault( Class<?> type, @Nullable String defval ) {
+        if ( type.equals( int.class ) || type.equals( Integer.class ) ) {
+            return ( defval == null ) ? 0 : Integer.parseInt( defval );
+        }
+
+        if ( type.equals( long.class ) || type.equals( Long.class ) ) {
+            return ( defval == null ) ? 0L : Long.parseLong( defval );
+        }
+
+        if ( type.equals( float.class ) || type.equals( Float.class ) ) {
+            return ( defval == null ) ? 0f : Float.parseFloat( defval );
+        }
+
+        if ( type.equals( double.class ) || type.equals( Double.class ) ) {
+            return ( defval == null ) ? 0d : Double.parseDouble( defval );
+        }
+
+        if ( type.equals( boolean.class ) || type.equals( Boolean.class ) ) {
+            return ( defval != null ) && Boolean.parseBoolean( defval );
+        }
+
+        // strings and enumerations are backed by string properties
+        return defval;
+    }
+
+
+    /**
+     * Parses a value of this option as its method returns it, like an override
+     * or bypass value.
+     *
+     * @param value the String value
+     * @return the parsed value
+     * @throws IllegalArgumentException if the value is not valid for the option
+     */
+    Object parse( String value ) {
+        Preconditions.checkState( supported, "option with key %s is not supported", key );
+
+        try {
+            if ( converter != null ) {
+                return value == null ? null : converter.convert( value );
+            }
+
+            if ( method.getReturnType().isEnum() ) {
+                return value == null ? null : EnumUtils.getEnumInstance( value, method.getReturnType() );
+            }
+
+            return parseDefault( method.getReturnType(), value );
+        }
+        catch ( IllegalArgumentException e ) {
+            throw e;
+        }
+        catch ( RuntimeException e ) {
+            throw new IllegalArgumentException( e.getMessage(), e );
+        }
+    }
+
+
+    private OptionMetadata( OptionMetadata other, String key ) {
+        this.key = key;
+        this.name = other.name;
+        this.defaultValue = other.defaultValue;
+        this.defaultLayer = other.defaultLayer;
+        this.typedDefault = other.typedDefault;
+        this.method = other.method;
+        this.converter = other.converter;
+        this.supported = other.supported;
+        this.defaultError = other.defaultError;
+    }
+
+
+    /**
+     * Copies this option for another key, as used by sections scoped under a prefix.
+     *
+     * @param key the key of the copy
+     * @return the copy sharing everything but the key with this option
+     */
+    OptionMetadata withKey( String key ) {
+        return new OptionMetadata( this, key );
+    }
+
+
+    String getKey() {
+        return key;
+    }
+
+
+    /**
+     * Gets the layer the default value comes from.
+     *
+     * @return the layer, {@link OptionLayer#NONE} if the option has no default
+     */
+    OptionLayer getDefaultLayer() {
+        return defaultLayer;
+    }
+
+
+    /**
+     * Gets the name of the option relative to its key base: the {@link Key}
+     * value or otherwise the method name.
+     *
+     * @return the relative name of the option
+     */
+    String getName() {
+        return name;
+    }
+
+
+    Method getMethod() {
+        return method;
+    }
+
+
+    /**
+     * Gets the default value as it appeared in the defaults files or {@link Default}
+     * annotation.
+     *
+     * @return the raw default value, or null if there is none
+     */
+    String getDefaultValue() {
+        return defaultValue;
+    }
+
+
+    /**
+     * Gets the default value converted to the type of the option's dynamic property.
+     *
+     * @return the typed default value
+     */
+    Object getTypedDefault() {
+        return typedDefault;
+    }
+
+
+    /**
+     * Gets the converter for options backed by a String property whose values are
+     * converted to the method return type.
+     *
+     * @return the converter, or null if the option is natively supported
+     */
+    Converter<?> getConverter() {
+        return converter;
+    }
+
+
+    boolean isSupported() {
+        return supported;
+    }
+
+
+    /**
+     * Gets why the default value cannot be used as the option's typed default.
+     *
+     * @return the error, or null if the default value is valid
+     */
+    String getDefaultError() {
+        return defaultError;
+    }
+}
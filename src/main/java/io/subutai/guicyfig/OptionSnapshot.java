@@ -0,0 +1,126 @@
+package io.subutai.guicyfig;
+
+
+import java.beans.ConstructorProperties;
+
+
+/**
+ * The state of an option at the time a {@link FigSnapshot} was taken.
+ *
+ * @since 4.1
+ */
+public final class OptionSnapshot {
+    private final String key;
+    private final String value;
+    private final String layer;
+    private final boolean overridden;
+    private final boolean bypassed;
+    private final long reads;
+    private final long overrideHits;
+    private final long bypassHits;
+    private final long lastRead;
+
+
+    @ConstructorProperties( {
+            "key", "value", "layer", "overridden", "bypassed", "reads", "overrideHits", "bypassHits", "lastRead"
+    } )
+    public OptionSnapshot( String key, String value, String layer, boolean overridden, boolean bypassed, long reads,
+                           long overrideHits, long bypassHits, long lastRead ) {
+        this.key = key;
+        this.value = value;
+        this.layer = layer;
+        this.overridden = overridden;
+        this.bypassed = bypassed;
+        this.reads = reads;
+        this.overrideHits = overrideHits;
+        this.bypassHits = bypassHits;
+        this.lastRead = lastRead;
+    }
+
+
+    static OptionSnapshot of( OptionState option ) {
+        InternalOptionState state = ( InternalOptionState ) option;
+        Object value = state.getEffectiveValue();
+        OptionStats stats = state.getStats();
+
+        return new OptionSnapshot( state.getKey(), value == null ? null : value.toString(), state.getLayer().name(),
+                state.isOverridden(), state.isBypassed(), stats.getReads(), stats.getOverrideHits(),
+                stats.getBypassHits(), stats.getLastRead() );
+    }
+
+
+    /**
+     * Takes a snapshot of an option which was never accessed, and so has
+     * neither override nor bypass nor statistics.
+     */
+    static OptionSnapshot unread( String key, Object value, OptionLayer layer ) {
+        return new OptionSnapshot( key, value == null ? null : value.toString(), layer.name(), false, false, 0, 0, 0,
+                0 );
+    }
+
+
+    public String getKey() {
+        return key;
+    }
+
+
+    /**
+     * Gets the effective value: the bypass value if bypassed, else the override
+     * if overridden, else the configured or default value.
+     *
+     * @return the effective value as a String, or null if it has none
+     */
+    public String getValue() {
+        return value;
+    }
+
+
+    /**
+     * Gets the layer the effective value comes from.
+     *
+     * @return the name of the {@link OptionLayer}
+     */
+    public String getLayer() {
+        return layer;
+    }
+
+
+    public boolean isOverridden() {
+        return overridden;
+    }
+
+
+    public boolean isBypassed() {
+        return bypassed;
+    }
+
+
+    /** @see OptionStats#getReads() */
+    public long getReads() {
+        return reads;
+    }
+
+
+    /** @see OptionStats#getOverrideHits() */
+    public long getOverrideHits() {
+        return overrideHits;
+    }
+
+
+    /** @see OptionStats#getBypassHits() */
+    public long getBypassHits() {
+        return bypassHits;
+    }
+
+
+    /** @see OptionStats#getLastRead() */
+    public long getLastRead() {
+        return lastRead;
+    }
+
+
+    @Override
+    public String toString() {
+        return key + "=" + value + " (" + layer + ")";
+    }
+}
@@ -16,4 +16,25 @@ public interface OptionState<V> {
     boolean isOverridden();
     Option getBypass();
     boolean isBypassed();
+
+
+    /**
+     * Gets the access statistics of this option, gathered while
+     * {@link OptionStats#isEnabled() enabled}.
+     *
+     * @return the access statistics
+     * @since 4.1
+     */
+    OptionStats getStats();
+
+
+    /**
+     * Gets the layer of the configuration the effective value of this option
+     * comes from. It is kept up to date as the option changes rather than
+     * looked up when asked for.
+     *
+     * @return the layer of the effective value
+     * @since 4.1
+     */
+    OptionLayer getLayer();
 }
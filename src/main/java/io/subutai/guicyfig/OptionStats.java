@@ -0,0 +1,124 @@
+package io.subutai.guicyfig;
+
+
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Access statistics of an option: how often its getter was called, how many
+ * of those calls returned an override or bypass value, and when it was last
+ * called. They help finding options nobody reads any more and hot options.
+ *
+ * Statistics are only gathered while enabled, with {@link #setEnabled(boolean)}
+ * or the {@value #ENABLED_PROPERTY} system property; otherwise getters pay a
+ * single volatile read for them. The counters are striped so reads of the same
+ * option from many threads do not contend.
+ *
+ * @since 4.1
+ */
+public final class OptionStats {
+    /** System property enabling the statistics at startup */
+    public static final String ENABLED_PROPERTY = "guicyfig.stats";
+
+    private static volatile boolean enabled = Boolean.getBoolean( ENABLED_PROPERTY );
+
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder overrideHits = new LongAdder();
+    private final LongAdder bypassHits = new LongAdder();
+    private volatile long lastRead;
+
+
+    OptionStats() {
+    }
+
+
+    /**
+     * Enables or disables gathering statistics for all options.
+     *
+     * @param enabled true to gather statistics, false to stop
+     */
+    public static void setEnabled( boolean enabled ) {
+        OptionStats.enabled = enabled;
+    }
+
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+
+    void recordRead( boolean bypassed, boolean overridden ) {
+        reads.increment();
+
+        if ( bypassed ) {
+            bypassHits.increment();
+        }
+        else if ( overridden ) {
+            overrideHits.increment();
+        }
+
+        // written at most once a millisecond to keep the cache line mostly shared
+        long now = System.currentTimeMillis();
+        if ( now != lastRead ) {
+            lastRead = now;
+        }
+    }
+
+
+    /**
+     * Gets the number of reads of the option through its getter.
+     *
+     * @return the number of reads
+     */
+    public long getReads() {
+        return reads.sum();
+    }
+
+
+    /**
+     * Gets the number of reads which returned the option's override.
+     *
+     * @return the number of overridden reads
+     */
+    public long getOverrideHits() {
+        return overrideHits.sum();
+    }
+
+
+    /**
+     * Gets the number of reads which returned the option's bypass value.
+     *
+     * @return the number of bypassed reads
+     */
+    public long getBypassHits() {
+        return bypassHits.sum();
+    }
+
+
+    /**
+     * Gets the time of the last read.
+     *
+     * @return the time of the last read in milliseconds since the epoch, or 0 if never read
+     */
+    public long getLastRead() {
+        return lastRead;
+    }
+
+
+    /**
+     * Resets the statistics.
+     */
+    public void reset() {
+        reads.reset();
+        overrideHits.reset();
+        bypassHits.reset();
+        lastRead = 0;
+    }
+
+
+    @Override
+    public String toString() {
+        return "reads=" + getReads() + ", overrideHits=" + getOverrideHits() + ", bypassHits=" + getBypassHits()
+                + ", lastRead=" + lastRead;
+    }
+}
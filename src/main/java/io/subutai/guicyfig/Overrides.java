@@ -45,9 +45,19 @@ public @interface Overrides {
     Option[] options();
 
     /**
-     * The environments in which to apply these Overrides.
+     * The environments in which to apply these Overrides. If neither these
+     * nor {@link #environmentNames()} are provided the Overrides apply in all
+     * environments.
      *
      * @return the environments in which to apply the Overrides
      */
-    Env[] environments() default Env.ALL;
+    Env[] environments() default {};
+
+    /**
+     * The names of registered {@link Environment}s in which to apply these
+     * Overrides. Environments inheriting from a named environment match as well.
+     *
+     * @return the names of the environments in which to apply the Overrides
+     */
+    String[] environmentNames() default {};
 }
@@ -15,6 +15,7 @@ import java.util.Set;
 @SuppressWarnings( "ClassExplicitlyAnnotation" )
 class OverridesImpl implements Overrides {
     private final Set<Env> environments = new HashSet<Env>();
+    private final Set<String> environmentNames = new HashSet<String>();
     private final Map<String,Option> options = new HashMap<String, Option>();
     private final String name;
 
@@ -27,6 +28,7 @@ class OverridesImpl implements Overrides {
     OverridesImpl( Overrides overrides ) {
         this.name = overrides.name();
         Collections.addAll( environments, overrides.environments() );
+        Collections.addAll( environmentNames, overrides.environmentNames() );
 
         for ( Option option : overrides.options() ) {
             options.put( option.method(), option );
@@ -73,6 +75,12 @@ class OverridesImpl implements Overrides {
     }
 
 
+    @Override
+    public String[] environmentNames() {
+        return environmentNames.toArray( new String[environmentNames.size()] );
+    }
+
+
     @Override
     public Class<? extends Annotation> annotationType() {
         return Overrides.class;
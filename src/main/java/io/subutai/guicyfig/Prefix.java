@@ -0,0 +1,31 @@
+package io.subutai.guicyfig;
+
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+
+/**
+ * Annotation to scope property keys under a prefix. On a configuration
+ * interface it replaces the interface's canonical name as the base of its
+ * conventional keys. On a method returning a GuicyFig sub-interface, or a
+ * Map of String names to a GuicyFig sub-interface, it names the section of
+ * the properties holding the sub-configuration: the section's keys are the
+ * enclosing base, the prefix, (the map entry name,) and the option name or
+ * its {@link Key} separated by dots.
+ *
+ * For example with a ClusterFig annotated with @Prefix( "cluster" ) and a
+ * method @Prefix( "shards" ) Map&lt;String,ShardFig&gt; getShards() the port
+ * of the shard named "a" is read from cluster.shards.a.getPort.
+ *
+ * @since 4.1
+ */
+@Target( { TYPE, METHOD } )
+@Retention( RUNTIME )
+public @interface Prefix {
+    String value();
+}
@@ -0,0 +1,151 @@
+package io.subutai.guicyfig;
+
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+/**
+ * A lazy, read only Map of named configuration sections sharing a prefix.
+ * The section named "a" of a map with the prefix "cluster.shards" reads its
+ * options from the "cluster.shards.a." keys. Sections are only built when
+ * first accessed and are cached by name; the names of the map are those
+ * found in the configuration under the prefix, and sections with no keys
+ * configured are absent from the map.
+ */
+class SectionMap<F extends GuicyFig> extends AbstractMap<String,F> {
+    private final Class<F> figInterface;
+    private final String prefix;
+    private final boolean singleton;
+    private final ConfigSource source;
+    private final ConcurrentMap<String,F> sections = new ConcurrentHashMap<String, F>();
+
+
+    SectionMap( Class<F> figInterface, String prefix, boolean singleton, ConfigSource source ) {
+        this.figInterface = figInterface;
+        this.prefix = prefix;
+        this.singleton = singleton;
+        this.source = source;
+    }
+
+
+    @Override
+    public F get( Object name ) {
+        if ( ! ( name instanceof String ) || ! isConfigured( ( String ) name ) ) {
+            return null;
+        }
+
+        F section = sections.get( name );
+
+        if ( section == null ) {
+            //noinspection unchecked
+            section = ( F ) GuicyFigModule.getConcreteObject( singleton, figInterface, prefix + '.' + name,
+                    source );
+            F existing = sections.putIfAbsent( ( String ) name, section );
+
+            if ( existing != null ) {
+                section = existing;
+            }
+        }
+
+        return section;
+    }
+
+
+    @Override
+    public boolean containsKey( Object name ) {
+        return name instanceof String && isConfigured( ( String ) name );
+    }
+
+
+    /**
+     * Checks if a section has any keys configured.
+     *
+     * @param name the section name
+     * @return true if a key of the section is configured
+     */
+    private boolean isConfigured( String name ) {
+        if ( name.isEmpty() || name.indexOf( '.' ) >= 0 ) {
+            return false;
+        }
+
+        String sectionPrefix = prefix + '.' + name;
+        Iterator<String> keys = source.getKeys( sectionPrefix );
+
+        while ( keys.hasNext() ) {
+            String key = keys.next();
+
+            if ( key.length() == sectionPrefix.length() || key.charAt( sectionPrefix.length() ) == '.' ) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Gets the names of the sections configured under the prefix.
+     *
+     * @return the section names
+     */
+    Set<String> names() {
+        Set<String> names = new TreeSet<String>();
+        Iterator<String> keys = source.getKeys( prefix );
+
+        while ( keys.hasNext() ) {
+            String key = keys.next();
+
+            if ( key.length() > prefix.length() + 1 && key.charAt( prefix.length() ) == '.' ) {
+                int end = key.indexOf( '.', prefix.length() + 1 );
+                names.add( key.substring( prefix.length() + 1, end < 0 ? key.length() : end ) );
+            }
+        }
+
+        return names;
+    }
+
+
+    @Override
+    public Set<Entry<String,F>> entrySet() {
+        final Set<String> names = names();
+
+        return new AbstractSet<Entry<String, F>>() {
+            @Override
+            public Iterator<Entry<String,F>> iterator() {
+                final Iterator<String> iterator = names.iterator();
+
+                return new Iterator<Entry<String, F>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+
+                    @Override
+                    public Entry<String,F> next() {
+                        String name = iterator.next();
+                        return new SimpleImmutableEntry<String, F>( name, get( name ) );
+                    }
+
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException( "Configuration sections are read only" );
+                    }
+                };
+            }
+
+
+            @Override
+            public int size() {
+                return names.size();
+            }
+        };
+    }
+}
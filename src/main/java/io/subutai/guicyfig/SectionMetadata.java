@@ -0,0 +1,88 @@
+package io.subutai.guicyfig;
+
+
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Map;
+
+
+/**
+ * The description of a configuration interface method returning a nested
+ * configuration section: either a single GuicyFig sub-interface or a Map of
+ * named sections of the same GuicyFig sub-interface.
+ */
+class SectionMetadata {
+    private final Method method;
+    private final String name;
+    private final Class<? extends GuicyFig> figInterface;
+    private final boolean repeated;
+
+
+    private SectionMetadata( Method method, Class<? extends GuicyFig> figInterface, boolean repeated ) {
+        this.method = method;
+        this.figInterface = figInterface;
+        this.repeated = repeated;
+
+        Prefix prefix = method.getAnnotation( Prefix.class );
+        this.name = prefix == null ? method.getName() : prefix.value();
+    }
+
+
+    /**
+     * Describes a method if it returns a configuration section.
+     *
+     * @param method the configuration interface method
+     * @return the section metadata, or null if the method does not return a section
+     */
+    static SectionMetadata forMethod( Method method ) {
+        Class<?> returnType = method.getReturnType();
+
+        if ( GuicyFig.class.isAssignableFrom( returnType ) && returnType.isInterface() ) {
+            //noinspection unchecked
+            return new SectionMetadata( method, ( Class<? extends GuicyFig> ) returnType, false );
+        }
+
+        if ( returnType == Map.class && method.getGenericReturnType() instanceof ParameterizedType ) {
+            Type[] arguments = ( ( ParameterizedType ) method.getGenericReturnType() ).getActualTypeArguments();
+
+            if ( arguments[0] == String.class && arguments[1] instanceof Class
+                    && GuicyFig.class.isAssignableFrom( ( Class<?> ) arguments[1] ) ) {
+                //noinspection unchecked
+                return new SectionMetadata( method, ( Class<? extends GuicyFig> ) arguments[1], true );
+            }
+        }
+
+        return null;
+    }
+
+
+    Method getMethod() {
+        return method;
+    }
+
+
+    /**
+     * Gets the name of the section relative to the key base of the enclosing configuration.
+     *
+     * @return the section name
+     */
+    String getName() {
+        return name;
+    }
+
+
+    Class<? extends GuicyFig> getFigInterface() {
+        return figInterface;
+    }
+
+
+    /**
+     * Checks if this is a Map of named sections rather than a single section.
+     *
+     * @return true if repeated, false if single
+     */
+    boolean isRepeated() {
+        return repeated;
+    }
+}
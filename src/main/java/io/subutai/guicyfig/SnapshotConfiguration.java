@@ -0,0 +1,102 @@
+package io.subutai.guicyfig;
+
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.netflix.config.ConcurrentMapConfiguration;
+
+
+/**
+ * A configuration source reloaded from snapshots of all of its values. A new
+ * snapshot is diffed against the last one applied and only the keys whose
+ * values were added, changed or removed are set or cleared, so only the
+ * options of those keys are notified. Sources which know what changed can
+ * skip the diff and apply the changes directly.
+ *
+ * @since 4.1
+ */
+public class SnapshotConfiguration extends ConcurrentMapConfiguration {
+    private static final Logger LOG = LoggerFactory.getLogger( SnapshotConfiguration.class );
+
+    private final Map<String,String> snapshot = new HashMap<String, String>();
+
+
+    /**
+     * Applies a snapshot of all values of this source.
+     *
+     * @param values the values of the snapshot
+     * @return the keys which were added, changed or removed
+     */
+    public synchronized Set<String> apply( Map<String,String> values ) {
+        Preconditions.checkNotNull( values, "values cannot be null" );
+
+        Map<String,String> changed = new HashMap<String, String>();
+        Set<String> removed = new HashSet<String>();
+
+        for ( String key : snapshot.keySet() ) {
+            if ( ! values.containsKey( key ) ) {
+                removed.add( key );
+            }
+        }
+
+        for ( Map.Entry<String,String> entry : values.entrySet() ) {
+            if ( ! entry.getValue().equals( snapshot.get( entry.getKey() ) ) ) {
+                changed.put( entry.getKey(), entry.getValue() );
+            }
+        }
+
+        return apply( changed, removed );
+    }
+
+
+    /**
+     * Applies the changes of this source since the last snapshot or changes
+     * applied, without diffing.
+     *
+     * @param changed the values of the added or changed keys
+     * @param removed the removed keys
+     * @return the keys which were added, changed or removed
+     */
+    public synchronized Set<String> apply( Map<String,String> changed, Collection<String> removed ) {
+        Preconditions.checkNotNull( changed, "changed values cannot be null" );
+        Preconditions.checkNotNull( removed, "removed keys cannot be null" );
+
+        Set<String> keys = new HashSet<String>( changed.size() + removed.size() );
+
+        for ( String key : removed ) {
+            if ( snapshot.remove( key ) != null ) {
+                LOG.debug( "Clearing removed key {}", key );
+                clearProperty( key );
+                keys.add( key );
+            }
+        }
+
+        for ( Map.Entry<String,String> entry : changed.entrySet() ) {
+            if ( ! entry.getValue().equals( snapshot.put( entry.getKey(), entry.getValue() ) ) ) {
+                LOG.debug( "Setting changed key {}", entry.getKey() );
+                setProperty( entry.getKey(), entry.getValue() );
+                keys.add( entry.getKey() );
+            }
+        }
+
+        return keys;
+    }
+
+
+    /**
+     * Gets the last snapshot applied.
+     *
+     * @return a copy of the values of the last snapshot
+     */
+    public synchronized Map<String,String> getSnapshot() {
+        return new HashMap<String, String>( snapshot );
+    }
+}
@@ -0,0 +1,264 @@
+package io.subutai.guicyfig;
+
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.netflix.config.ConcurrentCompositeConfiguration;
+import com.netflix.config.ConfigurationManager;
+
+
+/**
+ * A configuration source backed by local properties files which are watched
+ * with a {@link WatchService} instead of being polled. A file is read again
+ * only when the file system reports a change to it, and only the keys whose
+ * values changed are set or cleared: the dynamic properties, and so the
+ * options of configuration interfaces, of all other keys are left alone.
+ *
+ * When several files are watched, files later in the list override the
+ * values of earlier ones. A file that does not exist yet contributes no
+ * values until it is created; one that cannot be read keeps its last values.
+ *
+ * @since 4.1
+ */
+public class WatchedFileConfiguration extends SnapshotConfiguration implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger( WatchedFileConfiguration.class );
+    private static final long SETTLE_MILLIS = 20;
+
+    private final List<Path> files;
+    private final Map<Path,Properties> contents = new HashMap<Path, Properties>();
+    private final WatchService watchService;
+    private final Thread watcher;
+
+
+    /**
+     * Creates a configuration from properties files and starts watching them.
+     *
+     * @param files the properties files, later ones overriding earlier ones
+     * @throws IOException if the directories of the files cannot be watched
+     */
+    public WatchedFileConfiguration( Path... files ) throws IOException {
+        Preconditions.checkArgument( files.length > 0, "at least one file must be watched" );
+
+        this.files = new ArrayList<Path>( files.length );
+        for ( Path file : files ) {
+            this.files.add( file.toAbsolutePath().normalize() );
+        }
+
+        for ( Path file : this.files ) {
+            contents.put( file, read( file, new Properties() ) );
+        }
+
+        apply( merge() );
+
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        Set<Path> directories = new HashSet<Path>();
+        for ( Path file : this.files ) {
+            if ( directories.add( file.getParent() ) ) {
+                file.getParent().register( watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE );
+            }
+        }
+
+        this.watcher = new Thread( new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "guicyfig-watch-" + this.files.get( 0 ).getFileName() );
+        this.watcher.setDaemon( true );
+        this.watcher.start();
+    }
+
+
+    /**
+     * Creates a watched configuration and adds it to the installed Archaius
+     * configuration, ahead of the sources added after it.
+     *
+     * @param name the name of the configuration within the composite configuration
+     * @param files the properties files, later ones overriding earlier ones
+     * @return the watched configuration
+     * @throws IOException if the directories of the files cannot be watched
+     * @throws IllegalStateException if the installed configuration is not a composite one
+     */
+    public static WatchedFileConfiguration install( String name, Path... files ) throws IOException {
+        if ( ! ( ConfigurationManager.getConfigInstance() instanceof ConcurrentCompositeConfiguration ) ) {
+            throw new IllegalStateException( "The installed configuration is not a ConcurrentCompositeConfiguration" );
+        }
+
+        WatchedFileConfiguration configuration = new WatchedFileConfiguration( files );
+        ( ( ConcurrentCompositeConfiguration ) ConfigurationManager.getConfigInstance() )
+                .addConfiguration( configuration, name );
+        return configuration;
+    }
+
+
+    private void watch() {
+        while ( true ) {
+            Set<Path> changed = new HashSet<Path>();
+            WatchKey key;
+
+            try {
+                key = watchService.take();
+            }
+            catch ( InterruptedException e ) {
+                return;
+            }
+            catch ( ClosedWatchServiceException e ) {
+                return;
+            }
+
+            // the change is in flight from the moment it is noticed until it is applied
+            FigPropagation.begin();
+
+            try {
+                // editors often save in several steps: wait for the events to settle
+                // and then reload each changed file once
+                while ( key != null ) {
+                    collect( key, changed );
+                    key = watchService.poll( SETTLE_MILLIS, TimeUnit.MILLISECONDS );
+                }
+
+                if ( ! changed.isEmpty() ) {
+                    reload( changed );
+                }
+            }
+            catch ( InterruptedException e ) {
+                return;
+            }
+            catch ( ClosedWatchServiceException e ) {
+                return;
+            }
+            finally {
+                FigPropagation.end();
+            }
+        }
+    }
+
+
+    private void collect( WatchKey key, Set<Path> changed ) {
+        Path directory = ( Path ) key.watchable();
+
+        for ( WatchEvent<?> event : key.pollEvents() ) {
+            if ( event.kind() == StandardWatchEventKinds.OVERFLOW ) {
+                changed.addAll( files );
+                continue;
+            }
+
+            Path file = directory.resolve( ( Path ) event.context() );
+            if ( files.contains( file ) ) {
+                changed.add( file );
+            }
+        }
+
+        key.reset();
+    }
+
+
+    /**
+     * Reads all watched files again and applies the difference of the merged
+     * values in the calling thread, without waiting for the file system to
+     * report changes. Useful in tests, which then need not wait for changes.
+     */
+    public void reload() {
+        reload( new HashSet<Path>( files ) );
+    }
+
+
+    /**
+     * Reads changed files again and applies the difference of the merged values.
+     *
+     * @param changed the files to read again
+     */
+    synchronized void reload( Set<Path> changed ) {
+        for ( Path file : changed ) {
+            contents.put( file, read( file, contents.get( file ) ) );
+        }
+
+        Set<String> keys = apply( merge() );
+        LOG.debug( "Reloading {} changed keys {}", changed, keys );
+    }
+
+
+    private Map<String,String> merge() {
+        Map<String,String> merged = new LinkedHashMap<String, String>();
+
+        for ( Path file : files ) {
+            Properties properties = contents.get( file );
+
+            for ( String key : properties.stringPropertyNames() ) {
+                merged.put( key, properties.getProperty( key ) );
+            }
+        }
+
+        return merged;
+    }
+
+
+    private static Properties read( Path file, Properties previous ) {
+        Properties properties = new Properties();
+
+        try {
+            InputStream in = Files.newInputStream( file );
+            try {
+                properties.load( in );
+            }
+            finally {
+                in.close();
+            }
+        }
+        catch ( NoSuchFileException e ) {
+            LOG.debug( "Watched file {} does not exist", file );
+        }
+        catch ( IOException e ) {
+            LOG.warn( "Failed to read watched file {}, keeping its last values: {}", file, e.getMessage() );
+            return previous;
+        }
+
+        return properties;
+    }
+
+
+    /**
+     * Gets the watched files.
+     *
+     * @return the absolute paths of the watched files
+     */
+    public List<Path> getFiles() {
+        return new ArrayList<Path>( files );
+    }
+
+
+    /**
+     * Stops watching the files. The last values read stay in this configuration.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        watcher.interrupt();
+    }
+}
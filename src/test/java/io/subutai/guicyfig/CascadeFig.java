@@ -0,0 +1,16 @@
+package io.subutai.guicyfig;
+
+
+/**
+ * Configuration interface with environment specific defaults files.
+ */
+public interface CascadeFig extends GuicyFig {
+    String getName();
+
+    int getPoolSize();
+
+    @Default( "30" )
+    long getTimeout();
+
+    boolean isTuned();
+}
@@ -0,0 +1,128 @@
+package io.subutai.guicyfig;
+
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
+
+
+/**
+ * Tests carrying propagation contexts through cascades of changes.
+ */
+public class ChangeContextTest extends AbstractTest {
+    private static final String BASE = "io.subutai.guicyfig.ServiceFig.";
+
+    private MemoryMetricsSink sink;
+
+
+    @Before
+    public void setUp() {
+        sink = new MemoryMetricsSink();
+        FigMetrics.install( sink );
+    }
+
+
+    @After
+    public void tearDown() {
+        FigMetrics.uninstall();
+        FigPropagation.setMaxCascadeDepth( FigPropagation.DEFAULT_MAX_DEPTH );
+    }
+
+
+    private static ServiceFig fig() {
+        return ( ServiceFig ) GuicyFigModule.getConcreteObject( false, ServiceFig.class, null, new MemoryConfigSource() );
+    }
+
+
+    /**
+     * Records the contexts of the events on a fig and overrides the port of
+     * the next fig with the port it was notified plus one.
+     */
+    private static List<ChangeContext> chain( ServiceFig fig, final ServiceFig next ) {
+        final List<ChangeContext> contexts = new ArrayList<ChangeContext>();
+
+        fig.addPropertyChangeListener( new PropertyChangeListener() {
+            @Override
+            public void propertyChange( PropertyChangeEvent evt ) {
+                contexts.add( ChangeContext.of( evt ) );
+
+                if ( next != null ) {
+                    next.override( "getPort", String.valueOf( ( Integer ) evt.getNewValue() + 1 ) );
+                }
+            }
+        } );
+
+        return contexts;
+    }
+
+
+    @Test
+    public void testCascade() {
+        ServiceFig first = fig();
+        ServiceFig second = fig();
+        List<ChangeContext> firstContexts = chain( first, second );
+        List<ChangeContext> secondContexts = chain( second, null );
+
+        first.override( "getPort", "1" );
+        assertEquals( 2, second.getPort() );
+        assertNull( ChangeContext.current() );
+
+        ChangeContext origin = firstContexts.get( 0 );
+        ChangeContext cascaded = secondContexts.get( 0 );
+        assertEquals( 0, origin.getDepth() );
+        assertEquals( 1, cascaded.getDepth() );
+        assertEquals( origin.getId(), cascaded.getId() );
+        assertEquals( BASE + "getPort", cascaded.getOrigin() );
+        assertEquals( origin, cascaded.getParent() );
+
+        // a later change starts a cascade of its own
+        first.override( "getPort", "5" );
+        assertEquals( origin.getId() + 1, secondContexts.get( 1 ).getId() );
+        assertEquals( 2, sink.getTimings( FigMetrics.CASCADES ) );
+    }
+
+
+    @Test
+    public void testCycleCut() {
+        ServiceFig ping = fig();
+        ServiceFig pong = fig();
+        List<ChangeContext> pingContexts = chain( ping, pong );
+        List<ChangeContext> pongContexts = chain( pong, ping );
+
+        ping.override( "getPort", "1" );
+
+        // ping's listeners are not notified of the change pong's listeners made
+        assertEquals( 1, pingContexts.size() );
+        assertEquals( 1, pongContexts.size() );
+        assertEquals( 3, ping.getPort() );
+        assertEquals( 2, pong.getPort() );
+        assertEquals( 1, sink.getCount( FigMetrics.CASCADES_CUT, BASE + "getPort" ) );
+        assertNull( ChangeContext.current() );
+    }
+
+
+    @Test
+    public void testMaxDepth() {
+        FigPropagation.setMaxCascadeDepth( 1 );
+
+        ServiceFig first = fig();
+        ServiceFig second = fig();
+        ServiceFig third = fig();
+        chain( first, second );
+        chain( second, third );
+        List<ChangeContext> thirdContexts = chain( third, null );
+
+        first.override( "getPort", "1" );
+        assertEquals( 3, third.getPort() );
+        assertEquals( 0, thirdContexts.size() );
+        assertEquals( 1, sink.getCount( FigMetrics.CASCADES_CUT ) );
+    }
+}
@@ -0,0 +1,31 @@
+package io.subutai.guicyfig;
+
+
+import java.util.Map;
+
+
+/**
+ * Configuration interface with nested configuration sections.
+ */
+@Prefix( "cluster" )
+public interface ClusterFig extends GuicyFig {
+    @Default( "test-cluster" )
+    String getName();
+
+    @Prefix( "shards" )
+    Map<String,ShardFig> getShards();
+
+    ShardFig getPrimary();
+
+
+    interface ShardFig extends GuicyFig {
+        @Default( "localhost" )
+        String getHost();
+
+        @Default( "9160" )
+        int getPort();
+
+        @Key( "replicas" )
+        int getReplicas();
+    }
+}
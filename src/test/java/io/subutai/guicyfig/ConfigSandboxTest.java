@@ -0,0 +1,97 @@
+package io.subutai.guicyfig;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import io.subutai.guicyfig.overrides.OverridesSingletonFig;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+
+
+/**
+ * Tests the configuration sandbox rule.
+ */
+public class ConfigSandboxTest extends AbstractTest {
+    private static final String POOL_SIZE = "io.subutai.guicyfig.CascadeFig.getPoolSize";
+
+    @Rule
+    public ConfigSandbox sandbox = new ConfigSandbox();
+
+
+    @Test
+    public void testChangesStayInSandbox() {
+        ServiceFig global = ( ServiceFig ) GuicyFigModule.getConcreteObject( false, ServiceFig.class );
+        ServiceFig fig = sandbox.getFig( ServiceFig.class );
+
+        // the base shows through
+        assertEquals( global.getThreadWaitTime(), fig.getThreadWaitTime() );
+        assertEquals( 10, fig.getMaxConnections() );
+
+        fig.override( "getMaxConnections", "3" );
+        assertEquals( 3, fig.getMaxConnections() );
+        assertEquals( 10, global.getMaxConnections() );
+
+        sandbox.reset();
+        assertEquals( 10, sandbox.getFig( ServiceFig.class ).getMaxConnections() );
+    }
+
+
+    @Test
+    public void testSingletonsReleased() {
+        Injector injector = Guice.createInjector( sandbox.module( OverridesSingletonFig.class ) );
+        injector.getInstance( OverridesSingletonFig.class );
+        assertTrue( GuicyFigModule.hasSingleton( sandbox, OverridesSingletonFig.class ) );
+
+        sandbox.reset();
+        assertFalse( GuicyFigModule.hasSingleton( sandbox, OverridesSingletonFig.class ) );
+    }
+
+
+    @Test
+    public void testParallelSandboxes() throws Exception {
+        final MemoryConfigSource base = new MemoryConfigSource( Collections.singletonMap( POOL_SIZE, "4" ) );
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+
+        for ( int ii = 0; ii < 8; ii++ ) {
+            final int poolSize = ii;
+            tasks.add( new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    ConfigSandbox isolated = new ConfigSandbox( base );
+                    CascadeFig fig = isolated.getFig( CascadeFig.class );
+                    fig.override( "getPoolSize", String.valueOf( poolSize ) );
+                    return fig.getPoolSize();
+                }
+            } );
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        try {
+            List<Future<Integer>> futures = executor.invokeAll( tasks );
+
+            for ( int ii = 0; ii < futures.size(); ii++ ) {
+                assertEquals( ii, futures.get( ii ).get().intValue() );
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        assertEquals( "4", base.getValue( POOL_SIZE ) );
+        assertEquals( 4, new ConfigSandbox( base ).getFig( CascadeFig.class ).getPoolSize() );
+    }
+}
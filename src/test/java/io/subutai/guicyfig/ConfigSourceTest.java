@@ -0,0 +1,130 @@
+package io.subutai.guicyfig;
+
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.netflix.config.DynamicProperty;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+
+/**
+ * Tests configuration interfaces resolved against isolated ConfigSources.
+ */
+public class ConfigSourceTest extends AbstractTest {
+    private static final String NAME = "io.subutai.guicyfig.CascadeFig.getName";
+    private static final String POOL_SIZE = "io.subutai.guicyfig.CascadeFig.getPoolSize";
+
+
+    private static CascadeFig inject( ConfigSource source ) {
+        Injector injector = Guice.createInjector( new GuicyFigModule( source, CascadeFig.class ) );
+        return injector.getInstance( CascadeFig.class );
+    }
+
+
+    @Test
+    public void testIsolatedSources() {
+        MemoryConfigSource tenantA = new MemoryConfigSource( Collections.singletonMap( NAME, "a" ) );
+        MemoryConfigSource tenantB = new MemoryConfigSource( Collections.singletonMap( POOL_SIZE, "2" ) );
+
+        CascadeFig a = inject( tenantA );
+        CascadeFig b = inject( tenantB );
+
+        assertEquals( "a", a.getName() );
+        assertEquals( 8, a.getPoolSize() );
+        assertEquals( "base", b.getName() );
+        assertEquals( 2, b.getPoolSize() );
+        assertEquals( 30L, b.getTimeout() );
+
+        // bad values fall back to the defaults as Archaius properties do
+        tenantB.setValue( POOL_SIZE, "many" );
+        assertEquals( 8, b.getPoolSize() );
+
+        // the process wide Archaius configuration is left alone
+        assertNull( DynamicProperty.getInstance( NAME ).getString() );
+    }
+
+
+    @Test
+    public void testChangesAndOverrides() {
+        MemoryConfigSource source = new MemoryConfigSource();
+        CascadeFig fig = inject( source );
+        final List<String> events = new CopyOnWriteArrayList<String>();
+
+        fig.addPropertyChangeListener( new PropertyChangeListener() {
+            @Override
+            public void propertyChange( PropertyChangeEvent event ) {
+                events.add( event.getPropertyName() + "=" + event.getNewValue() );
+            }
+        } );
+
+        source.setValue( POOL_SIZE, "16" );
+        assertEquals( 16, fig.getPoolSize() );
+        assertEquals( Collections.singletonList( POOL_SIZE + "=16" ), events );
+
+        fig.override( "getPoolSize", "32" );
+        assertEquals( 32, fig.getPoolSize() );
+        assertEquals( "32", source.getValue( POOL_SIZE ) );
+        assertEquals( 2, events.size() );
+
+        fig.override( "getPoolSize", null );
+        assertEquals( 16, fig.getPoolSize() );
+        assertEquals( 3, events.size() );
+
+        // the source's values never reach the process wide Archaius configuration
+        source.setValue( NAME, "changed" );
+        assertEquals( "changed", fig.getName() );
+        assertNull( DynamicProperty.getInstance( NAME ).getString() );
+    }
+
+
+    @Test
+    public void testSectionsResolvedAgainstSource() {
+        MemoryConfigSource source = new MemoryConfigSource();
+        source.setValue( "cluster.shards.east.getHost", "east.example.com" );
+        source.setValue( "cluster.shards.west.getPort", "9999" );
+
+        ClusterFig cluster = ( ClusterFig ) GuicyFigModule.getConcreteObject( false, ClusterFig.class, null, source );
+
+        assertEquals( 2, cluster.getShards().size() );
+        assertEquals( "east.example.com", cluster.getShards().get( "east" ).getHost() );
+        assertEquals( 9999, cluster.getShards().get( "west" ).getPort() );
+        assertTrue( cluster.getShards().containsKey( "west" ) );
+    }
+
+
+    @Test
+    public void testCollectedFigsLeaveSource() throws InterruptedException {
+        MemoryConfigSource source = new MemoryConfigSource();
+        BaseGuicyFig fig = GuicyFigModule.getConcreteObject( false, CascadeFig.class, null, source );
+        String key = fig.getKeyByMethod( "getName" );
+        assertNotNull( ( ( CascadeFig ) fig ).getName() );
+        assertEquals( 1, source.getCallbackCount( key ) );
+        WeakReference<BaseGuicyFig> target = new WeakReference<BaseGuicyFig>( fig.getTarget() );
+
+        //noinspection UnusedAssignment
+        fig = null;
+
+        // the callbacks registered with a long lived source do not keep the configuration alive
+        for ( int ii = 0; ii < 100 && target.get() != null; ii++ ) {
+            System.gc();
+            Thread.sleep( 10 );
+        }
+
+        assertNull( target.get() );
+        source.setValue( key, "changed" );
+        assertEquals( 0, source.getCallbackCount( key ) );
+    }
+}
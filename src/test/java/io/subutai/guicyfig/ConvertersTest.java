@@ -0,0 +1,129 @@
+package io.subutai.guicyfig;
+
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.netflix.config.ConfigurationManager;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+
+/**
+ * Tests Converters and the converted option values.
+ */
+public class ConvertersTest extends AbstractTest {
+
+    @Test
+    public void testDurations() {
+        assertEquals( Duration.ofMillis( 250 ), Converters.parseDuration( "250" ) );
+        assertEquals( Duration.ofMillis( 250 ), Converters.parseDuration( "250ms" ) );
+        assertEquals( Duration.ofSeconds( 30 ), Converters.parseDuration( " 30s " ) );
+        assertEquals( Duration.ofMinutes( 5 ), Converters.parseDuration( "5m" ) );
+        assertEquals( Duration.ofHours( 2 ), Converters.parseDuration( "2h" ) );
+        assertEquals( Duration.ofDays( 1 ), Converters.parseDuration( "1d" ) );
+        assertEquals( Duration.ofSeconds( 30 ), Converters.parseDuration( "PT30S" ) );
+
+        try {
+            Converters.parseDuration( "30 fortnights" );
+            fail( "should not parse unknown units" );
+        }
+        catch ( IllegalArgumentException e ) {
+            // expected
+        }
+    }
+
+
+    @Test
+    public void testDataSizes() {
+        assertEquals( 512, DataSize.parse( "512" ).toBytes() );
+        assertEquals( 64 * 1024, DataSize.parse( "64KB" ).toBytes() );
+        assertEquals( 64, DataSize.parse( "64 mb" ).toMegabytes() );
+        assertEquals( 2, DataSize.parse( "2G" ).toGigabytes() );
+        assertEquals( "64MB", DataSize.parse( "65536k" ).toString() );
+        assertEquals( DataSize.parse( "1024" ), DataSize.parse( "1KB" ) );
+
+        try {
+            DataSize.parse( "12XB" );
+            fail( "should not parse unknown units" );
+        }
+        catch ( IllegalArgumentException e ) {
+            // expected
+        }
+
+        try {
+            DataSize.parse( "9999999999TB" );
+            fail( "should not overflow" );
+        }
+        catch ( IllegalArgumentException e ) {
+            // expected
+        }
+    }
+
+
+    @Test
+    public void testBadArchaiusValue() {
+        String key = "io.subutai.guicyfig.RichFig.getTimeout";
+        RichFig fig = Guice.createInjector( new GuicyFigModule( RichFig.class ) ).getInstance( RichFig.class );
+
+        try {
+            ConfigurationManager.getConfigInstance().setProperty( key, "fast" );
+            assertEquals( Duration.ofSeconds( 30 ), fig.getTimeout() );
+
+            ConfigurationManager.getConfigInstance().setProperty( key, "10s" );
+            assertEquals( Duration.ofSeconds( 10 ), fig.getTimeout() );
+        }
+        finally {
+            ConfigurationManager.getConfigInstance().clearProperty( key );
+        }
+    }
+
+
+    @Test
+    public void testUnsupported() throws NoSuchMethodException {
+        assertNull( Converters.forType( Object.class ) );
+        assertNull( Converters.forType( Thread.class ) );
+    }
+
+
+    @Test
+    public void testRichFig() {
+        RichFig fig = Guice.createInjector( new GuicyFigModule( RichFig.class ) ).getInstance( RichFig.class );
+
+        assertEquals( Duration.ofSeconds( 30 ), fig.getTimeout() );
+        assertEquals( DataSize.parse( "64MB" ), fig.getBufferSize() );
+        assertEquals( Arrays.asList( "a", "b", "c" ), fig.getNames() );
+        assertEquals( new LinkedHashSet<Integer>( Arrays.asList( 1, 2, 3 ) ), fig.getPorts() );
+        assertEquals( 2L, ( long ) fig.getWeights().get( ConfigEnum.TWO ) );
+        assertEquals( URI.create( "http://localhost:8080/api" ), fig.getEndpoint() );
+        assertEquals( InetSocketAddress.createUnresolved( "localhost", 9160 ), fig.getAddress() );
+        assertTrue( fig.getPattern().matcher( "foobar" ).matches() );
+        assertEquals( 2.5, fig.getRatio() );
+        assertEquals( Boolean.TRUE, fig.isEnabled() );
+        assertNull( fig.getUnset() );
+        assertNull( fig.getShout() );
+
+        // converted values are cached until the property changes
+        List<String> names = fig.getNames();
+        assertSame( names, fig.getNames() );
+
+        fig.bypass( "getShout", "quiet" );
+        assertEquals( "QUIET", fig.getShout() );
+
+        fig.override( "getNames", "x,y" );
+        assertEquals( Arrays.asList( "x", "y" ), fig.getNames() );
+        fig.override( "getNames", null );
+        assertEquals( Arrays.asList( "a", "b", "c" ), fig.getNames() );
+    }
+}
@@ -0,0 +1,111 @@
+package io.subutai.guicyfig;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+
+/**
+ * Tests the DefaultsBundle and its DefaultsCompiler.
+ */
+public class DefaultsBundleTest extends AbstractTest {
+    private static final String BASE = "io/subutai/guicyfig/CascadeFig.properties";
+    private static final String PROD = "io/subutai/guicyfig/CascadeFig-prod.properties";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+
+    private DefaultsBundle compile() throws IOException {
+        File file = folder.newFile( "defaults.bin" );
+        OutputStream out = new FileOutputStream( file );
+
+        try {
+            //noinspection unchecked
+            DefaultsCompiler.compile( Collections.<Class<? extends GuicyFig>>singleton( CascadeFig.class ), out );
+        }
+        finally {
+            out.close();
+        }
+
+        return DefaultsBundle.open( file );
+    }
+
+
+    @Test
+    public void testCompiledDefaultsFiles() throws IOException {
+        DefaultsBundle bundle = compile();
+
+        assertTrue( bundle.contains( BASE ) );
+        assertTrue( bundle.contains( PROD ) );
+        assertTrue( bundle.contains( "io/subutai/guicyfig/CascadeFig-perf.properties" ) );
+        assertFalse( bundle.contains( "io/subutai/guicyfig/CascadeFig-dev.properties" ) );
+
+        assertEquals( "base", bundle.get( BASE, "io.subutai.guicyfig.CascadeFig.getName" ) );
+        assertEquals( "64", bundle.get( PROD, "io.subutai.guicyfig.CascadeFig.getPoolSize" ) );
+        assertNull( bundle.get( PROD, "io.subutai.guicyfig.CascadeFig.getTimeout" ) );
+        assertNull( bundle.get( BASE, "io.subutai.guicyfig.CascadeFig.getNam" ) );
+        assertNull( bundle.get( BASE, "io.subutai.guicyfig.CascadeFig.getNames" ) );
+    }
+
+
+    @Test
+    public void testBundleMetadata() throws IOException {
+        DefaultsBundle bundle = compile();
+        Environment perf = Environment.register( "perf", Environment.PROD );
+        Defaults defaults = bundle.defaults( GuicyFigModule.getDefaultsResources( CascadeFig.class, perf ) );
+
+        Map<String,Object> typed = new HashMap<String, Object>();
+        for ( OptionMetadata option : FigMetadata.build( CascadeFig.class, perf, defaults ).getOptions() ) {
+            typed.put( option.getMethod().getName(), option.getTypedDefault() );
+        }
+
+        // the same cascade as the defaults files give
+        assertEquals( "perf", typed.get( "getName" ) );
+        assertEquals( 64, typed.get( "getPoolSize" ) );
+        assertEquals( 30L, typed.get( "getTimeout" ) );
+        assertEquals( true, typed.get( "isTuned" ) );
+    }
+
+
+    @Test
+    public void testNonAsciiKeys() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty( "café", "crème" );
+        properties.setProperty( "cafe", "noir" );
+        properties.setProperty( "caf😀", "smile" );
+        properties.setProperty( "cafz", "last" );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DefaultsBundle.write( Collections.singletonMap( "x.properties", properties ), out );
+
+        File file = folder.newFile( "utf8.bin" );
+        FileOutputStream fileOut = new FileOutputStream( file );
+        fileOut.write( out.toByteArray() );
+        fileOut.close();
+
+        DefaultsBundle bundle = DefaultsBundle.open( file );
+        assertEquals( "crème", bundle.get( "x.properties", "café" ) );
+        assertEquals( "noir", bundle.get( "x.properties", "cafe" ) );
+        assertEquals( "smile", bundle.get( "x.properties", "caf😀" ) );
+        assertEquals( "last", bundle.get( "x.properties", "cafz" ) );
+        assertNull( bundle.get( "x.properties", "caf" ) );
+        assertNull( bundle.get( "y.properties", "cafe" ) );
+    }
+}
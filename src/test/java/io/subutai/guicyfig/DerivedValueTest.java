@@ -0,0 +1,143 @@
+package io.subutai.guicyfig;
+
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.inject.Guice;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
+
+
+/**
+ * Tests derived values.
+ */
+public class DerivedValueTest extends AbstractTest {
+
+    @Test
+    public void testDerive() {
+        CascadeFig fig = Guice.createInjector( new GuicyFigModule( CascadeFig.class ) ).getInstance( CascadeFig.class );
+        final AtomicInteger compilations = new AtomicInteger();
+
+        Derived<Pattern> pattern = fig.derive( "getName", new Function<Object, Pattern>() {
+            @Override
+            public Pattern apply( Object input ) {
+                compilations.incrementAndGet();
+                return Pattern.compile( "^" + input + ".*" );
+            }
+        } );
+
+        assertEquals( fig.getKeyByMethod( "getName" ), pattern.getKey() );
+        assertEquals( 1, compilations.get() );
+        assertTrue( pattern.get().matcher( "baseline" ).matches() );
+        assertSame( pattern.get(), pattern.get() );
+        assertEquals( 1, compilations.get() );
+
+        fig.bypass( "getName", "bypassed" );
+        assertEquals( 2, compilations.get() );
+        assertTrue( pattern.get().matcher( "bypassed-value" ).matches() );
+
+        fig.bypass( "getName", null );
+        fig.override( "getName", "overridden" );
+        assertTrue( pattern.get().matcher( "overridden-value" ).matches() );
+        assertFalse( pattern.get().matcher( "baseline" ).matches() );
+
+        fig.override( "getName", null );
+        assertTrue( pattern.get().matcher( "baseline" ).matches() );
+    }
+
+
+    @Test
+    public void testFailedDerivationKeepsValue() {
+        CascadeFig fig = Guice.createInjector( new GuicyFigModule( CascadeFig.class ) ).getInstance( CascadeFig.class );
+
+        Derived<Integer> length = fig.derive( "getName", new Function<Object, Integer>() {
+            @Override
+            public Integer apply( Object input ) {
+                return input.toString().length();
+            }
+        } );
+        assertEquals( 4, ( int ) length.get() );
+
+        Derived<Pattern> pattern = fig.derive( "getName", new Function<Object, Pattern>() {
+            @Override
+            public Pattern apply( Object input ) {
+                return Pattern.compile( input.toString() );
+            }
+        } );
+
+        fig.bypass( "getName", "[unbalanced" );
+        assertEquals( "base", pattern.get().pattern() );
+        assertEquals( 11, ( int ) length.get() );
+        fig.bypass( "getName", null );
+    }
+
+
+    @Test
+    public void testClosedAndDroppedValuesNotRefreshed() throws InterruptedException {
+        CascadeFig fig = ( CascadeFig ) GuicyFigModule.getConcreteObject( false, CascadeFig.class, null,
+                new MemoryConfigSource() );
+        InternalOptionState option = ( InternalOptionState ) fig.getOption( fig.getKeyByMethod( "getName" ) );
+        final AtomicInteger derivations = new AtomicInteger();
+        Function<Object, String> function = new Function<Object, String>() {
+            @Override
+            public String apply( Object input ) {
+                derivations.incrementAndGet();
+                return input.toString();
+            }
+        };
+
+        Derived<String> closed = fig.derive( "getName", function );
+        closed.close();
+        fig.bypass( "getName", "bypassed" );
+        assertEquals( 1, derivations.get() );
+        assertEquals( "base", closed.get() );
+        assertEquals( 0, option.getDerivedCount() );
+
+        // derived values nobody refers to are dropped once collected
+        fig.derive( "getName", function );
+        for ( int ii = 0; ii < 100 && option.getDerivedCount() > 0; ii++ ) {
+            System.gc();
+            Thread.sleep( 10 );
+        }
+
+        assertEquals( 0, option.getDerivedCount() );
+        fig.bypass( "getName", null );
+        assertEquals( 2, derivations.get() );
+    }
+
+
+    @Test
+    public void testChangeDuringDerivation() {
+        final CascadeFig fig = ( CascadeFig ) GuicyFigModule.getConcreteObject( false, CascadeFig.class, null,
+                new MemoryConfigSource() );
+        final AtomicInteger derivations = new AtomicInteger();
+
+        // the option changes while its first value is being derived
+        Derived<String> name = fig.derive( "getName", new Function<Object, String>() {
+            @Override
+            public String apply( Object input ) {
+                if ( derivations.incrementAndGet() == 1 ) {
+                    fig.bypass( "getName", "changed" );
+                }
+
+                return input.toString();
+            }
+        } );
+
+        assertEquals( "changed", name.get() );
+        int count = derivations.get();
+
+        // refreshing with the value already derived from does not derive again
+        fig.bypass( "getName", "changed" );
+        assertEquals( count, derivations.get() );
+        fig.bypass( "getName", null );
+        assertEquals( "base", name.get() );
+    }
+}
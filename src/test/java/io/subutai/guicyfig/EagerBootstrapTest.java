@@ -0,0 +1,84 @@
+package io.subutai.guicyfig;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import io.subutai.guicyfig.overrides.OverridesSingletonFig;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
+
+
+/**
+ * Tests the eager bootstrap of configuration interfaces.
+ */
+public class EagerBootstrapTest extends AbstractTest {
+
+    @Test
+    public void testSingletonsCreatedDuringBootstrap() {
+        MemoryConfigSource source = new MemoryConfigSource();
+        //noinspection unchecked
+        Injector injector = Guice.createInjector(
+                new GuicyFigModule( source, OverridesSingletonFig.class, CascadeFig.class ).eager() );
+
+        assertTrue( GuicyFigModule.hasSingleton( source, OverridesSingletonFig.class ) );
+        assertFalse( GuicyFigModule.hasSingleton( source, CascadeFig.class ) );
+
+        OverridesSingletonFig fig = injector.getInstance( OverridesSingletonFig.class );
+        assertSame( fig, injector.getInstance( OverridesSingletonFig.class ) );
+        assertEquals( 8, injector.getInstance( CascadeFig.class ).getPoolSize() );
+    }
+
+
+    @Test
+    public void testSingletonsCreatedOnDemandByDefault() {
+        MemoryConfigSource source = new MemoryConfigSource();
+        Injector injector = Guice.createInjector( new GuicyFigModule( source, OverridesSingletonFig.class ) );
+
+        assertFalse( GuicyFigModule.hasSingleton( source, OverridesSingletonFig.class ) );
+        injector.getInstance( OverridesSingletonFig.class );
+        assertTrue( GuicyFigModule.hasSingleton( source, OverridesSingletonFig.class ) );
+    }
+
+
+    @Test
+    public void testConcurrentSingletonRequests() throws Exception {
+        final Injector injector = Guice.createInjector(
+                new GuicyFigModule( new MemoryConfigSource(), OverridesSingletonFig.class ) );
+        List<Callable<OverridesSingletonFig>> tasks = new ArrayList<Callable<OverridesSingletonFig>>();
+
+        for ( int ii = 0; ii < 16; ii++ ) {
+            tasks.add( new Callable<OverridesSingletonFig>() {
+                @Override
+                public OverridesSingletonFig call() {
+                    return injector.getInstance( OverridesSingletonFig.class );
+                }
+            } );
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool( 8 );
+        try {
+            List<Future<OverridesSingletonFig>> futures = executor.invokeAll( tasks );
+            OverridesSingletonFig first = futures.get( 0 ).get();
+
+            for ( Future<OverridesSingletonFig> future : futures ) {
+                assertSame( first, future.get() );
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
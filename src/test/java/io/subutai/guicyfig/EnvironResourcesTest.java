@@ -0,0 +1,140 @@
+package io.subutai.guicyfig;
+
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import com.netflix.config.ConfigurationManager;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+
+/**
+ * Tests resources set up in parallel and shared by test classes.
+ */
+public class EnvironResourcesTest {
+    private static final Statement NOTHING = new Statement() {
+        @Override
+        public void evaluate() {
+        }
+    };
+
+    static {
+        ConfigurationManager.getDeploymentContext().setDeploymentEnvironment( Env.UNIT.toString() );
+    }
+
+    private final List<String> events = new CopyOnWriteArrayList<String>();
+
+
+    private static Description describe( Class<?> testClass ) {
+        return Description.createSuiteDescription( testClass );
+    }
+
+
+    @Test
+    public void testParallelSetUp() throws Throwable {
+        // each resource waits for the other: they only both set up if set up in parallel
+        CountDownLatch latch = new CountDownLatch( 2 );
+        EnvironResources resources = new EnvironResources( new Resource( "a", latch, Env.UNIT ),
+                new Resource( "b", latch, Env.UNIT ), new Resource( "c", null, Env.PROD ) );
+
+        resources.apply( NOTHING, describe( getClass() ) ).evaluate();
+
+        assertEquals( 4, events.size() );
+        assertTrue( events.containsAll( Arrays.asList( "before a", "before b", "after a", "after b" ) ) );
+    }
+
+
+    @Test
+    public void testFailedSetUpTearsDownOthers() throws Throwable {
+        EnvironResources resources = new EnvironResources( new Resource( "a", null, Env.UNIT ),
+                new Resource( "broken", null, Env.UNIT ) );
+
+        try {
+            resources.apply( NOTHING, describe( getClass() ) ).evaluate();
+            fail( "the broken resource should fail" );
+        }
+        catch ( IllegalStateException e ) {
+            assertEquals( "broken", e.getMessage() );
+        }
+
+        assertTrue( events.contains( "after a" ) );
+    }
+
+
+    @Test
+    public void testSharedResourceSetUpOnce() throws Throwable {
+        Resource resource = new Resource( "shared", null, Env.UNIT );
+        TestRule first = resource.shared();
+        TestRule second = resource.shared();
+
+        first.apply( NOTHING, describe( getClass() ) ).evaluate();
+        second.apply( NOTHING, describe( String.class ) ).evaluate();
+
+        assertEquals( Collections.singletonList( "before shared" ), events );
+    }
+
+
+    @Test
+    public void testActivationDecidedPerResource() {
+        Resource unit = new Resource( "unit", null, Env.UNIT );
+        assertTrue( unit.isActive( getClass() ) );
+
+        ConfigurationManager.getDeploymentContext().setDeploymentEnvironment( Env.PROD.toString() );
+
+        try {
+            // the decision belongs to the resource which made it, not to all resources of its type
+            assertTrue( unit.isActive( getClass() ) );
+            assertFalse( new Resource( "other", null, Env.UNIT ).isActive( getClass() ) );
+        }
+        finally {
+            ConfigurationManager.getDeploymentContext().setDeploymentEnvironment( Env.UNIT.toString() );
+        }
+    }
+
+
+    class Resource extends EnvironResource {
+        private final String name;
+        private final CountDownLatch latch;
+
+
+        Resource( String name, CountDownLatch latch, Env env ) {
+            super( env );
+            this.name = name;
+            this.latch = latch;
+        }
+
+
+        @Override
+        protected void before() throws Throwable {
+            if ( name.equals( "broken" ) ) {
+                throw new IllegalStateException( name );
+            }
+
+            if ( latch != null ) {
+                latch.countDown();
+                assertTrue( "not set up in parallel", latch.await( 10, TimeUnit.SECONDS ) );
+            }
+
+            events.add( "before " + name );
+        }
+
+
+        @Override
+        protected void after() {
+            events.add( "after " + name );
+        }
+    }
+}
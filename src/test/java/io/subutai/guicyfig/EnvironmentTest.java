@@ -0,0 +1,136 @@
+package io.subutai.guicyfig;
+
+
+import java.util.BitSet;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.netflix.config.ConfigurationManager;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+
+/**
+ * Tests Environment.
+ */
+public class EnvironmentTest {
+
+    @After
+    public void resetEnvironment() {
+        ConfigurationManager.getDeploymentContext().setDeploymentEnvironment( Env.UNIT.toString() );
+    }
+
+
+    @Test
+    public void testBuiltIns() {
+        for ( Env env : Env.values() ) {
+            assertEquals( env.name(), Environment.of( env ).getName() );
+            assertSame( Environment.of( env ), Environment.get( env.name().toLowerCase() ) );
+        }
+
+        assertNull( Environment.get( "never-registered" ) );
+    }
+
+
+    @Test
+    public void testHierarchy() {
+        Environment perf = Environment.register( "perf", Environment.PROD );
+        assertSame( perf, Environment.register( "PERF", Environment.PROD ) );
+        assertTrue( perf.inherits( Environment.PROD ) );
+        assertTrue( perf.inherits( perf ) );
+        assertFalse( Environment.PROD.inherits( perf ) );
+
+        assertTrue( perf.matches( Environment.mask( new Env[] { Env.PROD }, null ) ) );
+        assertTrue( perf.matches( Environment.mask( null, new String[] { "perf" } ) ) );
+        assertTrue( perf.matches( Environment.mask( null, null ) ) );
+        assertFalse( perf.matches( Environment.mask( new Env[] { Env.UNIT }, null ) ) );
+        assertFalse( Environment.PROD.matches( Environment.mask( null, new String[] { "perf" } ) ) );
+
+        try {
+            Environment.register( "perf", Environment.DEV );
+            fail( "should not be able to re-parent an environment" );
+        }
+        catch ( IllegalStateException e ) {
+            // expected
+        }
+    }
+
+
+    @Test
+    public void testUnknownContextEnvironment() {
+        ConfigurationManager.getDeploymentContext().setDeploymentEnvironment( "canary" );
+        Environment canary = Environment.current();
+
+        assertEquals( "CANARY", canary.getName() );
+        assertFalse( canary == Environment.ALL );
+
+        BitSet prodOnly = Environment.mask( new Env[] { Env.PROD }, null );
+        assertFalse( canary.matches( prodOnly ) );
+        assertTrue( canary.matches( Environment.mask( new Env[] { Env.ALL }, null ) ) );
+    }
+
+
+    @Test
+    public void testContextEnvironmentRegisteredLater() {
+        ConfigurationManager.getDeploymentContext().setDeploymentEnvironment( "staging" );
+
+        // the mask resolves the deployment environment before anything asked for it
+        BitSet staging = Environment.mask( null, new String[] { "staging" } );
+        assertTrue( Environment.current().matches( staging ) );
+        assertNull( Environment.current().getParent() );
+
+        // an explicit registration may still place it in the hierarchy
+        Environment registered = Environment.register( "staging", Environment.PROD );
+        assertSame( Environment.current(), registered );
+        assertTrue( registered.inherits( Environment.PROD ) );
+        assertTrue( registered.matches( Environment.mask( new Env[] { Env.PROD }, null ) ) );
+        assertTrue( registered.matches( staging ) );
+
+        try {
+            Environment.register( "staging", Environment.DEV );
+            fail( "should not be able to re-parent an explicitly registered environment" );
+        }
+        catch ( IllegalStateException e ) {
+            // expected
+        }
+    }
+
+
+    @Test
+    public void testUnregister() {
+        Environment parent = Environment.register( "unregister-parent", Environment.PROD );
+        Environment child = Environment.register( "unregister-child", parent );
+
+        try {
+            Environment.unregister( "unregister-parent" );
+            fail( "should not be able to remove an environment inherited from" );
+        }
+        catch ( IllegalStateException e ) {
+            // expected
+        }
+
+        try {
+            Environment.unregister( "prod" );
+            fail( "should not be able to remove a built in environment" );
+        }
+        catch ( IllegalStateException e ) {
+            // expected
+        }
+
+        assertTrue( Environment.unregister( "unregister-child" ) );
+        assertTrue( Environment.unregister( "unregister-parent" ) );
+        assertFalse( Environment.unregister( "unregister-parent" ) );
+        assertNull( Environment.get( "unregister-parent" ) );
+
+        // holders keep working, and the name may be registered anew
+        assertTrue( child.inherits( Environment.PROD ) );
+        assertFalse( Environment.register( "unregister-parent", Environment.DEV ) == parent );
+        Environment.unregister( "unregister-parent" );
+    }
+}
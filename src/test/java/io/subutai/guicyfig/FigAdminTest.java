@@ -0,0 +1,233 @@
+package io.subutai.guicyfig;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
+
+
+/**
+ * Tests the administration of live configuration objects.
+ */
+public class FigAdminTest extends AbstractTest {
+    private static final String BASE = "io.subutai.guicyfig.ServiceFig.";
+
+
+    @After
+    public void tearDown() {
+        FigAdmin.stopHttp();
+        FigAdmin.unregisterMBean();
+        FigAdmin.getInstance().refresh();
+    }
+
+
+    private static ServiceFig fig() {
+        return ( ServiceFig ) GuicyFigModule.getConcreteObject( false, ServiceFig.class, null, new MemoryConfigSource() );
+    }
+
+
+    private static long idOf( GuicyFig fig ) {
+        for ( java.util.Map.Entry<Long,GuicyFig> entry : FigRegistry.getFigs().entrySet() ) {
+            if ( entry.getValue() == fig ) {
+                return entry.getKey();
+            }
+        }
+
+        throw new AssertionError( "not registered" );
+    }
+
+
+    private static FigSnapshot snapshotOf( long id ) {
+        for ( FigSnapshot snapshot : FigAdmin.getInstance().getFigs() ) {
+            if ( snapshot.getId() == id ) {
+                return snapshot;
+            }
+        }
+
+        return null;
+    }
+
+
+    private static OptionSnapshot optionOf( FigSnapshot snapshot, String key ) {
+        for ( OptionSnapshot option : snapshot.getOptions() ) {
+            if ( option.getKey().equals( key ) ) {
+                return option;
+            }
+        }
+
+        return null;
+    }
+
+
+    @Test
+    public void testSnapshotsCached() {
+        ServiceFig fig = fig();
+        long id = idOf( fig );
+        FigSnapshot snapshot = snapshotOf( id );
+
+        assertNotNull( snapshot );
+        assertEquals( ServiceFig.class.getName(), snapshot.getFigInterface() );
+        assertEquals( "10", optionOf( snapshot, BASE + "getMaxConnections" ).getValue() );
+        assertEquals( "DEFAULT_ANNOTATION", optionOf( snapshot, BASE + "getMaxConnections" ).getLayer() );
+
+        // served from the cache until refreshed
+        fig.override( "getMaxConnections", "20" );
+        assertSame( snapshot, snapshotOf( id ) );
+
+        FigAdmin.getInstance().refresh();
+        OptionSnapshot option = optionOf( snapshotOf( id ), BASE + "getMaxConnections" );
+        assertEquals( "20", option.getValue() );
+        assertEquals( "OVERRIDE", option.getLayer() );
+        assertTrue( option.isOverridden() );
+    }
+
+
+    @Test
+    public void testCollectedFigsLeave() throws InterruptedException {
+        GuicyFig fig = GuicyFigModule.getConcreteObject( false, ServiceFig.class );
+        long id = idOf( fig );
+        WeakReference<BaseGuicyFig> target = new WeakReference<BaseGuicyFig>( ( ( BaseGuicyFig ) fig ).getTarget() );
+        assertSame( fig, FigRegistry.getFig( id ) );
+
+        //noinspection UnusedAssignment
+        fig = null;
+
+        // neither the registry nor the change callbacks of the options keep the configuration alive
+        for ( int ii = 0; ii < 100 && ( target.get() != null || FigRegistry.getFig( id ) != null ); ii++ ) {
+            System.gc();
+            Thread.sleep( 10 );
+        }
+
+        assertNull( target.get() );
+        assertNull( FigRegistry.getFig( id ) );
+    }
+
+
+    @Test
+    public void testMBean() throws Exception {
+        ServiceFig fig = fig();
+        long id = idOf( fig );
+
+        FigAdmin.registerMBean();
+        FigAdmin.registerMBean();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName( FigAdmin.OBJECT_NAME );
+        server.invoke( name, "bypass", new Object[] { id, "getPort", "7" },
+                new String[] { long.class.getName(), String.class.getName(), String.class.getName() } );
+        assertEquals( 7, fig.getPort() );
+
+        boolean found = false;
+        for ( CompositeData data : ( CompositeData[] ) server.getAttribute( name, "Figs" ) ) {
+            if ( ( Long ) data.get( "id" ) == id ) {
+                found = true;
+                assertEquals( ServiceFig.class.getName(), data.get( "figInterface" ) );
+                assertEquals( ServiceFig.class.getDeclaredMethods().length,
+                        ( ( CompositeData[] ) data.get( "options" ) ).length );
+            }
+        }
+        assertTrue( found );
+
+        FigAdmin.unregisterMBean();
+        assertFalse( server.isRegistered( name ) );
+    }
+
+
+    private static HttpURLConnection post( String url ) throws IOException {
+        HttpURLConnection connection = ( HttpURLConnection ) new URL( url ).openConnection();
+        connection.setRequestMethod( "POST" );
+        connection.setRequestProperty( FigAdmin.TOKEN_HEADER, FigAdmin.getHttpToken() );
+        return connection;
+    }
+
+
+    /**
+     * Sends a request by hand: HttpURLConnection does not let the Origin and Host headers be set.
+     */
+    private static String raw( InetSocketAddress address, String request ) throws IOException {
+        Socket socket = new Socket( address.getAddress(), address.getPort() );
+
+        try {
+            socket.getOutputStream().write( ( request + "Connection: close\r\n\r\n" ).getBytes( Charsets.US_ASCII ) );
+            return new String( ByteStreams.toByteArray( socket.getInputStream() ), Charsets.US_ASCII );
+        }
+        finally {
+            socket.close();
+        }
+    }
+
+
+    @Test
+    public void testHttpRefusesWebPages() throws IOException {
+        ServiceFig fig = fig();
+        long id = idOf( fig );
+        InetSocketAddress address = FigAdmin.startHttp( 0 );
+        String path = "/figs/" + id + "/bypass?method=getPort&value=9";
+        String host = "Host: 127.0.0.1:" + address.getPort() + "\r\n";
+        String token = FigAdmin.TOKEN_HEADER + ": " + FigAdmin.getHttpToken() + "\r\n";
+
+        // a cross-site request
+        assertTrue( raw( address, "POST " + path + " HTTP/1.1\r\n" + host + token
+                + "Origin: http://example.com\r\n" ).startsWith( "HTTP/1.1 403" ) );
+
+        // a request to a rebound DNS name
+        assertTrue( raw( address, "GET /figs HTTP/1.1\r\nHost: attacker.example:" + address.getPort() + "\r\n" )
+                .startsWith( "HTTP/1.1 403" ) );
+
+        // a change without the token
+        assertTrue( raw( address, "POST " + path + " HTTP/1.1\r\n" + host ).startsWith( "HTTP/1.1 403" ) );
+        assertFalse( fig.getPort() == 9 );
+
+        assertTrue( raw( address, "POST " + path + " HTTP/1.1\r\n" + host + token ).startsWith( "HTTP/1.1 204" ) );
+        assertEquals( 9, fig.getPort() );
+    }
+
+
+    @Test
+    public void testHttp() throws IOException {
+        ServiceFig fig = fig();
+        long id = idOf( fig );
+        InetSocketAddress address = FigAdmin.startHttp( 0 );
+        String base = "http://127.0.0.1:" + address.getPort() + "/figs";
+
+        HttpURLConnection connection = post( base + "/" + id + "/override?method=getHost&value=a%20b" );
+        assertEquals( 204, connection.getResponseCode() );
+        assertEquals( "a b", fig.getHost() );
+
+        connection = post( base + "/" + id + "/override?method=getNothing&value=1" );
+        assertEquals( 400, connection.getResponseCode() );
+
+        connection = ( HttpURLConnection ) new URL( base ).openConnection();
+        assertEquals( 200, connection.getResponseCode() );
+
+        InputStream in = connection.getInputStream();
+        String body = new String( ByteStreams.toByteArray( in ), Charsets.UTF_8 );
+        in.close();
+
+        assertTrue( body.contains( "{\"id\": " + id + ", \"fig\": \"" + ServiceFig.class.getName() + "\"" ) );
+        assertTrue( body.contains( "{\"key\": \"" + BASE + "getHost\", \"value\": \"a b\", \"layer\": \"OVERRIDE\", "
+                + "\"overridden\": true" ) );
+    }
+}
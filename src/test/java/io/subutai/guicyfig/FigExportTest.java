@@ -0,0 +1,95 @@
+package io.subutai.guicyfig;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+
+/**
+ * Tests exporting the effective configuration.
+ */
+public class FigExportTest extends AbstractTest {
+    private static final String BASE = "io.subutai.guicyfig.ServiceFig.";
+
+
+    private static ServiceFig fig( String host ) {
+        MemoryConfigSource source = new MemoryConfigSource();
+        source.setValue( BASE + "getHost", host );
+
+        ServiceFig fig = ( ServiceFig ) GuicyFigModule.getConcreteObject( false, ServiceFig.class, null, source );
+        fig.override( "getPort", "8080" );
+        fig.bypass( "getMaxConnections", "3" );
+        return fig;
+    }
+
+
+    private static String export( FigExport.Format format, GuicyFig... figs ) throws IOException {
+        StringWriter writer = new StringWriter();
+        FigExport.write( Arrays.asList( figs ), format, writer );
+        return writer.toString();
+    }
+
+
+    @Test
+    public void testProperties() throws IOException {
+        String exported = export( FigExport.Format.PROPERTIES, fig( " a b=c\nd:é" ) );
+        assertTrue( exported.startsWith( "# io.subutai.guicyfig.ServiceFig\n" ) );
+        assertTrue( exported.contains( "# OVERRIDE\n" + BASE + "getPort=8080\n" ) );
+        assertTrue( exported.contains( "# BYPASS\n" + BASE + "getMaxConnections=3\n" ) );
+        assertTrue( exported.contains( "# DEFAULT_ANNOTATION\n" + BASE + "getEnum=THREE\n" ) );
+
+        Properties properties = new Properties();
+        properties.load( new StringReader( exported ) );
+        assertEquals( " a b=c\nd:é", properties.getProperty( BASE + "getHost" ) );
+        assertEquals( "20.5", properties.getProperty( BASE + "getLoadThreshold" ) );
+        assertEquals( ServiceFig.class.getDeclaredMethods().length, properties.size() );
+    }
+
+
+    @Test
+    public void testJson() throws IOException {
+        String exported = export( FigExport.Format.JSON, fig( "say \"hi\"" ), fig( "other" ) );
+        assertTrue( exported.startsWith( "[\n  {\"fig\": \"io.subutai.guicyfig.ServiceFig\", \"options\": [\n" ) );
+        assertTrue( exported.contains( "{\"key\": \"" + BASE + "getHost\", \"value\": \"say \\\"hi\\\"\", "
+                + "\"layer\": \"CONFIGURATION\"}" ) );
+        assertTrue( exported.contains( "{\"key\": \"" + BASE + "getPort\", \"value\": 8080, \"layer\": \"OVERRIDE\"}" ) );
+        assertTrue( exported.contains( "{\"key\": \"" + BASE + "isResetNeeded\", \"value\": true, "
+                + "\"layer\": \"DEFAULT_ANNOTATION\"}" ) );
+        assertTrue( exported.contains( "]},\n  {\"fig\": " ) );
+        assertTrue( exported.endsWith( "]}\n]\n" ) );
+
+        assertEquals( "[\n]\n", export( FigExport.Format.JSON ) );
+    }
+
+
+    @Test
+    public void testYaml() throws IOException {
+        String exported = export( FigExport.Format.YAML, fig( "host" ) );
+        assertTrue( exported.startsWith( "- fig: \"io.subutai.guicyfig.ServiceFig\"\n  options:\n    - key: " ) );
+        assertTrue( exported.contains( "    - key: \"" + BASE + "getMaxConnections\"\n      value: 3\n"
+                + "      layer: BYPASS\n" ) );
+        assertTrue( exported.contains( "      value: \"THREE\"\n" ) );
+
+        assertEquals( "[]\n", export( FigExport.Format.YAML ) );
+    }
+
+
+    @Test
+    public void testOutputStream() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FigExport.write( Collections.singletonList( fig( "café" ) ), FigExport.Format.JSON, out );
+        assertTrue( new String( out.toByteArray(), Charsets.UTF_8 ).contains( "\"value\": \"café\"" ) );
+    }
+}
@@ -0,0 +1,144 @@
+package io.subutai.guicyfig;
+
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNotSame;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.fail;
+
+
+/**
+ * Tests FigMetadata.
+ */
+public class FigMetadataTest extends AbstractTest {
+    private Environment perf;
+    private boolean registered;
+
+
+    @Before
+    public void registerPerf() {
+        registered = Environment.get( "perf" ) == null;
+        perf = Environment.register( "perf", Environment.PROD );
+    }
+
+
+    @After
+    public void unregisterPerf() {
+        if ( registered ) {
+            Environment.unregister( "perf" );
+        }
+    }
+
+
+    private static Map<String,Object> defaults( FigMetadata metadata ) {
+        Map<String,Object> defaults = new HashMap<String, Object>();
+
+        for ( OptionMetadata option : metadata.getOptions() ) {
+            defaults.put( option.getMethod().getName(), option.getTypedDefault() );
+        }
+
+        return defaults;
+    }
+
+
+    @Test
+    public void testBaseDefaults() {
+        Map<String,Object> defaults = defaults( FigMetadata.build( CascadeFig.class, Environment.UNIT ) );
+
+        assertEquals( "base", defaults.get( "getName" ) );
+        assertEquals( 8, defaults.get( "getPoolSize" ) );
+        assertEquals( 30L, defaults.get( "getTimeout" ) );
+        assertEquals( false, defaults.get( "isTuned" ) );
+    }
+
+
+    @Test
+    public void testCascadedDefaults() {
+        Map<String,Object> defaults = defaults( FigMetadata.build( CascadeFig.class, Environment.PROD ) );
+        assertEquals( "prod", defaults.get( "getName" ) );
+        assertEquals( 64, defaults.get( "getPoolSize" ) );
+        assertEquals( false, defaults.get( "isTuned" ) );
+
+        defaults = defaults( FigMetadata.build( CascadeFig.class, perf ) );
+        assertEquals( "perf", defaults.get( "getName" ) );
+        assertEquals( 64, defaults.get( "getPoolSize" ) );
+        assertEquals( true, defaults.get( "isTuned" ) );
+
+        // the Default annotation still wins over the defaults files
+        assertEquals( 30L, defaults.get( "getTimeout" ) );
+    }
+
+
+    @Test
+    public void testMetadataCached() {
+        FigMetadata metadata = GuicyFigModule.getMetadata( CascadeFig.class );
+        assertSame( metadata, GuicyFigModule.getMetadata( CascadeFig.class ) );
+        assertSame( Environment.current(), metadata.getEnvironment() );
+
+        CascadeFig fig = ( CascadeFig ) GuicyFigModule.getConcreteObject( false, CascadeFig.class );
+        assertEquals( 8, fig.getPoolSize() );
+    }
+
+
+    @Test
+    public void testLookup() {
+        FigMetadata metadata = FigMetadata.build( FooFig.class, Environment.UNIT );
+        int foobar = metadata.getOrdinalByMethodName( "getFoobar" );
+        int something = metadata.getOrdinalByMethodName( "getSomething" );
+
+        assertEquals( foobar, metadata.getLookup( null ).get( "foo.fig.fun" ).byKey );
+        assertEquals( -1, metadata.getLookup( null ).get( "getFoobar" ).byKey );
+        assertEquals( -1, metadata.getOrdinalByMethodName( "foo.fig.fun" ) );
+
+        // one entry resolves a name which is both a key and a method name
+        FigMetadata.Ordinals ordinals = metadata.getLookup( null ).get( "getSomething" );
+        assertEquals( something, ordinals.byKey );
+        assertEquals( something, ordinals.byMethodName );
+
+        // sections resolve their scoped keys
+        metadata = FigMetadata.build( ClusterFig.ShardFig.class, Environment.UNIT );
+        int replicas = metadata.getOrdinalByMethodName( "getReplicas" );
+        Map<String,FigMetadata.Ordinals> scoped = metadata.getLookup( "cluster.shards.a" );
+        assertEquals( replicas, scoped.get( "cluster.shards.a.replicas" ).byKey );
+        assertNull( scoped.get( "replicas" ) );
+        assertSame( metadata.getLookup( "cluster.shards.a" ), metadata.getLookup( "cluster.shards.a" ) );
+        assertSame( metadata.getOptions( "cluster.shards.a" ), metadata.getOptions( "cluster.shards.a" ) );
+    }
+
+
+    @Test
+    public void testOptionListCached() {
+        FooFig fig = ( FooFig ) GuicyFigModule.getConcreteObject( false, FooFig.class, null, new MemoryConfigSource() );
+        List<OptionState> options = fig.getOptionList();
+
+        assertSame( options, fig.getOptionList() );
+        assertEquals( 2, options.size() );
+
+        // listed by ordinal
+        FigMetadata metadata = GuicyFigModule.getMetadata( FooFig.class );
+        assertSame( fig.getOption( "foo.fig.fun" ), options.get( metadata.getOrdinalByMethodName( "getFoobar" ) ) );
+        assertSame( fig.getOption( "getSomething" ), options.get( metadata.getOrdinalByMethodName( "getSomething" ) ) );
+
+        OptionState[] copy = fig.getOptions();
+        assertNotSame( copy, fig.getOptions() );
+        assertEquals( options, Arrays.asList( copy ) );
+
+        try {
+            options.clear();
+            fail( "the option list should be unmodifiable" );
+        }
+        catch ( UnsupportedOperationException e ) {
+            // expected
+        }
+    }
+}
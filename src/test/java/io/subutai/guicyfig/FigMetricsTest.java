@@ -0,0 +1,93 @@
+package io.subutai.guicyfig;
+
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
+
+
+/**
+ * Tests publishing the operational metrics of the configuration subsystem.
+ */
+public class FigMetricsTest extends AbstractTest {
+    private static final String BASE = "io.subutai.guicyfig.ServiceFig.";
+
+    private MemoryMetricsSink sink;
+
+
+    @Before
+    public void setUp() {
+        sink = new MemoryMetricsSink();
+        FigMetrics.install( sink );
+    }
+
+
+    @After
+    public void tearDown() {
+        FigMetrics.uninstall();
+    }
+
+
+    @Test
+    public void testConstruction() {
+        ServiceFig fig = ( ServiceFig ) GuicyFigModule.getConcreteObject( false, ServiceFig.class, null,
+                new MemoryConfigSource() );
+
+        assertEquals( 1, sink.getTimings( FigMetrics.CONSTRUCTION ) );
+        assertTrue( sink.getTotalNanos( FigMetrics.CONSTRUCTION ) > 0 );
+        assertEquals( ServiceFig.class.getDeclaredMethods().length, sink.getCount( FigMetrics.CALLBACKS ) );
+        assertEquals( 1, sink.getCount( FigMetrics.CALLBACKS, BASE + "getPort" ) );
+        assertTrue( sink.getGauge( FigMetrics.FIGS_ALIVE ).intValue() >= 1 );
+        assertTrue( sink.getGauge( FigMetrics.DISPATCHED_KEYS ).intValue() >= 0 );
+
+        // the metadata is cached so the defaults are loaded once at most
+        assertTrue( sink.getTimings( FigMetrics.DEFAULTS_LOAD ) <= 1 );
+        FigMetadata.build( ServiceFig.class, Environment.UNIT );
+        assertTrue( sink.getTimings( FigMetrics.DEFAULTS_LOAD ) >= 1 );
+
+    }
+
+
+    @Test
+    public void testChanges() {
+        MemoryConfigSource source = new MemoryConfigSource();
+        ServiceFig fig = ( ServiceFig ) GuicyFigModule.getConcreteObject( false, ServiceFig.class, null, source );
+        fig.addPropertyChangeListener( new PropertyChangeListener() {
+            @Override
+            public void propertyChange( PropertyChangeEvent evt ) {
+            }
+        } );
+
+        source.setValue( BASE + "getPort", "1" );
+        fig.override( "getPort", "2" );
+        fig.bypass( "getPort", "3" );
+        fig.override( "getPort", null );
+
+        assertEquals( 1, sink.getCount( FigMetrics.OVERRIDES, BASE + "getPort" ) );
+        assertEquals( 1, sink.getCount( FigMetrics.BYPASSES ) );
+        // clearing the override changes the value underneath the bypass
+        assertEquals( 4, sink.getCount( FigMetrics.CHANGES, BASE + "getPort" ) );
+        assertEquals( 4, sink.getTimings( FigMetrics.LISTENERS ) );
+
+        sink.reset();
+        assertEquals( 0, sink.getCount( FigMetrics.CHANGES ) );
+    }
+
+
+    @Test
+    public void testUninstall() {
+        assertSame( sink, FigMetrics.getSink() );
+        FigMetrics.uninstall();
+
+        GuicyFigModule.getConcreteObject( false, ServiceFig.class, null, new MemoryConfigSource() );
+        assertEquals( 0, sink.getTimings( FigMetrics.CONSTRUCTION ) );
+        assertEquals( 0, sink.getCount( FigMetrics.CALLBACKS ) );
+    }
+}
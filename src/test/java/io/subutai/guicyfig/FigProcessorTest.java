@@ -0,0 +1,178 @@
+package io.subutai.guicyfig;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
+
+
+/**
+ * Tests the implementations generated at build time by the FigProcessor.
+ */
+public class FigProcessorTest extends AbstractTest {
+    private static final String AOT_FIG = Joiner.on( '\n' ).join(
+            "package aot;",
+            "import java.util.Map;",
+            "import io.subutai.guicyfig.Default;",
+            "import io.subutai.guicyfig.GuicyFig;",
+            "public interface AotFig extends GuicyFig {",
+            "    @Default( \"7\" ) int getThreads();",
+            "    @Default( \"aot\" ) String getName();",
+            "    Endpoint getPrimary();",
+            "    Map<String, Endpoint> getReplicas();",
+            "    interface Endpoint extends GuicyFig {",
+            "        @Default( \"localhost\" ) String getHost();",
+            "    }",
+            "}" );
+
+    private static final String GENERIC_FIG = Joiner.on( '\n' ).join(
+            "package aot;",
+            "import io.subutai.guicyfig.GuicyFig;",
+            "public interface GenericFig<T> extends GuicyFig {",
+            "    T getValue();",
+            "}" );
+
+
+    /** A top level interface named like the flattened name of a nested one */
+    private static final String FLAT_FIG = Joiner.on( '\n' ).join(
+            "package aot;",
+            "import io.subutai.guicyfig.Default;",
+            "import io.subutai.guicyfig.GuicyFig;",
+            "public interface AotFig_Endpoint extends GuicyFig {",
+            "    @Default( \"flat\" ) String getHost();",
+            "}" );
+
+
+    private static String locationOf( Class<?> clazz ) {
+        return new File( clazz.getProtectionDomain().getCodeSource().getLocation().getPath() ).getPath();
+    }
+
+
+    private static Path write( Path directory, String name, String source ) throws IOException {
+        Path file = directory.resolve( name );
+        Files.write( file, source.getBytes( "UTF-8" ) );
+        return file;
+    }
+
+
+    private static boolean compile( JavaCompiler compiler, DiagnosticCollector<JavaFileObject> diagnostics,
+                                    Path sources, Path classes, boolean generate, File... files ) throws IOException {
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager( diagnostics, null, null );
+        String classPath = Joiner.on( File.pathSeparator ).join( locationOf( GuicyFig.class ),
+                locationOf( Function.class ), locationOf( Nullable.class ) );
+        List<String> options = new ArrayList<String>( Arrays.asList( "-classpath", classPath,
+                "-d", classes.toString(), "-s", sources.toString() ) );
+
+        if ( generate ) {
+            options.add( "-A" + FigProcessor.GENERATE_OPTION + "=true" );
+        }
+
+        try {
+            JavaCompiler.CompilationTask task = compiler.getTask( null, fileManager, diagnostics, options, null,
+                    fileManager.getJavaFileObjects( files ) );
+            task.setProcessors( Collections.singletonList( new FigProcessor() ) );
+            return task.call();
+        }
+        finally {
+            fileManager.close();
+        }
+    }
+
+
+    @Test
+    public void testGenerationOptIn() throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assume.assumeNotNull( compiler );
+
+        Path sources = Files.createTempDirectory( "guicyfig-aot-src" );
+        Path classes = Files.createTempDirectory( "guicyfig-aot-classes" );
+        File aotFig = write( sources, "AotFig.java", AOT_FIG ).toFile();
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        assertTrue( diagnostics.getDiagnostics().toString(),
+                compile( compiler, diagnostics, sources, classes, false, aotFig ) );
+        assertTrue( Files.exists( classes.resolve( "aot" ).resolve( "AotFig.class" ) ) );
+        assertFalse( Files.exists( classes.resolve( "aot" ).resolve( "GuicyFig_AotFig.class" ) ) );
+    }
+
+
+    @Test
+    public void testGeneratedImplementation() throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assume.assumeNotNull( compiler );
+
+        Path sources = Files.createTempDirectory( "guicyfig-aot-src" );
+        Path classes = Files.createTempDirectory( "guicyfig-aot-classes" );
+        File aotFig = write( sources, "AotFig.java", AOT_FIG ).toFile();
+        File genericFig = write( sources, "GenericFig.java", GENERIC_FIG ).toFile();
+        File flatFig = write( sources, "AotFig_Endpoint.java", FLAT_FIG ).toFile();
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        assertTrue( diagnostics.getDiagnostics().toString(),
+                compile( compiler, diagnostics, sources, classes, true, aotFig, genericFig, flatFig ) );
+
+        boolean warned = false;
+        for ( Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics() ) {
+            warned |= diagnostic.getMessage( null ).contains( "Not generating an implementation of aot.GenericFig" );
+        }
+        assertTrue( diagnostics.getDiagnostics().toString(), warned );
+
+        ClassLoader loader = new URLClassLoader( new URL[] { classes.toUri().toURL() }, getClass().getClassLoader() );
+        //noinspection unchecked
+        Class<? extends GuicyFig> aotFigClass = ( Class<? extends GuicyFig> ) loader.loadClass( "aot.AotFig" );
+        //noinspection unchecked
+        Class<? extends GuicyFig> genericFigClass = ( Class<? extends GuicyFig> ) loader.loadClass( "aot.GenericFig" );
+
+        assertNotNull( GuicyFigModule.getGeneratedConstructor( aotFigClass ) );
+        assertNull( GuicyFigModule.getGeneratedConstructor( genericFigClass ) );
+
+        GuicyFig fig = GuicyFigModule.getConcreteObject( false, aotFigClass, null, new MemoryConfigSource() );
+        assertSame( loader.loadClass( "aot.GuicyFig_AotFig" ), fig.getClass() );
+        assertEquals( 7, fig.getValueByMethod( "getThreads" ) );
+        assertEquals( 7, aotFigClass.getMethod( "getThreads" ).invoke( fig ) );
+
+        fig.bypass( "getName", "bypassed" );
+        assertEquals( "bypassed", aotFigClass.getMethod( "getName" ).invoke( fig ) );
+
+        Object primary = aotFigClass.getMethod( "getPrimary" ).invoke( fig );
+        assertSame( loader.loadClass( "aot.GuicyFig_AotFig$Endpoint" ), primary.getClass() );
+        assertEquals( "localhost", primary.getClass().getMethod( "getHost" ).invoke( primary ) );
+        assertTrue( aotFigClass.getMethod( "getReplicas" ).invoke( fig ) instanceof Map );
+
+        // the top level interface named like the nested one gets its own implementation
+        //noinspection unchecked
+        Class<? extends GuicyFig> flatFigClass = ( Class<? extends GuicyFig> ) loader.loadClass( "aot.AotFig_Endpoint" );
+        GuicyFig flat = GuicyFigModule.getConcreteObject( false, flatFigClass, null, new MemoryConfigSource() );
+        assertSame( loader.loadClass( "aot.GuicyFig_AotFig_Endpoint" ), flat.getClass() );
+        assertEquals( "flat", flat.getValueByMethod( "getHost" ) );
+    }
+}
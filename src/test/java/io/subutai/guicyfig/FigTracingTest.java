@@ -0,0 +1,66 @@
+package io.subutai.guicyfig;
+
+
+import org.junit.After;
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+
+
+/**
+ * Tests the opt-in tracing of option reads.
+ */
+public class FigTracingTest extends AbstractTest {
+
+    @After
+    public void resetTracing() {
+        FigTracing.reset();
+    }
+
+
+    @Test
+    public void testInactiveByDefault() {
+        assertFalse( FigTracing.isActive() );
+        assertEquals( 0, FigTracing.getSampleRate() );
+    }
+
+
+    @Test
+    public void testSampledTracing() {
+        FooFig fig = ( FooFig ) GuicyFigModule.getConcreteObject( false, FooFig.class, null, new MemoryConfigSource() );
+
+        FigTracing.setSampleRate( 2 );
+        assertTrue( FigTracing.isActive() );
+
+        for ( int ii = 0; ii < 4; ii++ ) {
+            assertEquals( 0, fig.getFoobar() );
+        }
+
+        FigTracing.setSampleRate( 0 );
+        assertFalse( FigTracing.isActive() );
+    }
+
+
+    @Test
+    public void testKeyTracing() {
+        MemoryConfigSource source = new MemoryConfigSource();
+        FooFig fig = ( FooFig ) GuicyFigModule.getConcreteObject( false, FooFig.class, null, source );
+
+        FigTracing.trace( "foo.fig.fun" );
+        assertTrue( FigTracing.isActive() );
+
+        source.setValue( "foo.fig.fun", "3" );
+        assertEquals( 3, fig.getFoobar() );
+        fig.bypass( "getFoobar", "4" );
+        assertEquals( 4, fig.getFoobar() );
+
+        FigTracing.setSampleRate( 10 );
+        FigTracing.untrace( "foo.fig.fun" );
+        assertTrue( "still sampling", FigTracing.isActive() );
+
+        FigTracing.setSampleRate( 0 );
+        assertFalse( FigTracing.isActive() );
+    }
+}
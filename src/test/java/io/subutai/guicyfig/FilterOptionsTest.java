@@ -0,0 +1,99 @@
+package io.subutai.guicyfig;
+
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+
+/**
+ * Tests filtering, viewing and slicing Maps of entries by option keys.
+ */
+public class FilterOptionsTest extends AbstractTest {
+    private static final String BASE = "io.subutai.guicyfig.ServiceFig.";
+
+
+    private static ServiceFig fig() {
+        return ( ServiceFig ) GuicyFigModule.getConcreteObject( false, ServiceFig.class, null, new MemoryConfigSource() );
+    }
+
+
+    private static Map<String,Object> entries( int unrelated ) {
+        Map<String,Object> entries = new TreeMap<String, Object>();
+
+        for ( int ii = 0; ii < unrelated; ii++ ) {
+            entries.put( "other." + ii, "x" );
+        }
+
+        entries.put( BASE + "getPort", "9999" );
+        entries.put( "thread.wait.time", "42" );
+        return entries;
+    }
+
+
+    @Test
+    public void testFilterEitherSide() {
+        ServiceFig fig = fig();
+
+        for ( int unrelated : new int[] { 0, 1000 } ) {
+            Map<String,Object> filtered = fig.filterOptions( entries( unrelated ) );
+            assertEquals( 2, filtered.size() );
+            assertEquals( "9999", filtered.get( BASE + "getPort" ) );
+            assertEquals( "42", filtered.get( "thread.wait.time" ) );
+        }
+    }
+
+
+    @Test
+    public void testPropertiesSubclass() {
+        Properties properties = new Properties() {
+        };
+        properties.setProperty( BASE + "getPort", "9999" );
+        properties.setProperty( "foo.bar", "filtered out" );
+
+        Properties filtered = fig().filterOptions( properties );
+        assertEquals( 1, filtered.size() );
+        assertEquals( "9999", filtered.getProperty( BASE + "getPort" ) );
+    }
+
+
+    @Test
+    public void testLiveView() {
+        Map<String,Object> entries = entries( 100 );
+        Map<String,Object> view = fig().viewOptions( entries, false );
+        Map<String,Object> converted = fig().viewOptions( entries, true );
+
+        assertEquals( 2, view.size() );
+        assertEquals( "9999", view.get( BASE + "getPort" ) );
+        assertEquals( 9999, converted.get( BASE + "getPort" ) );
+        assertEquals( 42L, converted.get( "thread.wait.time" ) );
+        assertNull( view.get( "other.1" ) );
+        assertFalse( view.containsKey( "other.1" ) );
+
+        entries.put( BASE + "getHost", "localhost" );
+        assertEquals( 3, converted.size() );
+        assertEquals( "localhost", converted.get( BASE + "getHost" ) );
+    }
+
+
+    @Test
+    public void testWithPrefix() {
+        Map<String,Object> sorted = entries( 10 );
+        Map<String,Object> unsorted = new HashMap<String, Object>( sorted );
+
+        for ( Map<String,Object> entries : new Map[] { sorted, unsorted } ) {
+            Map<String,Object> slice = OptionMaps.withPrefix( entries, "other.1" );
+            assertEquals( 1, slice.size() );
+            assertTrue( slice.containsKey( "other.1" ) );
+            assertEquals( 1, fig().viewOptions( OptionMaps.withPrefix( entries, BASE ), false ).size() );
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package io.subutai.guicyfig;
+
+
+/**
+ * Configuration interface whose options are materialized lazily.
+ */
+@LazyOptions
+@Prefix( "lazy" )
+public interface LazyFig extends GuicyFig {
+    @Default( "first" )
+    String getFirst();
+
+    @Default( "2" )
+    int getSecond();
+
+    @Default( "3s" )
+    java.time.Duration getThird();
+
+    @Key( "lazy.fourth.key" )
+    boolean isFourth();
+}
@@ -0,0 +1,145 @@
+package io.subutai.guicyfig;
+
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
+
+
+/**
+ * Tests the lazy materialization of the options of LazyOptions configuration interfaces.
+ */
+public class LazyOptionsTest extends AbstractTest {
+
+    @Test
+    public void testExportDoesNotMaterialize() throws IOException {
+        MemoryMetricsSink sink = new MemoryMetricsSink();
+        FigMetrics.install( sink );
+
+        try {
+            MemoryConfigSource source = new MemoryConfigSource();
+            source.setValue( "lazy.getSecond", "20" );
+            LazyFig fig = ( LazyFig ) GuicyFigModule.getConcreteObject( false, LazyFig.class, null, source );
+            fig.override( "getFirst", "overridden" );
+            assertEquals( 1, sink.getCount( FigMetrics.CALLBACKS ) );
+
+            StringWriter writer = new StringWriter();
+            FigExport.write( Collections.singletonList( fig ), FigExport.Format.PROPERTIES, writer );
+            String exported = writer.toString();
+
+            assertTrue( exported, exported.contains( "# OVERRIDE\nlazy.getFirst=overridden\n" ) );
+            assertTrue( exported, exported.contains( "# CONFIGURATION\nlazy.getSecond=20\n" ) );
+            assertTrue( exported, exported.contains( "# DEFAULT_ANNOTATION\nlazy.getThird=PT3S\n" ) );
+            assertTrue( exported, exported.contains( "# NONE\nlazy.fourth.key=false\n" ) );
+
+            FigAdmin.getInstance().refresh();
+            assertTrue( FigAdmin.getInstance().getFigs().size() > 0 );
+            assertEquals( 1, sink.getCount( FigMetrics.CALLBACKS ) );
+        }
+        finally {
+            FigMetrics.uninstall();
+        }
+    }
+
+
+    @Test
+    public void testMaterializedOnFirstAccess() {
+        MemoryConfigSource source = new MemoryConfigSource();
+        LazyFig fig = ( LazyFig ) GuicyFigModule.getConcreteObject( false, LazyFig.class, null, source );
+
+        assertTrue( GuicyFigModule.getMetadata( LazyFig.class ).isLazy() );
+        assertTrue( GuicyFigModule.buildBaseObject( LazyFig.class ).isLazy() );
+        assertEquals( "lazy.getSecond", fig.getKeyByMethod( "getSecond" ) );
+
+        assertEquals( "first", fig.getFirst() );
+        assertEquals( 2, fig.getSecond() );
+        assertEquals( Duration.ofSeconds( 3 ), fig.getThird() );
+
+        source.setValue( "lazy.fourth.key", "true" );
+        assertEquals( true, fig.isFourth() );
+        assertSame( fig.getOption( "lazy.fourth.key" ), fig.getOption( "lazy.fourth.key" ) );
+
+        // every option is materialized to list them
+        assertEquals( 4, fig.getOptions().length );
+    }
+
+
+    @Test
+    public void testCallbacksOnlyForMaterializedOptions() {
+        // counted by the metrics: the index drops the callbacks of collected options at any time
+        MemoryMetricsSink sink = new MemoryMetricsSink();
+        FigMetrics.install( sink );
+
+        try {
+            LazyFig fig = ( LazyFig ) GuicyFigModule.getConcreteObject( false, LazyFig.class );
+
+            fig.getSecond();
+            assertEquals( 0, sink.getCount( FigMetrics.CALLBACKS, "lazy.getFirst" ) );
+
+            fig.getFirst();
+            fig.getFirst();
+            assertEquals( 1, sink.getCount( FigMetrics.CALLBACKS, "lazy.getFirst" ) );
+            assertTrue( OptionIndex.size( "lazy.getFirst" ) >= 1 );
+        }
+        finally {
+            FigMetrics.uninstall();
+        }
+    }
+
+
+    @Test
+    public void testConcurrentMaterialization() throws Exception {
+        MemoryMetricsSink sink = new MemoryMetricsSink();
+        FigMetrics.install( sink );
+
+        final LazyFig fig = ( LazyFig ) GuicyFigModule.getConcreteObject( false, LazyFig.class );
+        ExecutorService executor = Executors.newFixedThreadPool( 8 );
+        List<Future<OptionState>> futures = new ArrayList<Future<OptionState>>();
+
+        try {
+            for ( int ii = 0; ii < 32; ii++ ) {
+                futures.add( executor.submit( new Callable<OptionState>() {
+                    @Override
+                    public OptionState call() {
+                        return fig.getOption( "lazy.getThird" );
+                    }
+                } ) );
+            }
+
+            for ( Future<OptionState> future : futures ) {
+                assertSame( futures.get( 0 ).get(), future.get() );
+            }
+        }
+        finally {
+            executor.shutdown();
+            FigMetrics.uninstall();
+        }
+
+        assertEquals( 1, sink.getCount( FigMetrics.CALLBACKS, "lazy.getThird" ) );
+    }
+
+
+    @Test
+    public void testLazySections() {
+        MemoryConfigSource source = new MemoryConfigSource();
+        source.setValue( "tenant.getSecond", "20" );
+
+        LazyFig section = ( LazyFig ) GuicyFigModule.getConcreteObject( false, LazyFig.class, "tenant", source );
+        assertEquals( 20, section.getSecond() );
+        assertEquals( "tenant.getSecond", section.getOption( "tenant.getSecond" ).getKey() );
+        assertEquals( null, section.getOption( "lazy.getSecond" ) );
+    }
+}
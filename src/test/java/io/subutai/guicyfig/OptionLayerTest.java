@@ -0,0 +1,117 @@
+package io.subutai.guicyfig;
+
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.netflix.config.ConcurrentCompositeConfiguration;
+import com.netflix.config.ConfigurationManager;
+
+import static junit.framework.TestCase.assertEquals;
+
+
+/**
+ * Tests tracking the layers the effective values of options come from.
+ */
+public class OptionLayerTest extends AbstractTest {
+    private static final String BASE = "io.subutai.guicyfig.ServiceFig.";
+
+
+    private static Map<String,OptionLayer> defaultLayers( FigMetadata metadata ) {
+        Map<String,OptionLayer> layers = new HashMap<String, OptionLayer>();
+
+        for ( OptionMetadata option : metadata.getOptions() ) {
+            layers.put( option.getMethod().getName(), option.getDefaultLayer() );
+        }
+
+        return layers;
+    }
+
+
+    @Test
+    public void testDefaultLayers() {
+        Map<String,OptionLayer> layers = defaultLayers( FigMetadata.build( CascadeFig.class, Environment.UNIT ) );
+        assertEquals( OptionLayer.DEFAULTS_FILE, layers.get( "getName" ) );
+        assertEquals( OptionLayer.DEFAULT_ANNOTATION, layers.get( "getTimeout" ) );
+
+        layers = defaultLayers( FigMetadata.build( CascadeFig.class, Environment.PROD ) );
+        assertEquals( OptionLayer.ENVIRONMENT_DEFAULTS, layers.get( "getName" ) );
+        assertEquals( OptionLayer.ENVIRONMENT_DEFAULTS, layers.get( "getPoolSize" ) );
+        assertEquals( OptionLayer.DEFAULTS_FILE, layers.get( "isTuned" ) );
+
+        layers = defaultLayers( FigMetadata.build( ServiceFig.class, Environment.UNIT ) );
+        assertEquals( OptionLayer.NONE, layers.get( "getAbc" ) );
+    }
+
+
+    @Test
+    public void testLayersFollowChanges() {
+        MemoryConfigSource source = new MemoryConfigSource();
+        ServiceFig fig = ( ServiceFig ) GuicyFigModule.getConcreteObject( false, ServiceFig.class, null, source );
+        OptionState option = fig.getOption( BASE + "getMaxConnections" );
+        assertEquals( OptionLayer.DEFAULT_ANNOTATION, option.getLayer() );
+
+        source.setValue( BASE + "getMaxConnections", "10" );
+        assertEquals( OptionLayer.CONFIGURATION, option.getLayer() );
+
+        // the layer changes even though the value does not
+        source.setOverride( BASE + "getMaxConnections", "10" );
+        assertEquals( OptionLayer.RUNTIME, option.getLayer() );
+
+        fig.override( "getMaxConnections", "20" );
+        assertEquals( OptionLayer.OVERRIDE, option.getLayer() );
+
+        fig.bypass( "getMaxConnections", "30" );
+        assertEquals( OptionLayer.BYPASS, option.getLayer() );
+
+        fig.bypass( "getMaxConnections", null );
+        fig.override( "getMaxConnections", null );
+        source.clear();
+        assertEquals( OptionLayer.DEFAULT_ANNOTATION, option.getLayer() );
+    }
+
+
+    @Test
+    public void testSandboxParentLayers() {
+        MemoryConfigSource parent = new MemoryConfigSource();
+        parent.setOverride( BASE + "getPort", "1" );
+
+        ConfigSandbox sandbox = new ConfigSandbox( parent );
+        ServiceFig fig = sandbox.getFig( ServiceFig.class );
+        assertEquals( OptionLayer.RUNTIME, fig.getOption( BASE + "getPort" ).getLayer() );
+
+        // values of the sandbox shadow everything in the parent
+        sandbox.setValue( BASE + "getPort", "2" );
+        assertEquals( OptionLayer.CONFIGURATION, fig.getOption( BASE + "getPort" ).getLayer() );
+        assertEquals( 2, fig.getPort() );
+    }
+
+
+    @Test
+    public void testArchaiusLayers() {
+        String key = BASE + "getStartupTimeout";
+        ConcurrentCompositeConfiguration ccc =
+                ( ConcurrentCompositeConfiguration ) ConfigurationManager.getConfigInstance();
+        ServiceFig fig = ( ServiceFig ) GuicyFigModule.getConcreteObject( false, ServiceFig.class );
+        OptionState option = fig.getOption( key );
+
+        try {
+            assertEquals( OptionLayer.DEFAULT_ANNOTATION, option.getLayer() );
+
+            ccc.setProperty( key, "600" );
+            assertEquals( OptionLayer.CONFIGURATION, option.getLayer() );
+
+            ccc.setOverrideProperty( key, "700" );
+            assertEquals( OptionLayer.RUNTIME, option.getLayer() );
+            assertEquals( 700L, fig.getStartupTimeout() );
+        }
+        finally {
+            ccc.clearOverrideProperty( key );
+            ccc.clearProperty( key );
+        }
+
+        assertEquals( OptionLayer.DEFAULT_ANNOTATION, option.getLayer() );
+    }
+}
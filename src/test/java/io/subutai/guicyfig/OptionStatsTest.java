@@ -0,0 +1,52 @@
+package io.subutai.guicyfig;
+
+
+import org.junit.After;
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+
+/**
+ * Tests the access statistics of options.
+ */
+public class OptionStatsTest extends AbstractTest {
+
+    @After
+    public void disableStats() {
+        OptionStats.setEnabled( false );
+    }
+
+
+    @Test
+    public void testReadsCountedWhileEnabled() {
+        FooFig fig = ( FooFig ) GuicyFigModule.getConcreteObject( false, FooFig.class, null, new MemoryConfigSource() );
+        OptionStats stats = fig.getOption( "foo.fig.fun" ).getStats();
+
+        fig.getFoobar();
+        assertEquals( 0, stats.getReads() );
+        assertEquals( 0, stats.getLastRead() );
+
+        OptionStats.setEnabled( true );
+        long before = System.currentTimeMillis();
+        fig.getFoobar();
+        fig.getFoobar();
+        fig.override( "getFoobar", "5" );
+        fig.getFoobar();
+        fig.bypass( "getFoobar", "6" );
+        fig.getFoobar();
+
+        assertEquals( 4, stats.getReads() );
+        assertEquals( 1, stats.getOverrideHits() );
+        assertEquals( 1, stats.getBypassHits() );
+        assertTrue( stats.getLastRead() >= before );
+
+        // other options are not affected
+        assertEquals( 0, fig.getOption( "getSomething" ).getStats().getReads() );
+
+        stats.reset();
+        assertEquals( 0, stats.getReads() );
+        assertEquals( 0, stats.getLastRead() );
+    }
+}
@@ -0,0 +1,59 @@
+package io.subutai.guicyfig;
+
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+
+/**
+ * Configuration interface with converted return types.
+ */
+public interface RichFig extends GuicyFig {
+    @Default( "30s" )
+    Duration getTimeout();
+
+    @Default( "64MB" )
+    DataSize getBufferSize();
+
+    @Default( "a, b, c" )
+    List<String> getNames();
+
+    @Default( "1,2,2,3" )
+    Set<Integer> getPorts();
+
+    @Default( "ONE=1,TWO=2" )
+    Map<ConfigEnum,Long> getWeights();
+
+    @Default( "http://localhost:8080/api" )
+    URI getEndpoint();
+
+    @Default( "localhost:9160" )
+    InetSocketAddress getAddress();
+
+    @Default( "^foo.*" )
+    Pattern getPattern();
+
+    @Default( "2.5" )
+    Double getRatio();
+
+    @Default( "true" )
+    Boolean isEnabled();
+
+    List<ConfigEnum> getUnset();
+
+    @Convert( UpperCaseConverter.class )
+    String getShout();
+
+
+    class UpperCaseConverter implements Converter<String> {
+        @Override
+        public String convert( String value ) {
+            return value.toUpperCase();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package io.subutai.guicyfig;
+
+
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
+
+
+/**
+ * Tests nested configuration sections.
+ */
+public class SectionTest extends AbstractTest {
+
+    @After
+    public void clearShards() {
+        getConfiguration().clearProperty( "cluster.shards.a.getHost" );
+        getConfiguration().clearProperty( "cluster.shards.b.getPort" );
+        getConfiguration().clearProperty( "cluster.shards.b.replicas" );
+        getConfiguration().clearProperty( "cluster.getPrimary.getPort" );
+    }
+
+
+    @Test
+    public void testSections() {
+        getConfiguration().setProperty( "cluster.shards.a.getHost", "shard-a" );
+        getConfiguration().setProperty( "cluster.shards.b.getPort", "9999" );
+        getConfiguration().setProperty( "cluster.shards.b.replicas", "3" );
+        getConfiguration().setProperty( "cluster.getPrimary.getPort", "7000" );
+
+        ClusterFig fig = Guice.createInjector( new GuicyFigModule( ClusterFig.class ) ).getInstance( ClusterFig.class );
+        assertEquals( "cluster.getName", fig.getKeyByMethod( "getName" ) );
+        assertEquals( "test-cluster", fig.getName() );
+
+        ClusterFig.ShardFig primary = fig.getPrimary();
+        assertSame( primary, fig.getPrimary() );
+        assertEquals( "cluster.getPrimary.getPort", primary.getKeyByMethod( "getPort" ) );
+        assertEquals( 7000, primary.getPort() );
+        assertEquals( "localhost", primary.getHost() );
+
+        Map<String,ClusterFig.ShardFig> shards = fig.getShards();
+        assertSame( shards, fig.getShards() );
+        assertEquals( 2, shards.size() );
+        assertTrue( shards.containsKey( "a" ) );
+        assertFalse( shards.containsKey( "c" ) );
+
+        ClusterFig.ShardFig a = shards.get( "a" );
+        assertSame( a, shards.get( "a" ) );
+        assertEquals( "shard-a", a.getHost() );
+        assertEquals( 9160, a.getPort() );
+
+        ClusterFig.ShardFig b = shards.get( "b" );
+        assertEquals( "localhost", b.getHost() );
+        assertEquals( 9999, b.getPort() );
+        assertEquals( 3, b.getReplicas() );
+        assertEquals( "cluster.shards.b.replicas", b.getKeyByMethod( "getReplicas" ) );
+
+        // sections which are not configured are absent
+        assertNull( shards.get( "c" ) );
+        assertFalse( shards.containsKey( "c" ) );
+        assertEquals( 2, shards.size() );
+    }
+}
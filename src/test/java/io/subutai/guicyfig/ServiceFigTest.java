@@ -253,7 +253,7 @@ public class ServiceFigTest extends AbstractTest {
                 ( ConcurrentCompositeConfiguration ) ConfigurationManager.getConfigInstance();
         cmc.addConfigurationAtFront( config, "testNotifications" );
 
-        Thread.sleep( 500 );
+        FigPropagation.awaitPropagation();
         assertFalse( events.isEmpty() );
         assertEquals( 2, events.size() );
 
@@ -384,7 +384,7 @@ public class ServiceFigTest extends AbstractTest {
 
         serviceFig.override( serviceFig.getKeyByMethod( "getEnum" ), ConfigEnum.TWO.toString() );
 
-        Thread.sleep( 500 );
+        FigPropagation.awaitPropagation();
         assertFalse( events.isEmpty() );
         assertEquals( 1, events.size() );
 
@@ -396,7 +396,7 @@ public class ServiceFigTest extends AbstractTest {
         assertEquals( ConfigEnum.TWO, event.getNewValue() );
 
         serviceFig.override( serviceFig.getKeyByMethod( "getEnum" ), ConfigEnum.ONE.toString() );
-        Thread.sleep( 500 );
+        FigPropagation.awaitPropagation();
         assertEquals( 2, events.size() );
 
         event = events.get( 1 );
@@ -405,7 +405,7 @@ public class ServiceFigTest extends AbstractTest {
         assertEquals( ConfigEnum.ONE, event.getNewValue() );
 
         serviceFig.bypass( serviceFig.getKeyByMethod( "getEnum" ), ConfigEnum.THREE.toString() );
-        Thread.sleep( 500 );
+        FigPropagation.awaitPropagation();
         assertEquals( 3, events.size() );
 
         event = events.get( 2 );
@@ -0,0 +1,113 @@
+package io.subutai.guicyfig;
+
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+
+/**
+ * Tests the SnapshotConfiguration and the dispatch of changed keys through the OptionIndex.
+ */
+public class SnapshotConfigurationTest extends AbstractTest {
+    private static final String NAME = "io.subutai.guicyfig.CascadeFig.getName";
+    private static final String POOL_SIZE = "io.subutai.guicyfig.CascadeFig.getPoolSize";
+
+    private final SnapshotConfiguration configuration = new SnapshotConfiguration();
+    private final List<String> events = new CopyOnWriteArrayList<String>();
+
+
+    @Before
+    public void install() {
+        getConfiguration().addConfigurationAtFront( configuration, "snapshot" );
+    }
+
+
+    @After
+    public void uninstall() {
+        configuration.apply( Collections.<String, String>emptyMap() );
+        getConfiguration().removeConfiguration( "snapshot" );
+    }
+
+
+    private static Map<String,String> snapshot( int size ) {
+        Map<String,String> values = new HashMap<String, String>();
+
+        for ( int ii = 0; ii < size; ii++ ) {
+            values.put( "snapshot.key" + ii, String.valueOf( ii ) );
+        }
+
+        return values;
+    }
+
+
+    private CascadeFig listen( CascadeFig fig ) {
+        fig.addPropertyChangeListener( new PropertyChangeListener() {
+            @Override
+            public void propertyChange( PropertyChangeEvent event ) {
+                events.add( event.getPropertyName() );
+            }
+        } );
+
+        return fig;
+    }
+
+
+    @Test
+    public void testOnlyChangedKeys() {
+        Map<String,String> values = snapshot( 10000 );
+        values.put( NAME, "first" );
+        assertEquals( 10001, configuration.apply( values ).size() );
+
+        CascadeFig one = listen( ( CascadeFig ) GuicyFigModule.getConcreteObject( false, CascadeFig.class ) );
+        CascadeFig two = listen( ( CascadeFig ) GuicyFigModule.getConcreteObject( false, CascadeFig.class ) );
+        assertEquals( "first", one.getName() );
+
+        values.put( NAME, "second" );
+        values.put( "snapshot.key7", "changed" );
+        values.remove( "snapshot.key8" );
+        values.put( "snapshot.added", "added" );
+
+        Set<String> changed = configuration.apply( values );
+        assertEquals( 4, changed.size() );
+        assertTrue( changed.contains( NAME ) );
+
+        // both instances are notified, of the only key they have that changed
+        assertEquals( "second", one.getName() );
+        assertEquals( "second", two.getName() );
+        assertEquals( 2, events.size() );
+        assertEquals( NAME, events.get( 0 ) );
+        assertTrue( OptionIndex.size( NAME ) >= 2 );
+
+        // nothing changed
+        assertTrue( configuration.apply( values ).isEmpty() );
+        assertEquals( 2, events.size() );
+    }
+
+
+    @Test
+    public void testChanges() {
+        configuration.apply( snapshot( 3 ) );
+
+        CascadeFig fig = listen( ( CascadeFig ) GuicyFigModule.getConcreteObject( false, CascadeFig.class ) );
+        Set<String> changed = configuration.apply( Collections.singletonMap( POOL_SIZE, "128" ),
+                Collections.singleton( "snapshot.key0" ) );
+
+        assertEquals( 2, changed.size() );
+        assertEquals( 128, fig.getPoolSize() );
+        assertEquals( Collections.singletonList( POOL_SIZE ), events );
+        assertEquals( 3, configuration.getSnapshot().size() );
+    }
+}
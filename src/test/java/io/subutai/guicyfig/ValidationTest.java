@@ -0,0 +1,128 @@
+package io.subutai.guicyfig;
+
+
+import org.junit.Test;
+
+import com.google.inject.ConfigurationException;
+import com.google.inject.CreationException;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.spi.Message;
+
+import io.subutai.invalidfig.InvalidFigs.BrokenFig;
+import io.subutai.invalidfig.InvalidFigs.OtherSharedKeyFig;
+import io.subutai.invalidfig.InvalidFigs.SharedKeyFig;
+import io.subutai.invalidfig.InvalidFigs.UnsupportedFig;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+
+/**
+ * Tests the validation of configuration interfaces when the injector is created.
+ */
+public class ValidationTest extends AbstractTest {
+
+    public interface ValidFig extends GuicyFig {
+        @Default( "10" )
+        int getCount();
+    }
+
+
+    /** Fields set by the GuicyFigModule's type listener: no bindings exist for the annotations. */
+    public static class BadInjectionPoints {
+        @Overrides( name = "bad", options = { @Option( method = "getMissing", override = "1" ) } )
+        ValidFig missing;
+
+        @Bypass( options = { @Option( method = "getCount", override = "ten" ) } )
+        ValidFig invalid;
+    }
+
+
+    private static String messages( CreationException e ) {
+        StringBuilder sb = new StringBuilder();
+
+        for ( Message message : e.getErrorMessages() ) {
+            sb.append( message.getMessage() ).append( '\n' );
+        }
+
+        return sb.toString();
+    }
+
+
+    @Test
+    public void testAllErrorsReportedTogether() {
+        try {
+            //noinspection unchecked
+            Guice.createInjector( new GuicyFigModule( BrokenFig.class, SharedKeyFig.class, OtherSharedKeyFig.class ) );
+            fail( "the broken configuration interfaces should not compile" );
+        }
+        catch ( CreationException e ) {
+            String messages = messages( e );
+            assertEquals( messages, 4, e.getErrorMessages().size() );
+            assertTrue( messages, messages.contains( "getThread() returns unsupported type" ) );
+            assertTrue( messages, messages.contains( "getCount() has invalid default many: not a valid int" ) );
+            assertTrue( messages, messages.contains( "getDistance() has invalid default 5 parsecs" ) );
+            assertTrue( messages, messages.contains( "Key validation.shared is used by both" ) );
+        }
+    }
+
+
+    @Test
+    public void testUnsupportedTypesAndDefaults() {
+        FigMetadata metadata = FigMetadata.build( BrokenFig.class, Environment.ALL );
+        String errors = FigValidator.validate( metadata ).toString();
+
+        assertEquals( errors, 3, FigValidator.validate( metadata ).size() );
+        assertTrue( errors, errors.contains( "getThread() returns unsupported type" ) );
+        assertTrue( errors, errors.contains( "getCount() has invalid default many" ) );
+        assertTrue( errors, errors.contains( "getDistance() has invalid default 5 parsecs" ) );
+
+        // the options of interfaces found by package scans may have unsupported types
+        assertEquals( 2, FigValidator.validate( metadata, false ).size() );
+
+        try {
+            GuicyFigModule.getConcreteObject( false, BrokenFig.class, null, new MemoryConfigSource() );
+            fail( "the invalid default should keep the configuration from being created" );
+        }
+        catch ( IllegalArgumentException e ) {
+            assertTrue( e.getMessage(), e.getMessage().contains( "Default value many" ) );
+        }
+    }
+
+
+    @Test
+    public void testScannedUnsupportedTypes() {
+        //noinspection unchecked
+        UnsupportedFig fig = Guice.createInjector( new GuicyFigModule( UnsupportedFig.class ).scanned() )
+                                  .getInstance( UnsupportedFig.class );
+        assertEquals( 1, fig.getCount() );
+
+        try {
+            //noinspection unchecked
+            Guice.createInjector( new GuicyFigModule( UnsupportedFig.class ) );
+            fail( "unsupported types should be reported for interfaces which were not scanned" );
+        }
+        catch ( CreationException e ) {
+            assertEquals( 1, e.getErrorMessages().size() );
+        }
+    }
+
+
+    @Test
+    public void testInjectionPoints() {
+        Injector injector = Guice.createInjector( new GuicyFigModule( ValidFig.class ) );
+
+        try {
+            injector.getInstance( BadInjectionPoints.class );
+            fail( "the injection points should be rejected" );
+        }
+        catch ( ConfigurationException e ) {
+            String messages = e.getErrorMessages().toString();
+            assertEquals( messages, 2, e.getErrorMessages().size() );
+            assertTrue( messages, messages.contains( "names method getMissing" ) );
+            assertTrue( messages, messages.contains( "has invalid value ten for method getCount" ) );
+        }
+    }
+}
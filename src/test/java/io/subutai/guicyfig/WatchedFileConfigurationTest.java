@@ -0,0 +1,132 @@
+package io.subutai.guicyfig;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.event.ConfigurationEvent;
+import org.apache.commons.configuration.event.ConfigurationListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+
+/**
+ * Tests the WatchedFileConfiguration.
+ */
+public class WatchedFileConfigurationTest extends AbstractTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path base;
+    private Path local;
+    private WatchedFileConfiguration configuration;
+    private final List<String> changes = new CopyOnWriteArrayList<String>();
+    private volatile CountDownLatch latch = new CountDownLatch( 1 );
+
+
+    @Before
+    public void watch() throws IOException {
+        File directory = folder.newFolder( "watched" );
+        base = directory.toPath().resolve( "base.properties" );
+        local = directory.toPath().resolve( "local.properties" );
+        write( base, "a=1\nb=2\nc=3\n" );
+
+        configuration = new WatchedFileConfiguration( base, local );
+        configuration.addConfigurationListener( new ConfigurationListener() {
+            @Override
+            public void configurationChanged( ConfigurationEvent event ) {
+                if ( ! event.isBeforeUpdate() ) {
+                    changes.add( event.getType() + ":" + event.getPropertyName() );
+                    latch.countDown();
+                }
+            }
+        } );
+    }
+
+
+    @After
+    public void unwatch() throws IOException {
+        configuration.close();
+    }
+
+
+    private static void write( Path file, String contents ) throws IOException {
+        Files.write( file, contents.getBytes( StandardCharsets.ISO_8859_1 ) );
+    }
+
+
+    private void await( int events ) throws InterruptedException {
+        assertTrue( "timed out waiting for changes", latch.await( 10, TimeUnit.SECONDS ) );
+
+        // the changes of one reload are applied together: wait for the rest
+        FigPropagation.awaitPropagation();
+        assertTrue( changes.size() >= events );
+    }
+
+
+    @Test
+    public void testInitialValues() {
+        assertEquals( "1", configuration.getString( "a" ) );
+        assertEquals( "3", configuration.getString( "c" ) );
+        assertTrue( changes.isEmpty() );
+    }
+
+
+    @Test
+    public void testOnlyChangedKeys() throws Exception {
+        write( base, "a=1\nb=20\nd=4\n" );
+        await( 3 );
+
+        assertEquals( "20", configuration.getString( "b" ) );
+        assertEquals( "4", configuration.getString( "d" ) );
+        assertNull( configuration.getString( "c" ) );
+
+        assertEquals( 3, changes.size() );
+        assertFalse( changes.toString().contains( ":a" ) );
+    }
+
+
+    @Test
+    public void testLaterFileOverrides() throws Exception {
+        write( local, "a=local\n" );
+        await( 1 );
+
+        assertEquals( "local", configuration.getString( "a" ) );
+        assertEquals( "2", configuration.getString( "b" ) );
+        assertEquals( 1, changes.size() );
+
+        latch = new CountDownLatch( 1 );
+        changes.clear();
+        Files.delete( local );
+        await( 1 );
+
+        assertEquals( "1", configuration.getString( "a" ) );
+        assertEquals( 1, changes.size() );
+    }
+
+
+    @Test
+    public void testSynchronousReload() throws Exception {
+        configuration.close();
+        write( base, "a=10\nb=2\nc=3\n" );
+        configuration.reload();
+
+        assertEquals( "10", configuration.getString( "a" ) );
+        assertEquals( 1, changes.size() );
+    }
+}
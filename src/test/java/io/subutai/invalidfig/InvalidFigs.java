@@ -0,0 +1,51 @@
+package io.subutai.invalidfig;
+
+
+import java.time.Duration;
+
+import io.subutai.guicyfig.Default;
+import io.subutai.guicyfig.GuicyFig;
+import io.subutai.guicyfig.Key;
+
+
+/**
+ * Invalid configuration interfaces used to test validation. They live outside
+ * of the io.subutai.guicyfig package so package scans of the other tests do
+ * not pick them up.
+ */
+public final class InvalidFigs {
+
+    private InvalidFigs() {
+    }
+
+
+    public interface BrokenFig extends GuicyFig {
+        Thread getThread();
+
+        @Default( "many" )
+        int getCount();
+
+        @Default( "5 parsecs" )
+        Duration getDistance();
+    }
+
+
+    public interface UnsupportedFig extends GuicyFig {
+        Thread getThread();
+
+        @Default( "1" )
+        int getCount();
+    }
+
+
+    public interface SharedKeyFig extends GuicyFig {
+        @Key( "validation.shared" )
+        int getShared();
+    }
+
+
+    public interface OtherSharedKeyFig extends GuicyFig {
+        @Key( "validation.shared" )
+        String getAlsoShared();
+    }
+}